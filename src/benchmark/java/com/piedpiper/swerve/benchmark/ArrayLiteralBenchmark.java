@@ -0,0 +1,36 @@
+package com.piedpiper.swerve.benchmark;
+
+import java.util.List;
+
+import com.piedpiper.swerve.lexer.Lexer;
+import com.piedpiper.swerve.lexer.Token;
+import com.piedpiper.swerve.parser.Parser;
+import com.piedpiper.swerve.semantic.SemanticAnalyzer;
+
+/**
+ * Parse and analysis time of a constant lookup table: packed literal elements against a node per element.
+ * A parenthesized first element is an expression, which keeps the parser from packing the table
+ */
+public class ArrayLiteralBenchmark {
+    public static void main(String[] args) {
+        int elements = Integer.getInteger("swerve.bench.elements", 200000);
+        List<Token> packed = new Lexer().lex(program(elements, "0"));
+        List<Token> nodes = new Lexer().lex(program(elements, "(0)"));
+
+        long nodeNanos = Measurement.bestOf(2, 5, () -> new SemanticAnalyzer().analyze(new Parser(nodes).parse()));
+        long packedNanos = Measurement.bestOf(2, 5, () -> new SemanticAnalyzer().analyze(new Parser(packed).parse()));
+
+        System.out.printf("array literal: %d elements%n", elements);
+        System.out.printf("  node per element: %8.1f ms%n", Measurement.millis(nodeNanos));
+        System.out.printf("  packed:           %8.1f ms%n", Measurement.millis(packedNanos));
+        System.out.printf("  speedup: %.1fx%n", (double) nodeNanos / packedNanos);
+    }
+
+    private static List<String> program(int elements, String first) {
+        StringBuilder table = new StringBuilder("const Array<int> table = {").append(first);
+        for (int i = 1; i < elements; i++)
+            table.append(i % 16 == 0 ? ",\n" : ", ").append(i % 7 == 0 ? -i : i * 31 % 1000);
+        table.append("};");
+        return List.of(table.toString(), "fn main() {}");
+    }
+}
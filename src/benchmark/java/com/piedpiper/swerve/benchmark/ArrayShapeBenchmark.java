@@ -0,0 +1,60 @@
+package com.piedpiper.swerve.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.piedpiper.swerve.lexer.Lexer;
+import com.piedpiper.swerve.lexer.TokenType;
+import com.piedpiper.swerve.lexer.VariableToken;
+import com.piedpiper.swerve.parser.AbstractSyntaxTree;
+import com.piedpiper.swerve.parser.NodeKind;
+import com.piedpiper.swerve.parser.Parser;
+import com.piedpiper.swerve.semantic.SemanticAnalyzer;
+
+/**
+ * Analyzing a constant array declaration, where the literal is sized and typed,
+ * on a very wide Array<Array<Array<double>>> and on a deeply nested binary one.
+ * The literals are built as nodes so the parser doesn't pack their innermost arrays
+ */
+public class ArrayShapeBenchmark {
+    public static void main(String[] args) {
+        int width = Integer.getInteger("swerve.bench.width", 100);
+        int depth = Integer.getInteger("swerve.bench.depth", 14);
+        measure("wide " + width + "x" + width + "x" + width, new int[]{width, width, width});
+        int[] widths = new int[depth];
+        Arrays.fill(widths, 2);
+        measure("deep 2^" + depth, widths);
+    }
+
+    private static void measure(String name, int[] widths) {
+        AbstractSyntaxTree program = program(widths);
+        long nanos = Measurement.bestOf(1, 3, () -> new SemanticAnalyzer().analyze(program));
+
+        System.out.printf("array shape, %s:%n", name);
+        System.out.printf("  %10.1f ms%n", Measurement.millis(nanos));
+    }
+
+    // const Array<...<double>> table = {...}; fn main() {} with the literal swapped for a big one
+    private static AbstractSyntaxTree program(int[] widths) {
+        String type = "Array<".repeat(widths.length) + "double" + ">".repeat(widths.length);
+        AbstractSyntaxTree program = new Parser(new Lexer().lex(List.of("const " + type + " table = {};", "fn main() {}"))).parse();
+        List<AbstractSyntaxTree> declaration = program.getChildren().get(0).getChildren();
+        for (int i = 0; i < declaration.size(); i++) {
+            if (declaration.get(i).isArrayLiteral())
+                declaration.set(i, literal(widths, 0, new int[1]));
+        }
+        return program;
+    }
+
+    // array literal with widths[level] elements at each level and doubles in the innermost arrays
+    private static AbstractSyntaxTree literal(int[] widths, int level, int[] count) {
+        List<AbstractSyntaxTree> elements = new ArrayList<>(widths[level]);
+        for (int i = 0; i < widths[level]; i++) {
+            elements.add(level + 1 < widths.length
+                ? literal(widths, level + 1, count)
+                : new AbstractSyntaxTree(new VariableToken(TokenType.NUMBER, count[0]++ + ".5")));
+        }
+        return new AbstractSyntaxTree(NodeKind.ARRAY_LIT, 1, elements);
+    }
+}
@@ -0,0 +1,42 @@
+package com.piedpiper.swerve.benchmark;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Entry point for ./gradlew benchmark; runs every benchmark or only the ones named with -Pbenchmarks=name,...
+ * Benchmarks only time the compiler as it is. For the numbers of an older version, build it from git and run them against it
+ * with -PbenchmarkAgainst=path/to/its.jar; a benchmark can only run there if the older version has the API it calls
+ */
+public class BenchmarkRunner {
+    private static final Map<String, Consumer<String[]>> benchmarks = new LinkedHashMap<>();
+
+    static {
+        benchmarks.put("lexer", LexerBenchmark::main);
+        benchmarks.put("mapped-lexer", MappedLexerBenchmark::main);
+        benchmarks.put("token-footprint", TokenFootprintBenchmark::main);
+        benchmarks.put("parallel-lexer", ParallelLexerBenchmark::main);
+        benchmarks.put("string-literal", StringLiteralBenchmark::main);
+        benchmarks.put("comment-lexer", CommentLexerBenchmark::main);
+        benchmarks.put("expression-parser", ExpressionParserBenchmark::main);
+        benchmarks.put("lazy-parser", LazyParserBenchmark::main);
+        benchmarks.put("array-literal", ArrayLiteralBenchmark::main);
+        benchmarks.put("array-shape", ArrayShapeBenchmark::main);
+        benchmarks.put("symbol-table", SymbolTableBenchmark::main);
+    }
+
+    public static void main(String[] args) {
+        List<String> selected = args.length == 0 ? List.copyOf(benchmarks.keySet()) : List.of(args);
+        for (String name : selected) {
+            Consumer<String[]> benchmark = benchmarks.get(name);
+            if (benchmark == null) {
+                System.out.println("Unknown benchmark '" + name + "'; available: " + benchmarks.keySet());
+                System.exit(1);
+            }
+            benchmark.accept(new String[]{});
+            System.out.println();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.piedpiper.swerve.benchmark;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.piedpiper.swerve.lexer.Lexer;
+
+/**
+ * Lexing throughput (MB/s) on a comment and indentation heavy source: scanning one byte at a time against a word at a time
+ */
+public class CommentLexerBenchmark {
+    private static final String SCALAR_SCAN_PROPERTY = "swerve.lexer.scalarScan";
+
+    public static void main(String[] args) {
+        int megabytes = Integer.getInteger("swerve.bench.mb", 20);
+        ByteBuffer source = ByteBuffer.wrap(program(megabytes * 1024 * 1024).getBytes(StandardCharsets.UTF_8));
+        long bytes = source.remaining();
+        int[] tokenCounts = new int[2];
+
+        System.setProperty(SCALAR_SCAN_PROPERTY, "true");
+        long scalarNanos = Measurement.bestOf(1, 5, () -> tokenCounts[0] = Lexer.lexToBuffer(source.duplicate()).size());
+        System.clearProperty(SCALAR_SCAN_PROPERTY);
+        long wordNanos = Measurement.bestOf(1, 5, () -> tokenCounts[1] = Lexer.lexToBuffer(source.duplicate()).size());
+
+        System.out.printf("comment lexer: %.1f MB, %d tokens%n", bytes / (1024.0 * 1024.0), tokenCounts[0]);
+        System.out.printf("  byte at a time: %8.1f ms %8.1f MB/s%n", Measurement.millis(scalarNanos), Measurement.megabytesPerSecond(bytes, scalarNanos));
+        System.out.printf("  word at a time: %8.1f ms %8.1f MB/s (%d tokens)%n", Measurement.millis(wordNanos), Measurement.megabytesPerSecond(bytes, wordNanos), tokenCounts[1]);
+        System.out.printf("  speedup: %.1fx%n", (double) scalarNanos / wordNanos);
+    }
+
+    // functions with long block comments, deeply indented bodies and trailing line comments
+    private static String program(int approximateBytes) {
+        StringBuilder source = new StringBuilder(approximateBytes + 1024);
+        String indent = " ".repeat(16);
+        for (int i = 0; source.length() < approximateBytes; i++) {
+            source.append("/*\n");
+            for (int line = 0; line < 8; line++)
+                source.append(" * Computes the running total for entry ").append(i).append(" of the nightly table, see the notes above.\n");
+            source.append(" */\n");
+            source.append("fn total").append(i).append("(int x): int {\n");
+            for (int line = 0; line < 4; line++)
+                source.append(indent).append("x = x + ").append(line).append(";").append(" ".repeat(24)).append("// adjust for column ").append(line).append("\n");
+            source.append(indent).append("return x;\n}\n\n");
+        }
+        return source.toString();
+    }
+}
@@ -0,0 +1,44 @@
+package com.piedpiper.swerve.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.piedpiper.swerve.lexer.Lexer;
+import com.piedpiper.swerve.lexer.Token;
+import com.piedpiper.swerve.parser.Parser;
+
+/**
+ * Parsing throughput (tokens/ms) on expression heavy input
+ */
+public class ExpressionParserBenchmark {
+    public static void main(String[] args) {
+        int statements = Integer.getInteger("swerve.bench.statements", 50000);
+        List<Token> tokens = new Lexer().lex(program(statements));
+
+        long nanos = Measurement.bestOf(2, 5, () -> new Parser(tokens).parse());
+
+        System.out.printf("expression parser: %d statements, %d tokens%n", statements, tokens.size());
+        System.out.printf("  %8.1f ms %8.0f tokens/ms%n", Measurement.millis(nanos), tokens.size() / Measurement.millis(nanos));
+    }
+
+    // assignments mixing every precedence level, with parentheses, calls and array accesses as operands
+    private static List<String> program(int statements) {
+        List<String> lines = new ArrayList<>(statements);
+        for (int i = 0; i < statements; i++) {
+            switch (i % 4) {
+                case 0:
+                    lines.add("x = a + b * c - d / " + i + " % e ** 2 + (f - g) * h;");
+                    break;
+                case 1:
+                    lines.add("ok = a < b && c + " + i + " >= d * e || !done && f(a, b + 1) != g[i - 1];");
+                    break;
+                case 2:
+                    lines.add("y = ((a + 1) * (b - 2) + c ** d ** 2) / (e % " + i + " + 1) - -f;");
+                    break;
+                default:
+                    lines.add("z = a ^ b & c + d - e + f - g + h * " + i + " * j / k;");
+            }
+        }
+        return lines;
+    }
+}
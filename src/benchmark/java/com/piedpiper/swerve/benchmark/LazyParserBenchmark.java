@@ -0,0 +1,45 @@
+package com.piedpiper.swerve.benchmark;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import com.piedpiper.swerve.lexer.Lexer;
+import com.piedpiper.swerve.lexer.Token;
+import com.piedpiper.swerve.parser.AbstractSyntaxTree;
+import com.piedpiper.swerve.parser.NodeKind;
+import com.piedpiper.swerve.parser.Parser;
+
+/**
+ * Signature only pass (function names and parameter counts) over a large program: a full parse against one that leaves the bodies unparsed
+ */
+public class LazyParserBenchmark {
+    public static void main(String[] args) {
+        int megabytes = Integer.getInteger("swerve.bench.mb", 8);
+        ByteBuffer source = ByteBuffer.wrap(String.join("\n", SourceGenerator.program(megabytes * 1024 * 1024)).getBytes(StandardCharsets.UTF_8));
+        List<Token> tokens = new Lexer().lex(source);
+        int[] parameters = new int[2];
+
+        long eagerNanos = Measurement.bestOf(2, 5, () -> parameters[0] = signatures(new Parser(tokens).parse()));
+        long lazyNanos = Measurement.bestOf(2, 5, () -> parameters[1] = signatures(Parser.parseLazily(tokens)));
+
+        System.out.printf("lazy parser: %d MB, %d tokens, %d parameters%n", megabytes, tokens.size(), parameters[0]);
+        System.out.printf("  full parse:   %8.1f ms%n", Measurement.millis(eagerNanos));
+        System.out.printf("  lazy bodies:  %8.1f ms (%d parameters)%n", Measurement.millis(lazyNanos), parameters[1]);
+        System.out.printf("  speedup: %.1fx%n", (double) eagerNanos / lazyNanos);
+    }
+
+    // what an outline needs: the parameters of every function, without looking at the bodies
+    private static int signatures(AbstractSyntaxTree program) {
+        int parameters = 0;
+        for (AbstractSyntaxTree definition : program.getChildren()) {
+            if (!definition.matchesKind(NodeKind.FUNCTION) && !definition.matchesKind(NodeKind.PROTOTYPE))
+                continue;
+            for (AbstractSyntaxTree detail : definition.getChildren()) {
+                if (detail.matchesKind(NodeKind.FUNC_PARAMS))
+                    parameters += detail.getChildren().size();
+            }
+        }
+        return parameters;
+    }
+}
@@ -0,0 +1,22 @@
+package com.piedpiper.swerve.benchmark;
+
+import java.util.List;
+
+import com.piedpiper.swerve.lexer.Lexer;
+
+/**
+ * Lexing throughput (MB/s) of Lexer.lex on a generated program
+ */
+public class LexerBenchmark {
+    public static void main(String[] args) {
+        int megabytes = Integer.getInteger("swerve.bench.mb", 2);
+        List<String> source = SourceGenerator.program(megabytes * 1024 * 1024);
+        int bytes = SourceGenerator.sizeInBytes(source);
+
+        int[] tokenCount = new int[1];
+        long nanos = Measurement.bestOf(2, 5, () -> tokenCount[0] = new Lexer().lex(source).size());
+
+        System.out.printf("lexer: %d lines, %.1f MB, %d tokens%n", source.size(), bytes / (1024.0 * 1024.0), tokenCount[0]);
+        System.out.printf("  %8.1f ms %8.1f MB/s%n", Measurement.millis(nanos), Measurement.megabytesPerSecond(bytes, nanos));
+    }
+}
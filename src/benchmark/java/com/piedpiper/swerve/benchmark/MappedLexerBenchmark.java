@@ -0,0 +1,66 @@
+package com.piedpiper.swerve.benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import com.piedpiper.swerve.lexer.Lexer;
+import com.piedpiper.swerve.lexer.TokenStream;
+
+/**
+ * File to tokens throughput (MB/s): readAllLines + Lexer.lex(lines) against memory mapped byte-level lexing
+ */
+public class MappedLexerBenchmark {
+    public static void main(String[] args) {
+        int megabytes = Integer.getInteger("swerve.bench.mb", 50);
+        try {
+            Path file = Files.createTempFile("swerve-bench", ".swrv");
+            try {
+                Files.write(file, SourceGenerator.program(megabytes * 1024 * 1024));
+                run(file);
+            } finally {
+                Files.delete(file);
+            }
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    private static void run(Path file) throws IOException {
+        long bytes = Files.size(file);
+        int[] tokenCounts = new int[2];
+        long lineNanos = Measurement.bestOf(1, 3, () -> tokenCounts[0] = lexLines(file));
+        long mappedNanos = Measurement.bestOf(1, 3, () -> tokenCounts[1] = lexMapped(file));
+
+        System.out.printf("mapped lexer: %.1f MB, %d tokens%n", bytes / (1024.0 * 1024.0), tokenCounts[0]);
+        System.out.printf("  readAllLines + lex: %8.1f ms %8.1f MB/s%n", Measurement.millis(lineNanos), Measurement.megabytesPerSecond(bytes, lineNanos));
+        System.out.printf("  mapped bytes:       %8.1f ms %8.1f MB/s (%d tokens)%n", Measurement.millis(mappedNanos), Measurement.megabytesPerSecond(bytes, mappedNanos), tokenCounts[1]);
+        System.out.printf("  speedup: %.1fx%n", (double) lineNanos / mappedNanos);
+    }
+
+    private static int lexLines(Path file) {
+        try {
+            List<String> lines = Files.readAllLines(file);
+            return new Lexer().lex(lines).size();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    private static int lexMapped(Path file) {
+        try (FileChannel channel = FileChannel.open(file)) {
+            TokenStream tokens = Lexer.map(channel);
+            int count = 0;
+            while (tokens.peek(0) != null) {
+                tokens.advance();
+                count++;
+            }
+            return count;
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.piedpiper.swerve.benchmark;
+
+/**
+ * Minimal timing helper: warm up, then keep the fastest run to reduce noise from GC and JIT
+ */
+final class Measurement {
+    private Measurement() {}
+
+    static long bestOf(int warmups, int runs, Runnable body) {
+        for (int i = 0; i < warmups; i++)
+            body.run();
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            body.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    static double megabytesPerSecond(long bytes, long nanos) {
+        return (bytes / (1024.0 * 1024.0)) / (nanos / 1e9);
+    }
+
+    static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    // rough retained heap after a full collection; good enough to compare representations
+    static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
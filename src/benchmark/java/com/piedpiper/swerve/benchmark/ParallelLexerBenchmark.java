@@ -0,0 +1,26 @@
+package com.piedpiper.swerve.benchmark;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
+
+import com.piedpiper.swerve.lexer.Lexer;
+
+/**
+ * Bytes to token buffer throughput (MB/s): one sequential lexer against chunks lexed on the common ForkJoinPool
+ */
+public class ParallelLexerBenchmark {
+    public static void main(String[] args) {
+        int megabytes = Integer.getInteger("swerve.bench.mb", 50);
+        ByteBuffer source = ByteBuffer.wrap(String.join("\n", SourceGenerator.program(megabytes * 1024 * 1024)).getBytes(StandardCharsets.UTF_8));
+        long bytes = source.remaining();
+        int[] tokenCounts = new int[2];
+        long sequentialNanos = Measurement.bestOf(1, 3, () -> tokenCounts[0] = Lexer.lexToBuffer(source.duplicate()).size());
+        long parallelNanos = Measurement.bestOf(1, 3, () -> tokenCounts[1] = Lexer.lexParallel(source.duplicate()).size());
+
+        System.out.printf("parallel lexer: %.1f MB, %d tokens, %d workers%n", bytes / (1024.0 * 1024.0), tokenCounts[0], ForkJoinPool.getCommonPoolParallelism());
+        System.out.printf("  sequential: %8.1f ms %8.1f MB/s%n", Measurement.millis(sequentialNanos), Measurement.megabytesPerSecond(bytes, sequentialNanos));
+        System.out.printf("  parallel:   %8.1f ms %8.1f MB/s (%d tokens)%n", Measurement.millis(parallelNanos), Measurement.megabytesPerSecond(bytes, parallelNanos), tokenCounts[1]);
+        System.out.printf("  speedup: %.1fx%n", (double) sequentialNanos / parallelNanos);
+    }
+}
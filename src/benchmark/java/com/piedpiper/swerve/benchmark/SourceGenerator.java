@@ -0,0 +1,68 @@
+package com.piedpiper.swerve.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates synthetic, valid Swerve programs so the benchmarks don't depend on files outside the repo
+ */
+final class SourceGenerator {
+    private SourceGenerator() {}
+
+    /**
+     * A program made of lookup tables and small numeric functions (with comments and strings mixed in)
+     * @param approximateBytes size to grow the program to
+     * @return the program line by line
+     */
+    static List<String> program(int approximateBytes) {
+        List<String> lines = new ArrayList<>();
+        int size = 0;
+        int i = 0;
+        while (size < approximateBytes) {
+            for (String line : function(i)) {
+                lines.add(line);
+                size += line.length() + 1;
+            }
+            i++;
+        }
+        lines.add("fn main() {}");
+        return lines;
+    }
+
+    private static List<String> function(int i) {
+        StringBuilder table = new StringBuilder("const Array<int> table" + i + " = {");
+        for (int j = 0; j < 16; j++) {
+            table.append(j * i % 97);
+            if (j < 15)
+                table.append(", ");
+        }
+        table.append("};");
+        return List.of(
+            table.toString(),
+            "",
+            "// helper number " + i,
+            "fn helper" + i + "(int x, double y): double {",
+            "    /* accumulate a value that depends on both parameters */",
+            "    double total = 0.0;",
+            "    for (int j = 0; j < x; j++) {",
+            "        if (j % 2 == 0 && total < 1000.5) {",
+            "            total += y * j + " + i + ";",
+            "        }",
+            "        else {",
+            "            total -= toDouble(j) / 3;",
+            "        }",
+            "    }",
+            "    string label = \"helper " + i + "\";",
+            "    return total;",
+            "}",
+            ""
+        );
+    }
+
+    static int sizeInBytes(List<String> lines) {
+        int size = 0;
+        for (String line : lines)
+            size += line.length() + 1;
+        return size;
+    }
+}
@@ -0,0 +1,46 @@
+package com.piedpiper.swerve.benchmark;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.piedpiper.swerve.lexer.Lexer;
+import com.piedpiper.swerve.lexer.Token;
+import com.piedpiper.swerve.lexer.TokenBuffer;
+
+/**
+ * Heap retained by lexing a program that embeds a large JSON payload as a multi-line string:
+ * lexed line by line against lexed into a TokenBuffer that keeps the literal as a span of the source
+ */
+public class StringLiteralBenchmark {
+    public static void main(String[] args) {
+        int megabytes = Integer.getInteger("swerve.bench.mb", 10);
+        List<String> lines = new ArrayList<>();
+        lines.add("string payload = /\"[");
+        long size = 0;
+        for (int i = 0; size < megabytes * 1024L * 1024L; i++) {
+            String line = "  {\"id\": " + i + ", \"name\": \"item " + i + "\", \"tags\": [\"a\", \"b\"]},";
+            lines.add(line);
+            size += line.length() + 1;
+        }
+        lines.add("]\"/;");
+        byte[] source = String.join("\n", lines).getBytes(StandardCharsets.UTF_8);
+
+        long baseline = Measurement.usedHeap();
+        List<Token> tokens = new Lexer().lex(lines);
+        long lineBytes = Measurement.usedHeap() - baseline;
+        int count = tokens.size();
+        tokens = null;
+
+        baseline = Measurement.usedHeap();
+        TokenBuffer buffer = Lexer.lexToBuffer(ByteBuffer.wrap(source));
+        long bufferBytes = Measurement.usedHeap() - baseline;
+        long nanos = Measurement.bestOf(1, 3, () -> Lexer.lexToBuffer(ByteBuffer.wrap(source)));
+
+        // lines and source are used down here so neither is collected between the measurements
+        System.out.printf("string literal: %.1f MB literal on %d lines, %d tokens%n", source.length / (1024.0 * 1024.0), lines.size(), count);
+        System.out.printf("  lex(lines):   %8.1f MB retained%n", lineBytes / (1024.0 * 1024.0));
+        System.out.printf("  lexToBuffer:  %8.3f MB retained (%d tokens), %.1f ms%n", bufferBytes / (1024.0 * 1024.0), buffer.size(), Measurement.millis(nanos));
+    }
+}
@@ -0,0 +1,64 @@
+package com.piedpiper.swerve.benchmark;
+
+import com.piedpiper.swerve.lexer.AtomTable;
+import com.piedpiper.swerve.semantic.EntityType;
+import com.piedpiper.swerve.semantic.NodeType;
+import com.piedpiper.swerve.symboltable.Symbol;
+import com.piedpiper.swerve.symboltable.SymbolTable;
+
+/**
+ * Defining and resolving variables in deeply nested scopes. Every scope defines names of its own and names that shadow the ones around it,
+ * then has a loop body that shadows those again before it is left, and then looks up its own names
+ * and as many of the outermost scope's, the way statements after the loop would refer back to them
+ */
+public class SymbolTableBenchmark {
+    private static final EntityType INT = EntityType.of(NodeType.INT);
+
+    public static void main(String[] args) {
+        int scopes = Integer.getInteger("swerve.bench.scopes", 100);
+        int locals = Integer.getInteger("swerve.bench.locals", 10000);
+        // half the locals of a level are in its block and half in its loop body
+        int perBlock = locals / scopes / 2;
+        AtomTable atoms = new AtomTable();
+        int[][] names = new int[scopes][perBlock];
+        int[] loopNames = new int[perBlock];
+        for (int local = 0; local < perBlock; local++) {
+            loopNames[local] = atoms.intern("shared" + local);
+            for (int scope = 0; scope < scopes; scope++)
+                names[scope][local] = local % 2 == 0 ? loopNames[local] : atoms.intern("local" + scope + "_" + local);
+        }
+
+        long nanos = Measurement.bestOf(1, 3, () -> defineAndResolve(atoms, names, loopNames));
+
+        System.out.printf("symbol table, %d locals in %d nested scopes:%n", 2 * perBlock * scopes, scopes);
+        System.out.printf("  %10.1f ms%n", Measurement.millis(nanos));
+    }
+
+    // sum of the scopes of the symbols found, so the lookups can't be optimized away
+    private static long defineAndResolve(AtomTable atoms, int[][] names, int[] loopNames) {
+        SymbolTable table = new SymbolTable(atoms);
+        long found = 0;
+        for (int[] blockNames : names) {
+            int scope = table.enterScope();
+            for (int name : blockNames)
+                table.insert(symbol(atoms, name, scope));
+            int loop = table.enterScope();
+            for (int name : loopNames)
+                table.insert(symbol(atoms, name, loop));
+            table.leaveScope();
+            for (int local = 0; local < blockNames.length; local++) {
+                for (int i = 0; i <= local; i++)
+                    found += table.lookup(blockNames[i]).getScope() + table.lookup(names[0][i]).getScope();
+            }
+        }
+        for (int scope = 0; scope < names.length; scope++)
+            table.leaveScope();
+        return found;
+    }
+
+    private static Symbol symbol(AtomTable atoms, int atom, int scope) {
+        Symbol symbol = new Symbol(atoms.name(atom), INT, scope);
+        symbol.setAtom(atom);
+        return symbol;
+    }
+}
@@ -0,0 +1,59 @@
+package com.piedpiper.swerve.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import com.piedpiper.swerve.lexer.Lexer;
+import com.piedpiper.swerve.lexer.Token;
+import com.piedpiper.swerve.lexer.TokenBuffer;
+import com.piedpiper.swerve.lexer.TokenStream;
+
+/**
+ * Retained heap of a fully lexed program: one StaticToken/VariableToken object per token against the TokenBuffer arrays.
+ * Also the garbage a streamed lex makes per token when it is consumed the way the parser does, looking two tokens ahead
+ */
+public class TokenFootprintBenchmark {
+    public static void main(String[] args) {
+        int megabytes = Integer.getInteger("swerve.bench.mb", 20);
+        byte[] source = String.join("\n", SourceGenerator.program(megabytes * 1024 * 1024)).getBytes(StandardCharsets.UTF_8);
+
+        long baseline = Measurement.usedHeap();
+        List<Token> tokens = new Lexer().lex(ByteBuffer.wrap(source));
+        long objectBytes = Measurement.usedHeap() - baseline;
+        int count = tokens.size();
+        tokens = null;
+
+        baseline = Measurement.usedHeap();
+        TokenBuffer buffer = Lexer.lexToBuffer(ByteBuffer.wrap(source));
+        long bufferBytes = Measurement.usedHeap() - baseline;
+
+        System.out.printf("token footprint: %.1f MB source, %d tokens%n", source.length / (1024.0 * 1024.0), count);
+        System.out.printf("  token objects: %8.1f MB %6.1f bytes/token%n", objectBytes / (1024.0 * 1024.0), (double) objectBytes / count);
+        System.out.printf("  token buffer:  %8.1f MB %6.1f bytes/token (%d tokens)%n", bufferBytes / (1024.0 * 1024.0), (double) bufferBytes / buffer.size(), buffer.size());
+        System.out.printf("  reduction: %.1fx%n", (double) objectBytes / bufferBytes);
+
+        streamed(ByteBuffer.wrap(source));
+        long allocated = allocatedBytes();
+        int streamedCount = streamed(ByteBuffer.wrap(source));
+        allocated = allocatedBytes() - allocated;
+        System.out.printf("  allocated while streaming: %6.1f bytes/token%n", (double) allocated / streamedCount);
+    }
+
+    // peeks at the current and the next token after every advance like Parser.move(); returns the number of tokens
+    private static int streamed(ByteBuffer source) {
+        TokenStream stream = Lexer.stream(source);
+        int count = 0;
+        while (stream.peek(0) != null) {
+            stream.peek(1);
+            stream.advance();
+            count++;
+        }
+        return count;
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+}
@@ -1,10 +1,16 @@
 package com.piedpiper.swerve;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
 import com.piedpiper.swerve.error.ReferenceError;
 import com.piedpiper.swerve.error.SourceCodeError;
 import com.piedpiper.swerve.error.SyntaxError;
 import com.piedpiper.swerve.error.TypeError;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
@@ -29,10 +35,33 @@ class TestApp {
         assertDoesNotThrow(() -> App.main(args));
     }
 
+    @ParameterizedTest
+    @ValueSource(strings = {"--emit=none", "--emit=tokens", "--emit=ast", "--emit=ast-json"})
+    void testEmitOptions(String emit) {
+        String[] args = new String[]{emit, "examples/valid.swrv"};
+        assertDoesNotThrow(() -> App.main(args));
+    }
+
+    @Test
+    void testParseCache(@TempDir Path cache) throws IOException {
+        String[] args = new String[]{"--emit=none", "--parse-cache=" + cache, "examples/valid.swrv"};
+        assertDoesNotThrow(() -> App.main(args));
+        try (Stream<Path> entries = Files.list(cache)) {
+            assertEquals(1, entries.count());
+        }
+        // the second run analyzes the cached tree
+        assertDoesNotThrow(() -> App.main(args));
+
+        String[] invalid = new String[]{"--emit=none", "--parse-cache=" + cache, "src/integration/resources/invalid/loop_scope.swrv"};
+        for (int run = 0; run < 2; run++)
+            assertError(invalid, ReferenceError.class, "Variable 'y' used before being defined in current scope", 11);
+    }
+
     @Test
     void testInvalidProgram() {
         String[] args = new String[]{"examples/invalid.swrv"};
-        assertError(args, SyntaxError.class, "Found invalid number '0..5'", 16);
+        // tokens are lexed on demand so the first error in the file is reported
+        assertError(args, SyntaxError.class, "Expected TYPE but got ID ('arr')", 6);
     }
 
     @Test
@@ -1,42 +1,107 @@
 package com.piedpiper.swerve;
 
+import java.io.BufferedWriter;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.AccessDeniedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import com.piedpiper.swerve.error.CompilerError;
+import com.piedpiper.swerve.error.SyntaxError;
+import com.piedpiper.swerve.lexer.AtomTable;
 import com.piedpiper.swerve.lexer.Lexer;
 import com.piedpiper.swerve.lexer.Token;
+import com.piedpiper.swerve.lexer.TokenStream;
 import com.piedpiper.swerve.parser.AbstractSyntaxTree;
+import com.piedpiper.swerve.parser.AstWriter;
+import com.piedpiper.swerve.parser.ParseCache;
 import com.piedpiper.swerve.parser.Parser;
 import com.piedpiper.swerve.semantic.SemanticAnalyzer;
 
 public class App {
+    // past this size the source is memory mapped and lexed as bytes instead of being decoded line by line
+    private static final long MAPPED_LEXING_THRESHOLD = 1024 * 1024;
+    // past this size chunks of the mapped source are lexed in parallel when there is more than one core
+    private static final long PARALLEL_LEXING_THRESHOLD = 16 * 1024 * 1024;
+    private static final String EMIT_OPTION = "--emit=";
+    private static final String PARSE_CACHE_OPTION = "--parse-cache=";
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+    // what is dumped to stdout while compiling; NONE skips every bit of diagnostic output
+    private enum Emit {
+        NONE,
+        TOKENS,
+        AST,
+        AST_JSON
+    }
+
     public static void main(String[] args) {
-        if (args.length < 1) {
+        String path = null;
+        Emit emit = Emit.AST;
+        ParseCache cache = null;
+        for (String arg : args) {
+            if (arg.startsWith(PARSE_CACHE_OPTION)) {
+                cache = new ParseCache(Paths.get(arg.substring(PARSE_CACHE_OPTION.length())));
+                continue;
+            }
+            if (!arg.startsWith(EMIT_OPTION)) {
+                path = arg;
+                continue;
+            }
+            try {
+                emit = Emit.valueOf(arg.substring(EMIT_OPTION.length()).replace('-', '_').toUpperCase());
+            } catch (IllegalArgumentException exception) {
+                System.out.println("Unknown option '" + arg + "', expected --emit=none|tokens|ast|ast-json");
+                System.exit(1);
+            }
+        }
+        if (path == null) {
             System.out.println("A file path is required");
             System.exit(1);
         }
-        Path filePath = Paths.get(args[0]).toAbsolutePath();
+        Path filePath = Paths.get(path).toAbsolutePath();
+        // stdout is only wrapped when something is emitted, and never closed
+        Writer out = emit == Emit.NONE ? null : new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), OUTPUT_BUFFER_SIZE);
         try {
             if (Files.exists(filePath)) {
-  
-                    List<String> lines = Files.readAllLines(filePath);
-                    if (lines.isEmpty())
-                        throw new CompilerError("Cannot compile empty file.");
-                    Lexer lexer = new Lexer();
-                    List<Token> tokens = lexer.lex(lines);
-                    lexer.printTokens();
-                    System.out.println("Number of tokens: " + tokens.size());
-                    Parser parser = new Parser(tokens);
-                    AbstractSyntaxTree ast = parser.parse();
-                    System.out.println(ast);
-                    SemanticAnalyzer sa = new SemanticAnalyzer();
-                    sa.analyze(ast);
+                AbstractSyntaxTree ast;
+                // identifiers are interned once and resolved by atom in the symbol table
+                AtomTable atoms = new AtomTable();
+                // tokens are lexed as the parser asks for them instead of being collected up front
+                try (FileChannel channel = FileChannel.open(filePath)) {
+                    String key = cache == null ? null : ParseCache.key(channel);
+                    // an unchanged file skips lexing and parsing, unless its tokens are to be dumped
+                    ast = key == null || emit == Emit.TOKENS ? null : cache.get(key, atoms);
+                    if (ast == null) {
+                        ast = parse(channel, atoms, emit == Emit.TOKENS ? out : null);
+                        if (key != null)
+                            store(cache, key, ast);
+                    }
+                    if (emit == Emit.AST)
+                        AstWriter.write(ast, out);
+                    else if (emit == Emit.AST_JSON)
+                        AstWriter.writeJson(ast, out);
+                    if (emit == Emit.AST || emit == Emit.AST_JSON)
+                        out.write('\n');
+                } catch (UncheckedIOException exception) {
+                    throw exception.getCause();
+                } finally {
+                    // tokens written before a syntax error still show up
+                    if (out != null)
+                        out.flush();
+                }
+                SemanticAnalyzer sa = new SemanticAnalyzer(atoms);
+                sa.analyze(ast);
             }
             else {
                 throw new FileNotFoundException("Could not find file '" + filePath + "'");
@@ -53,4 +118,46 @@ public class App {
             System.exit(2);
         } 
     }
+
+    private static AbstractSyntaxTree parse(FileChannel channel, AtomTable atoms, Writer tokenOut) throws IOException {
+        TokenStream tokens;
+        List<Token> lexed = null;
+        if (channel.size() >= PARALLEL_LEXING_THRESHOLD && ForkJoinPool.getCommonPoolParallelism() > 1) {
+            lexed = Lexer.mapParallel(channel, atoms);
+            tokens = TokenStream.of(lexed);
+        }
+        else if (channel.size() >= MAPPED_LEXING_THRESHOLD)
+            tokens = Lexer.map(channel, atoms);
+        else
+            tokens = Lexer.stream(channel, atoms);
+        if (tokens.peek(0) == null)
+            throw new CompilerError("Cannot compile empty file.");
+        // every syntax error of the file is reported, the first one is thrown like before, with a stack trace from here
+        List<SyntaxError> errors = new ArrayList<>();
+        AbstractSyntaxTree ast;
+        // a file that was lexed in parallel has its definitions parsed in parallel too, unless its tokens are dumped in order
+        if (lexed != null && tokenOut == null)
+            ast = Parser.parseParallel(lexed, errors);
+        else {
+            if (tokenOut != null)
+                tokens = TokenStream.writing(tokens, tokenOut);
+            ast = new Parser(tokens).parse(errors);
+        }
+        if (errors.size() > 1) {
+            System.out.println(errors.size() + " syntax errors:");
+            errors.forEach(error -> System.out.println(error.getMessage()));
+        }
+        if (!errors.isEmpty())
+            throw new SyntaxError(errors.get(0));
+        return ast;
+    }
+
+    // the cache only saves time, so failing to write it doesn't fail the compile
+    private static void store(ParseCache cache, String key, AbstractSyntaxTree ast) {
+        try {
+            cache.put(key, ast);
+        } catch (IOException exception) {
+            System.err.println("Could not write parse cache entry: " + exception.getMessage());
+        }
+    }
 }
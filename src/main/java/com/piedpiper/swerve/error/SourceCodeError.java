@@ -20,4 +20,11 @@ public abstract class SourceCodeError extends RuntimeException {
         this.lineNumber = lineNumber;
         this.message = lineNumber != 0 ? "Line " + lineNumber + "\n\t" + message : message;
     }
+
+    // for errors that are collected rather than thrown to the top, where filling in the stack trace is most of their cost
+    protected SourceCodeError(String message, Integer lineNumber, boolean writableStackTrace) {
+        super(null, null, false, writableStackTrace);
+        this.lineNumber = lineNumber;
+        this.message = lineNumber != 0 ? "Line " + lineNumber + "\n\t" + message : message;
+    }
 }
@@ -13,4 +13,14 @@ public class SyntaxError extends SourceCodeError {
     public SyntaxError(String message, int lineNumber) {
         super(message, lineNumber);
     }
+
+    // a collected error as one with its own stack trace, to throw from where the errors are looked at
+    public SyntaxError(SyntaxError error) {
+        super(error.getMessage());
+        this.lineNumber = error.getLineNumber();
+    }
+
+    protected SyntaxError(String message, int lineNumber, boolean writableStackTrace) {
+        super(message, lineNumber, writableStackTrace);
+    }
 }
@@ -0,0 +1,105 @@
+package com.piedpiper.swerve.lexer;
+
+import java.util.Arrays;
+
+/**
+ * Per-compilation table of identifier names, each interned once into a dense int atom.
+ * Share one table between the lexer and the symbol table so atoms carried by tokens and AST nodes can be used directly
+ */
+public final class AtomTable {
+    public static final int NO_ATOM = -1;
+
+    private String[] names = new String[256];
+    private int[] hashes = new int[256];
+    private int size = 0;
+    // open addressing: atom + 1 per slot, 0 for an empty slot
+    private int[] slots = new int[512];
+
+    public int size() {
+        return size;
+    }
+
+    public String name(int atom) {
+        return names[atom];
+    }
+
+    public int intern(String name) {
+        return intern(name, 0, name.length());
+    }
+
+    public int intern(CharSequence text, int start, int end) {
+        int hash = hash(text, start, end);
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        while (slots[slot] != 0) {
+            int atom = slots[slot] - 1;
+            if (hashes[atom] == hash && matches(names[atom], text, start, end))
+                return atom;
+            slot = (slot + 1) & mask;
+        }
+        return add(Lexer.slice(text, start, end), hash, slot);
+    }
+
+    // atom of an already interned name or NO_ATOM, without adding it
+    public int find(String name) {
+        int hash = name.hashCode();
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+            int atom = slots[slot] - 1;
+            if (hashes[atom] == hash && names[atom].equals(name))
+                return atom;
+        }
+        return NO_ATOM;
+    }
+
+    // trust an atom carried along with its name if it belongs to this table, otherwise look the name up
+    public int resolve(int atom, String name) {
+        if (atom >= 0 && atom < size && names[atom].equals(name))
+            return atom;
+        return find(name);
+    }
+
+    private int add(String name, int hash, int slot) {
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        int atom = size++;
+        names[atom] = name;
+        hashes[atom] = hash;
+        slots[slot] = atom + 1;
+        // keep the load factor at or below one half
+        if (size * 2 > slots.length)
+            rehash();
+        return atom;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int atom = 0; atom < size; atom++) {
+            int slot = hashes[atom] & mask;
+            while (slots[slot] != 0)
+                slot = (slot + 1) & mask;
+            slots[slot] = atom + 1;
+        }
+    }
+
+    // same as String.hashCode so find() can use the cached hash of a String
+    private static int hash(CharSequence text, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++)
+            hash = 31 * hash + text.charAt(i);
+        return hash;
+    }
+
+    private static boolean matches(String name, CharSequence text, int start, int end) {
+        if (name.length() != end - start)
+            return false;
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) != text.charAt(start + i))
+                return false;
+        }
+        return true;
+    }
+}
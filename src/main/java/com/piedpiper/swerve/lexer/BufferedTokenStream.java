@@ -0,0 +1,64 @@
+package com.piedpiper.swerve.lexer;
+
+import java.util.Arrays;
+
+/**
+ * Token stream over a buffer that a lexer fills on demand.
+ * Consumed tokens are dropped so only the lookahead window stays in memory.
+ * The tokens handed out are cursors reading through to the buffer, kept per lookahead slot: peeking a token again
+ * returns the same cursor, and the cursor of a token further back than the one just consumed is pointed at the next token
+ * its slot is peeked for. So a token peeked from the stream is only valid while it is the current one, the one just consumed
+ * or ahead of them; copy it (withLineNumber) to keep it longer. Streaming through tokens doesn't allocate a cursor per token
+ */
+abstract class BufferedTokenStream implements TokenStream {
+    // drop consumed tokens from the front of the buffer once this many have piled up
+    private static final int COMPACT_THRESHOLD = 4096;
+    private static final int WINDOW = 16;
+
+    protected final TokenBuffer buffer;
+    private int head = 0;
+    // tokens dropped from the front of the buffer so far
+    private int discarded = 0;
+    // cursors by absolute position modulo WINDOW
+    private final Token[] cursors = new Token[WINDOW];
+    private final int[] cursorPositions = new int[WINDOW];
+
+    protected BufferedTokenStream(CharSequence source) {
+        buffer = new TokenBuffer(source);
+        Arrays.fill(cursorPositions, -1);
+    }
+
+    // lex more of the input into the buffer, false once the input is exhausted
+    protected abstract boolean fill();
+
+    @Override
+    public Token peek(int offset) {
+        while (head + offset >= buffer.size()) {
+            if (!fill())
+                return null;
+        }
+        int position = discarded + head + offset;
+        int slot = position & (WINDOW - 1);
+        if (cursorPositions[slot] != position) {
+            if (cursors[slot] != null && cursorPositions[slot] < discarded + head - 1)
+                buffer.moveCursor(cursors[slot], head + offset);
+            else
+                cursors[slot] = buffer.get(head + offset);
+            cursorPositions[slot] = position;
+        }
+        return cursors[slot];
+    }
+
+    @Override
+    public void advance() {
+        if (peek(0) == null)
+            return;
+        head++;
+        // keep the token just consumed, the parser still holds on to it at EOF
+        if (head > COMPACT_THRESHOLD) {
+            buffer.discard(head - 1);
+            discarded += head - 1;
+            head = 1;
+        }
+    }
+}
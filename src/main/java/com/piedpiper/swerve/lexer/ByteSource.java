@@ -0,0 +1,108 @@
+package com.piedpiper.swerve.lexer;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * UTF-8 encoded source viewed as one char per byte.
+ * ASCII is scanned as is; bytes of multi-byte sequences show up as chars >= 128,
+ * which the lexer only accepts inside strings and comments, and get decoded by decode().
+ * The scans the lexer spends most of its time in on blank and commented out text read 8 bytes at a time
+ */
+final class ByteSource implements CharSequence {
+    // set to compare against scanning one byte at a time
+    static final String SCALAR_SCAN_PROPERTY = "swerve.lexer.scalarScan";
+
+    private static final long ONES = 0x0101010101010101L;
+    private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    private final ByteBuffer bytes;
+    // the same bytes read as little endian words, so the first byte of a word is its lowest
+    private final ByteBuffer words;
+    private final boolean wordScan = !Boolean.getBoolean(SCALAR_SCAN_PROPERTY);
+
+    ByteSource(ByteBuffer bytes) {
+        this.bytes = bytes.slice();
+        this.words = this.bytes.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Override
+    public int length() {
+        return bytes.limit();
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (bytes.get(index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new ByteSource(bytes.slice(start, end - start));
+    }
+
+    // first index in [index, end) that isn't a space or a tab
+    int skipBlanks(int index, int end) {
+        if (wordScan) {
+            for (; index + Long.BYTES <= end; index += Long.BYTES) {
+                long word = words.getLong(index);
+                long other = ~(matches(word, ' ') | matches(word, '\t')) & HIGH_BITS;
+                if (other != 0)
+                    return index + (Long.numberOfTrailingZeros(other) >>> 3);
+            }
+        }
+        while (index < end && (bytes.get(index) == ' ' || bytes.get(index) == '\t'))
+            index++;
+        return index;
+    }
+
+    // first index in [index, end) of c, \n or \r; stopping at line breaks lets callers count lines
+    int indexOfOrLineBreak(int index, int end, char c) {
+        if (wordScan) {
+            for (; index + Long.BYTES <= end; index += Long.BYTES) {
+                long word = words.getLong(index);
+                long found = matches(word, c) | matches(word, '\n') | matches(word, '\r');
+                if (found != 0)
+                    return index + (Long.numberOfTrailingZeros(found) >>> 3);
+            }
+        }
+        for (; index < end; index++) {
+            byte b = bytes.get(index);
+            if (b == c || b == '\n' || b == '\r')
+                break;
+        }
+        return index;
+    }
+
+    // the high bit of every byte of word that equals c, and no other bits
+    private static long matches(long word, char c) {
+        long x = word ^ (ONES * c);
+        return ~(((x & LOW_BITS) + LOW_BITS) | x | LOW_BITS);
+    }
+
+    String decode(int start, int end) {
+        byte[] slice = new byte[end - start];
+        bytes.get(start, slice);
+        return new String(slice, StandardCharsets.UTF_8);
+    }
+
+    // the whole (possibly multi-byte) character starting at index, for error messages
+    String characterAt(int index) {
+        int lead = bytes.get(index) & 0xFF;
+        int length = 1;
+        if ((lead & 0xE0) == 0xC0)
+            length = 2;
+        else if ((lead & 0xF0) == 0xE0)
+            length = 3;
+        else if ((lead & 0xF8) == 0xF0)
+            length = 4;
+        return decode(index, Math.min(index + length, length()));
+    }
+
+    @Override
+    public String toString() {
+        return decode(0, length());
+    }
+}
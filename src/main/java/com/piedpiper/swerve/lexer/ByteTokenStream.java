@@ -0,0 +1,32 @@
+package com.piedpiper.swerve.lexer;
+
+/**
+ * Lexes a whole ByteSource in one pass, a batch of tokens at a time as the parser asks for them
+ */
+class ByteTokenStream extends BufferedTokenStream {
+    private static final int BATCH_SIZE = 1024;
+
+    private final ByteSource source;
+    private final Lexer lexer;
+    private int position = 0;
+    private boolean exhausted = false;
+
+    ByteTokenStream(ByteSource source, AtomTable atoms) {
+        super(source);
+        this.source = source;
+        lexer = new Lexer(buffer, atoms);
+    }
+
+    @Override
+    protected boolean fill() {
+        if (exhausted)
+            return false;
+        if (position == source.length()) {
+            exhausted = true;
+            lexer.checkEndOfInput();
+            return false;
+        }
+        position = lexer.analyze(source, position, source.length(), buffer.size() + BATCH_SIZE);
+        return true;
+    }
+}
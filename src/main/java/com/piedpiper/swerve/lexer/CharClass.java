@@ -0,0 +1,45 @@
+package com.piedpiper.swerve.lexer;
+
+/**
+ * Precomputed character classes for the lexer DFA.
+ * Every ASCII character maps to exactly one class; anything outside ASCII is OTHER
+ */
+final class CharClass {
+    static final int OTHER = 0;
+    static final int WHITESPACE = 1;
+    static final int DIGIT = 2;
+    static final int LETTER = 3;
+    static final int UNDERSCORE = 4;
+    static final int DOT = 5;
+    static final int OPERATOR = 6;
+    static final int QUOTE = 7;
+    static final int PUNCTUATION = 8;
+    static final int COUNT = 9;
+
+    private static final byte[] TABLE = new byte[128];
+
+    static {
+        // same set of characters as the regex \s
+        for (char c : " \t\n\u000B\f\r".toCharArray())
+            TABLE[c] = WHITESPACE;
+        for (char c = '0'; c <= '9'; c++)
+            TABLE[c] = DIGIT;
+        for (char c = 'a'; c <= 'z'; c++)
+            TABLE[c] = LETTER;
+        for (char c = 'A'; c <= 'Z'; c++)
+            TABLE[c] = LETTER;
+        TABLE['_'] = UNDERSCORE;
+        TABLE['.'] = DOT;
+        for (char c : "+-*/%!&^=?<>|".toCharArray())
+            TABLE[c] = OPERATOR;
+        TABLE['"'] = QUOTE;
+        for (char c : "{}()[];:,".toCharArray())
+            TABLE[c] = PUNCTUATION;
+    }
+
+    private CharClass() {}
+
+    static int of(char c) {
+        return c < 128 ? TABLE[c] : OTHER;
+    }
+}
@@ -0,0 +1,145 @@
+package com.piedpiper.swerve.lexer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps the tokens of a source up to date while its lines are edited, e.g. in an editor or watch mode.
+ * The lexer state at the start of every line is recorded. An edit is re-lexed line by line from the first changed line
+ * until the state at a line start agrees with the previous run again, and the new tokens are spliced into the buffer.
+ * Lines inside a multi-line string are never a resume point since the string value built so far isn't recorded
+ */
+public class IncrementalLexer {
+    private static final LexerState[] STATES = LexerState.values();
+
+    private final AtomTable atoms;
+    private final List<String> lines = new ArrayList<>();
+    private TokenBuffer tokens = new TokenBuffer(null);
+    // per line the lexer state at its start and the index of its first token; one more entry for the end of input
+    private int[] lineStates = new int[1];
+    private int[] lineTokens = new int[1];
+    // false after a lex error, when the recorded states no longer match the lines
+    private boolean valid = false;
+    private int relexedLines = 0;
+
+    public IncrementalLexer() {
+        this(new AtomTable());
+    }
+
+    public IncrementalLexer(AtomTable atoms) {
+        this.atoms = atoms;
+    }
+
+    public TokenBuffer lex(List<String> source) {
+        lines.clear();
+        lines.addAll(source);
+        return relexAll();
+    }
+
+    /*
+     * Replace removedLines lines starting at firstLine (numbered from 1 like tokens) with insertedLines.
+     * Returns the updated buffer; cursors handed out before the edit may point at different tokens afterwards
+     */
+    public TokenBuffer edit(int firstLine, int removedLines, List<String> insertedLines) {
+        int from = firstLine - 1;
+        if (from < 0 || removedLines < 0 || from + removedLines > lines.size())
+            throw new IndexOutOfBoundsException("Cannot replace lines " + firstLine + " to " + (from + removedLines) + " of " + lines.size());
+        List<String> region = lines.subList(from, from + removedLines);
+        region.clear();
+        region.addAll(insertedLines);
+        if (!valid)
+            return relexAll();
+
+        int delta = insertedLines.size() - removedLines;
+        int editEnd = from + insertedLines.size();
+        int start = from;
+        while (start > 0 && lineStates[start] == LexerState.IN_MULTILINE_STRING.ordinal())
+            start--;
+
+        TokenBuffer relexed = new TokenBuffer(null);
+        Lexer lexer = new Lexer(relexed, atoms);
+        lexer.resume(STATES[lineStates[start]], start + 1);
+        int[] newStates = new int[Math.max(16, editEnd - start + 1)];
+        int[] newTokens = new int[newStates.length];
+        int line = start;
+        valid = false;
+        for (; line < lines.size(); line++) {
+            int state = lexer.getState().ordinal();
+            // past the edit the old tokens are good again once a line starts in the same state
+            if (line >= editEnd && state == lineStates[line - delta] && state != LexerState.IN_MULTILINE_STRING.ordinal())
+                break;
+            if (line - start == newStates.length) {
+                newStates = Arrays.copyOf(newStates, newStates.length * 2);
+                newTokens = Arrays.copyOf(newTokens, newTokens.length * 2);
+            }
+            newStates[line - start] = state;
+            newTokens[line - start] = relexed.size();
+            lexer.analyzeLine(lines.get(line), line + 1);
+        }
+        relexedLines = line - start;
+        int oldLine = line - delta;
+        if (line == lines.size())
+            lexer.checkEndOfInput();
+
+        int firstToken = lineTokens[start];
+        int tokenDelta = relexed.size() - (lineTokens[oldLine] - firstToken);
+        tokens.replace(firstToken, lineTokens[oldLine], relexed);
+        tokens.shiftLines(firstToken + relexed.size(), delta);
+
+        int[] states = new int[lines.size() + 1];
+        int[] starts = new int[lines.size() + 1];
+        System.arraycopy(lineStates, 0, states, 0, start);
+        System.arraycopy(lineTokens, 0, starts, 0, start);
+        for (int i = start; i < line; i++) {
+            states[i] = newStates[i - start];
+            starts[i] = firstToken + newTokens[i - start];
+        }
+        if (line == lines.size()) {
+            states[line] = lexer.getState().ordinal();
+            starts[line] = tokens.size();
+        }
+        else {
+            for (int i = line; i <= lines.size(); i++) {
+                states[i] = lineStates[i - delta];
+                starts[i] = lineTokens[i - delta] + tokenDelta;
+            }
+        }
+        lineStates = states;
+        lineTokens = starts;
+        valid = true;
+        return tokens;
+    }
+
+    public TokenBuffer getTokens() {
+        return tokens;
+    }
+
+    public List<String> getLines() {
+        return lines;
+    }
+
+    // number of lines lexed by the last lex or edit
+    int getRelexedLines() {
+        return relexedLines;
+    }
+
+    private TokenBuffer relexAll() {
+        valid = false;
+        tokens = new TokenBuffer(null);
+        lineStates = new int[lines.size() + 1];
+        lineTokens = new int[lines.size() + 1];
+        Lexer lexer = new Lexer(tokens, atoms);
+        for (int line = 0; line < lines.size(); line++) {
+            lineStates[line] = lexer.getState().ordinal();
+            lineTokens[line] = tokens.size();
+            lexer.analyzeLine(lines.get(line), line + 1);
+        }
+        relexedLines = lines.size();
+        lexer.checkEndOfInput();
+        lineStates[lines.size()] = lexer.getState().ordinal();
+        lineTokens[lines.size()] = tokens.size();
+        valid = true;
+        return tokens;
+    }
+}
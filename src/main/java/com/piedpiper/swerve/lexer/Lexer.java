@@ -1,42 +1,167 @@
 package com.piedpiper.swerve.lexer;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 
+import com.piedpiper.swerve.error.CompilerError;
 import com.piedpiper.swerve.error.SyntaxError;
 
-import static java.util.Map.entry;
-
 public class Lexer {
     private LexerState state = LexerState.DEFAULT;
+    private int lineNumber = 1;
     private final List<Token> tokens;
-    private StringBuilder multiLineString = new StringBuilder();
-    private final Map<String, Token> reservedWords = Map.ofEntries(
-        entry("const", new StaticToken(TokenType.KW_CONST)),
-        entry("int", new StaticToken(TokenType.KW_INT)),
-        entry("double", new StaticToken(TokenType.KW_DOUBLE)),
-        entry("string", new StaticToken(TokenType.KW_STR)),
-        entry("boolean", new StaticToken(TokenType.KW_BOOL)),
-        entry("prototype", new StaticToken(TokenType.KW_PROTO)),
-        entry("generic", new StaticToken(TokenType.KW_GEN)),
-        entry("fn", new StaticToken(TokenType.KW_FN)),
-        entry("return", new StaticToken(TokenType.KW_RET)),
-        entry("for", new StaticToken(TokenType.KW_FOR)),
-        entry("if", new StaticToken(TokenType.KW_IF)),
-        entry("else", new StaticToken(TokenType.KW_ELSE)),
-        entry("while", new StaticToken(TokenType.KW_WHILE)),
-        entry("break", new StaticToken(TokenType.KW_BRK)),
-        entry("continue", new StaticToken(TokenType.KW_CNT)),
-        entry("true", new StaticToken(TokenType.KW_TRUE)),
-        entry("false", new StaticToken(TokenType.KW_FALSE)),
-        entry("Array", new StaticToken(TokenType.KW_ARR)),
-        entry("null", new StaticToken(TokenType.KW_NULL))
-    );
+    private final TokenSink sink;
+    private final AtomTable atoms;
+    private final StringBuilder multiLineString = new StringBuilder();
+    // where the open multi-line string starts in multiLineText; -1 once its value is being built in multiLineString
+    private int multiLineStart = -1;
+    private CharSequence multiLineText;
+
+    // Transitions of the token states: true if a character of the class continues the token
+    private static final boolean[][] CONTINUES = new boolean[LexerState.values().length][CharClass.COUNT];
+    // Operators indexed by the position of their characters in OPERATOR_CHARS
+    private static final String OPERATOR_CHARS = "+-*/%!&^=?<>|";
+    private static final int[] OPERATOR_INDEX = new int[128];
+    private static final OperatorKind[] SINGLE_OPERATORS = new OperatorKind[OPERATOR_CHARS.length()];
+    private static final OperatorKind[][] DOUBLE_OPERATORS = new OperatorKind[OPERATOR_CHARS.length()][OPERATOR_CHARS.length()];
+    private static final TokenType[] PUNCTUATION = new TokenType[128];
+
+    static {
+        CONTINUES[LexerState.IN_NUMBER.ordinal()][CharClass.DIGIT] = true;
+        CONTINUES[LexerState.IN_NUMBER.ordinal()][CharClass.DOT] = true;
+        CONTINUES[LexerState.IN_IDENTIFIER.ordinal()][CharClass.DIGIT] = true;
+        CONTINUES[LexerState.IN_IDENTIFIER.ordinal()][CharClass.LETTER] = true;
+        CONTINUES[LexerState.IN_IDENTIFIER.ordinal()][CharClass.UNDERSCORE] = true;
+
+        for (int i = 0; i < OPERATOR_CHARS.length(); i++)
+            OPERATOR_INDEX[OPERATOR_CHARS.charAt(i)] = i;
+        for (OperatorKind op : OperatorKind.values()) {
+            String symbol = op.getSymbol();
+            if (symbol.length() == 1)
+                SINGLE_OPERATORS[OPERATOR_INDEX[symbol.charAt(0)]] = op;
+            else
+                DOUBLE_OPERATORS[OPERATOR_INDEX[symbol.charAt(0)]][OPERATOR_INDEX[symbol.charAt(1)]] = op;
+        }
+
+        PUNCTUATION['{'] = TokenType.LEFT_CB;
+        PUNCTUATION['}'] = TokenType.RIGHT_CB;
+        PUNCTUATION['('] = TokenType.LEFT_PAREN;
+        PUNCTUATION[')'] = TokenType.RIGHT_PAREN;
+        PUNCTUATION['['] = TokenType.LEFT_SQB;
+        PUNCTUATION[']'] = TokenType.RIGHT_SQB;
+        PUNCTUATION[';'] = TokenType.SC;
+        PUNCTUATION[':'] = TokenType.COLON;
+        PUNCTUATION[','] = TokenType.COMMA;
+    }
 
     public Lexer() {
+        this(new AtomTable());
+    }
+
+    // identifiers are interned into the given table
+    public Lexer(AtomTable atoms) {
         tokens = new ArrayList<>();
+        sink = new TokenListSink(tokens);
+        this.atoms = atoms;
+    }
+
+    // tokens are handed to the sink as they are found; lex() and analyzeLine() don't collect them
+    Lexer(TokenSink sink, AtomTable atoms) {
+        tokens = List.of();
+        this.sink = sink;
+        this.atoms = atoms;
+    }
+
+    public static TokenStream stream(Reader reader) {
+        return stream(reader, new AtomTable());
+    }
+
+    public static TokenStream stream(Reader reader, AtomTable atoms) {
+        return new LexingTokenStream(reader, atoms);
+    }
+
+    public static TokenStream stream(ReadableByteChannel channel) {
+        return stream(channel, new AtomTable());
+    }
+
+    public static TokenStream stream(ReadableByteChannel channel, AtomTable atoms) {
+        return stream(Channels.newReader(channel, StandardCharsets.UTF_8), atoms);
+    }
+
+    // lex UTF-8 encoded bytes directly without decoding them into lines first
+    public static TokenStream stream(ByteBuffer source) {
+        return stream(source, new AtomTable());
+    }
+
+    public static TokenStream stream(ByteBuffer source, AtomTable atoms) {
+        return new ByteTokenStream(new ByteSource(source), atoms);
+    }
+
+    // lex the whole source into a compact buffer whose values are slices of the source
+    public static TokenBuffer lexToBuffer(ByteBuffer source) {
+        return lexToBuffer(new ByteSource(source), new AtomTable());
+    }
+
+    static TokenBuffer lexToBuffer(ByteSource text, AtomTable atoms) {
+        TokenBuffer buffer = new TokenBuffer(text);
+        Lexer lexer = new Lexer(buffer, atoms);
+        lexer.analyze(text, 0, text.length(), Integer.MAX_VALUE);
+        lexer.checkEndOfInput();
+        buffer.trimToSize();
+        return buffer;
+    }
+
+    // same tokens and atoms as lexToBuffer, but chunks of the source are lexed on the common ForkJoinPool
+    public static TokenBuffer lexParallel(ByteBuffer source) {
+        return lexParallel(source, new AtomTable());
+    }
+
+    public static TokenBuffer lexParallel(ByteBuffer source, AtomTable atoms) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        ByteSource text = new ByteSource(source);
+        return ParallelLexer.lex(text, atoms, pool, ParallelLexer.chunkCount(text.length(), pool.getParallelism()));
+    }
+
+    public static TokenStream map(FileChannel channel) throws IOException {
+        return map(channel, new AtomTable());
+    }
+
+    public static TokenStream map(FileChannel channel, AtomTable atoms) throws IOException {
+        return stream(mapSource(channel), atoms);
+    }
+
+    // map the file and lex it in parallel chunks; all tokens are held in the returned buffer
+    public static TokenBuffer mapParallel(FileChannel channel, AtomTable atoms) throws IOException {
+        return lexParallel(mapSource(channel), atoms);
+    }
+
+    private static ByteBuffer mapSource(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE)
+            throw new CompilerError("Cannot map a source file larger than 2 GB");
+        return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+
+    // pick up lexing in the middle of a source, e.g. at a chunk boundary found by ParallelLexer
+    void resume(LexerState state, int lineNumber) {
+        this.state = state;
+        this.lineNumber = lineNumber;
+    }
+
+    LexerState getState() {
+        return state;
+    }
+
+    int getLineNumber() {
+        return lineNumber;
     }
 
     private void setState(final LexerState state) {
@@ -59,166 +184,272 @@ public class Lexer {
 
     public List<Token> lex(List<String> input) {
         int lineNumber = 1;
-        if (!input.isEmpty()) {
-            for (String line : input) {
-                if (state == LexerState.IN_MULTILINE_STRING) {
-                    if (!line.contains("\"/")) {
-                        multiLineString.append(line.replace("\"", "\\\"").concat("\n"));
-                    }
-                    else {
-                        analyzeLine(line, lineNumber);
-                    }
-                }
-                else if (!line.isEmpty())
-                    analyzeLine(line, lineNumber);
-                lineNumber++;
-            }
+        for (String line : input) {
+            analyzeLine(line, lineNumber);
+            lineNumber++;
         }
+        checkEndOfInput();
+        return tokens;
+    }
+
+    public List<Token> lex(ByteBuffer source) {
+        ByteSource text = new ByteSource(source);
+        lineNumber = 1;
+        analyze(text, 0, text.length(), Integer.MAX_VALUE);
+        checkEndOfInput();
+        return tokens;
+    }
+
+    void checkEndOfInput() {
         if (state == LexerState.IN_MULTILINE_COMMENT) {
             throw new SyntaxError("EOF while scanning multiline comment");
         }
         if (state == LexerState.IN_MULTILINE_STRING) {
             throw new SyntaxError("EOF while scanning multi-line string literal");
         }
-        
-        return tokens;
     }
 
-    private boolean isNumber(char curr) {
-        return String.valueOf(curr).matches("[0-9]");
+    private void addNumberToken(CharSequence text, int start, int end) {
+        // the scan only takes digits and dots, so the literal is valid if it has at most one dot with digits after it
+        long value = 0;
+        int dot = -1;
+        for (int i = start; i < end; i++) {
+            char currentChar = text.charAt(i);
+            if (currentChar == '.') {
+                if (dot != -1 || i == end - 1)
+                    throw new SyntaxError("Found invalid number '" + slice(text, start, end) + "'", lineNumber);
+                dot = i;
+            }
+            else if (dot == -1 && value >= 0) {
+                // goes negative once it overflows and stays there
+                value = value > (Long.MAX_VALUE - (currentChar - '0')) / 10 ? -1 : value * 10 + (currentChar - '0');
+            }
+        }
+        if (dot == -1) {
+            if (value < 0)
+                throw new SyntaxError("Integer literal '" + slice(text, start, end) + "' is out of range", lineNumber);
+            sink.addNumber(text, start, end, true, value, lineNumber);
+            return;
+        }
+        double doubleValue = Double.parseDouble(slice(text, start, end));
+        if (Double.isInfinite(doubleValue))
+            throw new SyntaxError("Double literal '" + slice(text, start, end) + "' is out of range", lineNumber);
+        sink.addNumber(text, start, end, false, Double.doubleToRawLongBits(doubleValue), lineNumber);
     }
 
-    private boolean isOperator(char curr) {
-        return String.valueOf(curr).matches("([+\\-*/%!&^=?<>||&&])");
+    private void addOperatorToken(OperatorKind op) {
+        sink.addOperator(op, lineNumber);
     }
 
-    private boolean isLetter(char curr) {
-        return String.valueOf(curr).matches("[a-zA-Z]");
+    private void addIdentifierToken(CharSequence text, int start, int end) {
+        TokenType reservedWord = ReservedWords.lookup(text, start, end);
+        if (reservedWord != null) {
+            sink.add(reservedWord, lineNumber);
+            return;
+        }
+        int atom = atoms.intern(text, start, end);
+        sink.addIdentifier(atom, atoms.name(atom), lineNumber);
     }
 
-    private boolean isWhitespace(char curr) {
-        return String.valueOf(curr).matches("\\s");
+    // only string literals can hold non-ASCII characters, so this is the only place bytes get decoded
+    static String slice(CharSequence text, int start, int end) {
+        if (text instanceof ByteSource)
+            return ((ByteSource) text).decode(start, end);
+        return text.subSequence(start, end).toString();
     }
 
-    private Optional<Token> getReservedWord(String identifier) {
-        // check if an identifier is a reserved word; return Optional.empty() if not
-        if (reservedWords.containsKey(identifier)) {
-            return Optional.of(reservedWords.get(identifier));
-        }
-        return Optional.empty();
+    private static boolean isLineBreak(CharSequence text, int index, int end) {
+        // \r\n counts once, on the \n
+        char currentChar = text.charAt(index);
+        return currentChar == '\n' || (currentChar == '\r' && (index + 1 == end || text.charAt(index + 1) != '\n'));
     }
 
-    private void addNumberToken(StringBuilder number, int lineNumber) {
-        String num = number.toString();
-        String numRegex = "[0-9]+(\\.[0-9]+)?";
-        if (num.matches(numRegex)) {
-            tokens.add(new VariableToken(TokenType.NUMBER, num, lineNumber));
-        }
-        else {
-            throw new SyntaxError("Found invalid number '" + num + "'", lineNumber);
-        }
+    // follow the transition table from the token state until a character ends the token
+    private int scanRun(CharSequence text, int index, int end, LexerState tokenState) {
+        boolean[] continues = CONTINUES[tokenState.ordinal()];
+        while (index < end && continues[CharClass.of(text.charAt(index))])
+            index++;
+        return index;
     }
 
-    private void addOperatorToken(StringBuilder operator, int lineNumber) {
-        String op = operator.toString();
-        String operatorRegex = "(\\+|-|\\*|/|%|!|&|\\^|=|\\?|\\+\\+|--|\\*\\*|&&|\\|\\||\\+=|<|>|<=|>=|==|!=|-=|\\*=|/=)";
-        if (op.matches(operatorRegex))
-            tokens.add(new VariableToken(TokenType.OP, op, lineNumber));
+    private int handleNumberState(CharSequence text, int index, int end) {
+        int tokenEnd = scanRun(text, index + 1, end, LexerState.IN_NUMBER);
+        addNumberToken(text, index, tokenEnd);
+        return tokenEnd;
     }
 
-    private void addIdentifierToken(StringBuilder identifier, int lineNumber) {
-        String id = identifier.toString();
-        String identifierRegex = "[a-zA-Z]([a-zA-Z0-9_])*";
-        if (id.matches(identifierRegex)) {
-            Optional<Token> reservedWord = getReservedWord(id);
-            if (reservedWord.isEmpty()) 
-                tokens.add(new VariableToken(TokenType.ID, id, lineNumber));
-            else {
-                Token keyword = reservedWord.get();
-                tokens.add(keyword.withLineNumber(lineNumber));
-            }
-        }
+    private int handleIdentifierState(CharSequence text, int index, int end) {
+        int tokenEnd = scanRun(text, index + 1, end, LexerState.IN_IDENTIFIER);
+        addIdentifierToken(text, index, tokenEnd);
+        return tokenEnd;
     }
 
-    private StringBuilder handleNumberStateChar(char currentChar, char nextChar, StringBuilder sequence, int lineNumber) {
-        boolean currIsNumber = isNumber(currentChar) || currentChar == '.';
-        boolean nextIsNumber = (isNumber(nextChar) || nextChar == '.') && nextChar != '\0';
-        if (currIsNumber) {
-            sequence.append(currentChar);
+    private int handleOperatorState(CharSequence text, int index, int end) {
+        char currentChar = text.charAt(index);
+        char nextChar = index == end - 1 ? '\0' : text.charAt(index + 1);
+        if (currentChar == '/') {
+            switch (nextChar) {
+                case '/':
+                    return indexOfOrLineBreak(text, index + 2, end, '\n'); // end the line at an inline comment
+                case '*':
+                    setState(LexerState.IN_MULTILINE_COMMENT);
+                    return index + 2;
+                case '"':
+                    setState(LexerState.IN_MULTILINE_STRING);
+                    multiLineStart = index;
+                    multiLineText = text;
+                    return index + 2;
+            }
         }
-        if (!nextIsNumber) {
-            clearState();
-            addNumberToken(sequence, lineNumber);
-            return new StringBuilder(); // clear out the sequence
+        // longest match: two character operator, then single character operator
+        int first = OPERATOR_INDEX[currentChar];
+        if (CharClass.of(nextChar) == CharClass.OPERATOR) {
+            OperatorKind op = DOUBLE_OPERATORS[first][OPERATOR_INDEX[nextChar]];
+            if (op != null) {
+                addOperatorToken(op);
+                return index + 2;
+            }
         }
-        return sequence;
+        if (SINGLE_OPERATORS[first] == null)
+            throw new SyntaxError("Unrecognized character '" + currentChar + "'", lineNumber);
+        addOperatorToken(SINGLE_OPERATORS[first]);
+        return index + 1;
     }
 
-    private StringBuilder handleOperatorStateChar(char currentChar, char nextChar, StringBuilder sequence, int lineNumber) {
-        if (isOperator(currentChar)) {
-            sequence.append(currentChar);
-        }
-        if (sequence.toString().equals("//"))
-            return sequence;
-        if (sequence.toString().equals("/*")) {
-            setState(LexerState.IN_MULTILINE_COMMENT);
-            return sequence;
-        }
-        if (!isOperator(nextChar) && nextChar != '\0') {
-            clearState();
-            addOperatorToken(sequence, lineNumber);
-            return new StringBuilder();
-        }
-        if (nextChar == '\0')
-            addOperatorToken(sequence, lineNumber);
-        return sequence;
+    // the scans over blank and commented out text, done a word at a time on bytes
+    private static int skipBlanks(CharSequence text, int index, int end) {
+        if (text instanceof ByteSource)
+            return ((ByteSource) text).skipBlanks(index, end);
+        while (index < end && (text.charAt(index) == ' ' || text.charAt(index) == '\t'))
+            index++;
+        return index;
     }
 
-    private StringBuilder handleIdentifierStateChar(char currentChar, char nextChar, StringBuilder sequence, int lineNumber) {
-        boolean currIsID = isLetter(currentChar) || isNumber(currentChar) || currentChar == '_';
-        boolean nextIsID = (isLetter(nextChar) || isNumber(nextChar) || nextChar == '_') && nextChar != '\0';
-        if (currIsID) {
-            sequence.append(currentChar);
+    private static int indexOfOrLineBreak(CharSequence text, int index, int end, char c) {
+        if (text instanceof ByteSource)
+            return ((ByteSource) text).indexOfOrLineBreak(index, end, c);
+        for (; index < end; index++) {
+            char currentChar = text.charAt(index);
+            if (currentChar == c || currentChar == '\n' || currentChar == '\r')
+                break;
         }
-        if (!nextIsID) {
-            clearState();
-            addIdentifierToken(sequence, lineNumber);
-            return new StringBuilder();
-        }
-        return sequence;
+        return index;
     }
 
-    private int enterStringStateAndMovePosition(String line, int index, int lineNumber) {
-        int length = line.length();
-        String stringErrorMessage = "EOL while scanning string literal";
-        if (length < 2)
-            throw new SyntaxError(stringErrorMessage, lineNumber);
-        int i = index  + 1;
+    private int enterStringStateAndMovePosition(CharSequence text, int index, int end) {
         // already recognized the opening quote to get here
-        StringBuilder sequence = new StringBuilder("\"");
-        char currentChar, nextChar;
-        while (i < length - 1) {
-            currentChar = line.charAt(i);
-            nextChar = line.charAt(i+1);
-            if (currentChar == '\\' && nextChar == '"') {
-                sequence.append("\\\"");
+        int i = index + 1;
+        while (i < end) {
+            char currentChar = text.charAt(i);
+            if (currentChar == '\\' && i + 1 < end && text.charAt(i + 1) == '"') {
                 i += 2;
                 continue;
             }
-            else if (currentChar == '"') {
-                sequence.append('"');
-                tokens.add(new VariableToken(TokenType.STRING, sequence.toString(), lineNumber));
-                return i+1;
+            if (currentChar == '"') {
+                sink.add(TokenType.STRING, text, index, i + 1, lineNumber);
+                return i + 1;
             }
-            sequence.append(currentChar);
+            if (currentChar == '\n' || currentChar == '\r')
+                break;
             i++;
         }
-        if (line.charAt(length - 2) != '\\' && line.charAt(length -1) == '"') {
-            sequence.append('"');
-            tokens.add(new VariableToken(TokenType.STRING, sequence.toString(), lineNumber));
-            return i+1;
+        throw new SyntaxError("EOL while scanning string literal", lineNumber);
+    }
+
+    private int handleMultilineCommentState(CharSequence text, int index, int end) {
+        for (int i = indexOfOrLineBreak(text, index, end, '*'); i < end; i = indexOfOrLineBreak(text, i + 1, end, '*')) {
+            if (text.charAt(i) == '*') {
+                if (i + 1 < end && text.charAt(i + 1) == '/') {
+                    clearState();
+                    return i + 2;
+                }
+            }
+            else if (isLineBreak(text, i, end)) {
+                lineNumber++;
+            }
+        }
+        return end;
+    }
+
+    private int handleMultilineStringState(CharSequence text, int index, int end) {
+        if (multiLineStart >= 0 && text == multiLineText) {
+            // while the literal is all in one text it is handed on as a span and its value is only built when asked for
+            for (int i = indexOfOrLineBreak(text, index, end, '"'); i < end; i = indexOfOrLineBreak(text, i + 1, end, '"')) {
+                if (text.charAt(i) == '"') {
+                    if (i + 1 < end && text.charAt(i + 1) == '/') {
+                        sink.addMultilineString(text, multiLineStart, i + 2, lineNumber);
+                        multiLineStart = -1;
+                        multiLineText = null;
+                        clearState();
+                        return i + 2;
+                    }
+                }
+                else if (isLineBreak(text, i, end)) {
+                    lineNumber++;
+                }
+            }
+            collectMultilineString(text, end);
+            return end;
+        }
+        for (int i = index; i < end; i++) {
+            char currentChar = text.charAt(i);
+            if (currentChar == '"' && i + 1 < end && text.charAt(i + 1) == '/') {
+                appendMultilineContent(multiLineString, text, index, i);
+                multiLineString.append('"');
+                sink.add(TokenType.STRING, multiLineString.toString(), lineNumber);
+                clearState();
+                return i + 2;
+            }
+            if (isLineBreak(text, i, end))
+                lineNumber++;
+        }
+        appendMultilineContent(multiLineString, text, index, end);
+        return end;
+    }
+
+    // the text ends before the literal does, as with one line at a time, so the rest of its value is built in multiLineString
+    private void collectMultilineString(CharSequence text, int end) {
+        multiLineString.setLength(0);
+        multiLineString.append('"');
+        appendMultilineContent(multiLineString, text, multiLineStart + 2, end);
+        multiLineStart = -1;
+        multiLineText = null;
+    }
+
+    // value of a whole multi-line string literal text[start, end), including its /" and "/ delimiters
+    static String decodeMultilineString(CharSequence text, int start, int end) {
+        StringBuilder value = new StringBuilder(end - start);
+        value.append('"');
+        appendMultilineContent(value, text, start + 2, end - 2);
+        return value.append('"').toString();
+    }
+
+    // quotes inside multi-line strings don't need escaping in source but do in the token value; line breaks become \n
+    private static void appendMultilineContent(StringBuilder value, CharSequence text, int start, int end) {
+        int runStart = start;
+        for (int i = start; i < end; i++) {
+            char currentChar = text.charAt(i);
+            if (currentChar == '"') {
+                appendSlice(value, text, runStart, i);
+                value.append("\\\"");
+                runStart = i + 1;
+            }
+            else if (currentChar == '\n' || currentChar == '\r') {
+                appendSlice(value, text, runStart, i);
+                if (currentChar == '\r' && i + 1 < end && text.charAt(i + 1) == '\n')
+                    i++;
+                value.append('\n');
+                runStart = i + 1;
+            }
         }
-        throw new SyntaxError(stringErrorMessage, lineNumber);
+        appendSlice(value, text, runStart, end);
+    }
+
+    private static void appendSlice(StringBuilder value, CharSequence text, int start, int end) {
+        if (text instanceof ByteSource)
+            value.append(((ByteSource) text).decode(start, end));
+        else
+            value.append(text, start, end);
     }
 
     public List<Token> analyzeLine(String line) {
@@ -226,128 +457,111 @@ public class Lexer {
     }
 
     public List<Token> analyzeLine(String line, int lineNumber) {
-        StringBuilder currentSequence = new StringBuilder();
-        char currentChar, nextChar;
-        int i = 0;
-        while(i < line.length()) {
-            currentChar = line.charAt(i);
-            nextChar = i == line.length() - 1 ? '\0' : line.charAt(i+1); // look ahead to the next character and handle edge case if at the end
-            if (currentChar == '/' && nextChar == '"' && state != LexerState.IN_MULTILINE_STRING) {
-                setState(LexerState.IN_MULTILINE_STRING);
-                multiLineString = new StringBuilder("\"");
-                currentSequence = new StringBuilder(); // clear it out
-                i += 2;
-                continue;
-            }
-            if (currentChar == '/' && nextChar == '*' && state != LexerState.IN_MULTILINE_COMMENT) {
-                setState(LexerState.IN_MULTILINE_COMMENT);
-                if (!line.contains("*/"))
-                    return tokens;
-            }
-            if (currentChar == '"' && state != LexerState.IN_MULTILINE_STRING) {
-                i = enterStringStateAndMovePosition(line, i, lineNumber);
+        this.lineNumber = lineNumber;
+        analyze(line, 0, line.length(), Integer.MAX_VALUE);
+        if (state == LexerState.IN_MULTILINE_STRING)
+            multiLineString.append('\n');
+        return tokens;
+    }
+
+    /*
+     * Lex text[index, end) until at least tokenLimit tokens are buffered and return where scanning stopped.
+     * The text can be a single line or a whole file; line breaks in it advance the line number
+     */
+    int analyze(CharSequence text, int index, int end, int tokenLimit) {
+        while (index < end && sink.size() < tokenLimit) {
+            if (state == LexerState.IN_MULTILINE_COMMENT) {
+                index = handleMultilineCommentState(text, index, end);
                 continue;
             }
-            if (isWhitespace(currentChar) && state != LexerState.IN_MULTILINE_STRING) {
-                i++;
+            if (state == LexerState.IN_MULTILINE_STRING) {
+                index = handleMultilineStringState(text, index, end);
                 continue;
             }
-            if (state == LexerState.DEFAULT) { // this needs to be outside the switch statement, so it can set the state
-                if (isNumber(currentChar))
-                    setState(LexerState.IN_NUMBER);
-                else if (isOperator(currentChar))
-                    setState(LexerState.IN_OPERATOR);
-                else if (isLetter(currentChar))
-                    setState(LexerState.IN_IDENTIFIER);
-            }
-            switch(state) {
-                case IN_NUMBER:
-                    currentSequence = handleNumberStateChar(currentChar, nextChar, currentSequence, lineNumber);
+            char currentChar = text.charAt(index);
+            switch (CharClass.of(currentChar)) {
+                case CharClass.WHITESPACE:
+                    if (isLineBreak(text, index, end))
+                        lineNumber++;
+                    index = skipBlanks(text, index + 1, end);
                     break;
-                case IN_OPERATOR:
-                    currentSequence = handleOperatorStateChar(currentChar, nextChar, currentSequence, lineNumber);
-                    if (currentSequence.toString().equals("//")) {
-                        clearState();
-                        return tokens; // end the line at an inline comment
-                    }
-                    if (currentSequence.toString().equals(">") && nextChar == '>') {
-                        tokens.add(new VariableToken(TokenType.OP, ">"));
-                        currentSequence = new StringBuilder();
-                    }
+                case CharClass.DIGIT:
+                    index = handleNumberState(text, index, end);
                     break;
-                case IN_IDENTIFIER:
-                    currentSequence = handleIdentifierStateChar(currentChar, nextChar, currentSequence, lineNumber);
+                case CharClass.LETTER:
+                    index = handleIdentifierState(text, index, end);
                     break;
-                case IN_MULTILINE_COMMENT:
-                    if (!line.contains("*/"))
-                        return tokens;
-                    if (line.endsWith("*/")) {
-                        clearState();
-                        return tokens;
-                    }
-                    i = line.startsWith("*/") ? 2 : line.indexOf("*/") + 2;
-                    if (i > 0) {
-                        clearState();
-                        continue;
-                    }
+                case CharClass.OPERATOR:
+                    index = handleOperatorState(text, index, end);
                     break;
-                case IN_MULTILINE_STRING:
-                    if (currentChar != '"' && nextChar != '/') {
-                        multiLineString.append(currentChar);
-                        multiLineString.append(nextChar);
-                    }
-                    else if (currentChar == '"' && nextChar == '/') {
-                        multiLineString.append('"');
-                        tokens.add(new VariableToken(TokenType.STRING, multiLineString.toString(), lineNumber));
-                        multiLineString = new StringBuilder(); // reset the value
-                        clearState();
-                    }
-                    else if (currentChar == '"') {
-                        multiLineString.append("\\\""); // escape quotes not followed by a slash
-                        i++;
-                        continue;
-                    }
-                    i += 2;
-                    continue; // increment already done so skip rest of loop iteration
-                case DEFAULT:
-                    // handle any non-operator characters
-                    switch(currentChar) {
-                        case '{':
-                            tokens.add(new StaticToken(TokenType.LEFT_CB, lineNumber));
-                            break;
-                        case '}':
-                            tokens.add(new StaticToken(TokenType.RIGHT_CB, lineNumber));
-                            break;
-                        case '(':
-                            tokens.add(new StaticToken(TokenType.LEFT_PAREN, lineNumber));
-                            break;
-                        case ')':
-                            tokens.add(new StaticToken(TokenType.RIGHT_PAREN, lineNumber));
-                            break;
-                        case '[':
-                            tokens.add(new StaticToken(TokenType.LEFT_SQB, lineNumber));
-                            break;
-                        case ']':
-                            tokens.add(new StaticToken(TokenType.RIGHT_SQB, lineNumber));
-                            break;
-                        case ';':
-                            tokens.add(new StaticToken(TokenType.SC, lineNumber));
-                            break;
-                        case ':':
-                            tokens.add(new StaticToken(TokenType.COLON, lineNumber));
-                            break;
-                        case ',':
-                            tokens.add(new StaticToken(TokenType.COMMA, lineNumber));
-                            break;
-                        default:
-                            throw new SyntaxError("Unrecognized character '" + currentChar + "'", lineNumber);
-                    }
+                case CharClass.QUOTE:
+                    index = enterStringStateAndMovePosition(text, index, end);
+                    break;
+                case CharClass.PUNCTUATION:
+                    sink.add(PUNCTUATION[currentChar], lineNumber);
+                    index++;
                     break;
+                default:
+                    throw new SyntaxError("Unrecognized character '" + describe(text, index) + "'", lineNumber);
             }
-            i++;
         }
-        if (state == LexerState.IN_MULTILINE_STRING)
-            multiLineString.append('\n');
-        return tokens;
+        // a multi-line string opened right at the end of the text
+        if (index == end && multiLineStart >= 0)
+            collectMultilineString(text, end);
+        return index;
+    }
+
+    private static String describe(CharSequence text, int index) {
+        if (text instanceof ByteSource)
+            return ((ByteSource) text).characterAt(index);
+        return String.valueOf(text.charAt(index));
+    }
+
+    private static class TokenListSink implements TokenSink {
+        private final List<Token> tokens;
+
+        private TokenListSink(List<Token> tokens) {
+            this.tokens = tokens;
+        }
+
+        @Override
+        public void add(TokenType type, int lineNumber) {
+            tokens.add(new StaticToken(type, lineNumber));
+        }
+
+        @Override
+        public void add(TokenType type, String value, int lineNumber) {
+            tokens.add(new VariableToken(type, value, lineNumber));
+        }
+
+        @Override
+        public void add(TokenType type, CharSequence text, int start, int end, int lineNumber) {
+            tokens.add(new VariableToken(type, slice(text, start, end), lineNumber));
+        }
+
+        @Override
+        public void addMultilineString(CharSequence text, int start, int end, int lineNumber) {
+            tokens.add(new VariableToken(TokenType.STRING, decodeMultilineString(text, start, end), lineNumber));
+        }
+
+        @Override
+        public void addNumber(CharSequence text, int start, int end, boolean integral, long bits, int lineNumber) {
+            tokens.add(new NumberToken(slice(text, start, end), lineNumber, integral, bits));
+        }
+
+        @Override
+        public void addOperator(OperatorKind operator, int lineNumber) {
+            tokens.add(new OperatorToken(operator, lineNumber));
+        }
+
+        @Override
+        public void addIdentifier(int atom, String name, int lineNumber) {
+            tokens.add(new VariableToken(TokenType.ID, name, lineNumber));
+        }
+
+        @Override
+        public int size() {
+            return tokens.size();
+        }
     }
 }
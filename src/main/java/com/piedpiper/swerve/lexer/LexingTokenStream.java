@@ -0,0 +1,89 @@
+package com.piedpiper.swerve.lexer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+
+/**
+ * Lexes a Reader one line at a time as the parser asks for tokens.
+ * Lines are split the same way as Files.readAllLines (\n, \r or \r\n) and the
+ * multi-line comment and string state lives in the lexer, so it carries over chunk and line boundaries
+ */
+class LexingTokenStream extends BufferedTokenStream {
+    private static final int CHUNK_SIZE = 8192;
+
+    private final Reader reader;
+    private final char[] chunk = new char[CHUNK_SIZE];
+    private int chunkPosition = 0;
+    private int chunkLength = 0;
+    private boolean skipLineFeed = false;
+    private final StringBuilder line = new StringBuilder();
+    private int lineNumber = 0;
+    private boolean exhausted = false;
+    private final Lexer lexer;
+
+    LexingTokenStream(Reader reader, AtomTable atoms) {
+        // every line is a new string, so values are stored instead of sliced
+        super(null);
+        this.reader = reader;
+        lexer = new Lexer(buffer, atoms);
+    }
+
+    @Override
+    protected boolean fill() {
+        if (exhausted)
+            return false;
+        if (!readLine()) {
+            exhausted = true;
+            lexer.checkEndOfInput();
+            return false;
+        }
+        lineNumber++;
+        lexer.analyzeLine(line.toString(), lineNumber);
+        return true;
+    }
+
+    // fill line with the next line of input, false at EOF
+    private boolean readLine() {
+        line.setLength(0);
+        boolean readAnything = false;
+        while (true) {
+            if (chunkPosition == chunkLength && !fillChunk())
+                return readAnything;
+            if (skipLineFeed) {
+                skipLineFeed = false;
+                if (chunk[chunkPosition] == '\n')
+                    chunkPosition++;
+                continue;
+            }
+            readAnything = true;
+            int start = chunkPosition;
+            while (chunkPosition < chunkLength) {
+                char c = chunk[chunkPosition];
+                if (c == '\n' || c == '\r') {
+                    line.append(chunk, start, chunkPosition - start);
+                    chunkPosition++;
+                    skipLineFeed = c == '\r';
+                    return true;
+                }
+                chunkPosition++;
+            }
+            line.append(chunk, start, chunkPosition - start);
+        }
+    }
+
+    private boolean fillChunk() {
+        try {
+            int read = reader.read(chunk, 0, CHUNK_SIZE);
+            while (read == 0)
+                read = reader.read(chunk, 0, CHUNK_SIZE);
+            if (read == -1)
+                return false;
+            chunkPosition = 0;
+            chunkLength = read;
+            return true;
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.piedpiper.swerve.lexer;
+
+import java.util.List;
+
+class ListTokenStream implements TokenStream {
+    private final List<Token> tokens;
+    private int position = 0;
+
+    ListTokenStream(List<Token> tokens) {
+        this.tokens = tokens;
+    }
+
+    @Override
+    public Token peek(int offset) {
+        int index = position + offset;
+        return index < tokens.size() ? tokens.get(index) : null;
+    }
+
+    @Override
+    public void advance() {
+        position++;
+    }
+}
@@ -0,0 +1,37 @@
+package com.piedpiper.swerve.lexer;
+
+/**
+ * NUMBER token that carries the value the lexer parsed from it.
+ * Compares equal to a VariableToken with the same text, so tests can keep building numbers from strings
+ */
+public class NumberToken extends VariableToken {
+    private final boolean integral;
+    // the long itself, or the bits of the double
+    private final long bits;
+
+    public NumberToken(String value, Integer lineNumber, boolean integral, long bits) {
+        super(TokenType.NUMBER, value, lineNumber);
+        this.integral = integral;
+        this.bits = bits;
+    }
+
+    @Override
+    public boolean isIntegral() {
+        return integral;
+    }
+
+    @Override
+    public long getLongValue() {
+        return integral ? bits : (long) Double.longBitsToDouble(bits);
+    }
+
+    @Override
+    public double getDoubleValue() {
+        return integral ? bits : Double.longBitsToDouble(bits);
+    }
+
+    @Override
+    public VariableToken withLineNumber(Integer lineNumber) {
+        return new NumberToken(getValue(), lineNumber, integral, bits);
+    }
+}
@@ -0,0 +1,55 @@
+package com.piedpiper.swerve.lexer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// every operator the lexer recognizes, so later phases can switch on the operator instead of comparing strings
+public enum OperatorKind {
+    PLUS("+"),
+    MINUS("-"),
+    MULTIPLY("*"),
+    DIVIDE("/"),
+    MODULO("%"),
+    NOT("!"),
+    BITWISE_AND("&"),
+    BITWISE_XOR("^"),
+    ASSIGN("="),
+    QUESTION("?"),
+    LESS("<"),
+    GREATER(">"),
+    INCREMENT("++"),
+    DECREMENT("--"),
+    POWER("**"),
+    AND("&&"),
+    OR("||"),
+    PLUS_ASSIGN("+="),
+    MINUS_ASSIGN("-="),
+    MULTIPLY_ASSIGN("*="),
+    DIVIDE_ASSIGN("/="),
+    LESS_EQUAL("<="),
+    GREATER_EQUAL(">="),
+    EQUAL("=="),
+    NOT_EQUAL("!=");
+
+    private static final Map<String, OperatorKind> BY_SYMBOL = new HashMap<>();
+
+    static {
+        for (OperatorKind kind : values())
+            BY_SYMBOL.put(kind.symbol, kind);
+    }
+
+    private final String symbol;
+
+    OperatorKind(String symbol) {
+        this.symbol = symbol;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    // the operator spelled symbol, or null if there is none
+    public static OperatorKind of(String symbol) {
+        return BY_SYMBOL.get(symbol);
+    }
+}
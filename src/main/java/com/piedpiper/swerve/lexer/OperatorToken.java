@@ -0,0 +1,24 @@
+package com.piedpiper.swerve.lexer;
+
+/**
+ * OP token that carries the operator the lexer recognized.
+ * Compares equal to a VariableToken with the same text, so tests can keep building operators from strings
+ */
+public class OperatorToken extends VariableToken {
+    private final OperatorKind operator;
+
+    public OperatorToken(OperatorKind operator, Integer lineNumber) {
+        super(TokenType.OP, operator.getSymbol(), lineNumber);
+        this.operator = operator;
+    }
+
+    @Override
+    public OperatorKind getOperator() {
+        return operator;
+    }
+
+    @Override
+    public VariableToken withLineNumber(Integer lineNumber) {
+        return new OperatorToken(operator, lineNumber);
+    }
+}
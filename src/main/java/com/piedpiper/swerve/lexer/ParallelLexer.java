@@ -0,0 +1,186 @@
+package com.piedpiper.swerve.lexer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Lexes a source in chunks split at line boundaries, one ForkJoinPool task per chunk.
+ * A pre-scan that only tracks comments and strings finds the lexer state and line number at every boundary.
+ * Chunks intern into their own AtomTable and are merged in order, so atoms come out numbered as the sequential lexer numbers them
+ */
+final class ParallelLexer {
+    // below this a chunk isn't worth a task of its own
+    static final int MIN_CHUNK_SIZE = 1 << 20;
+    // more chunks than workers so an expensive chunk doesn't leave the others idle
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    private ParallelLexer() {}
+
+    static int chunkCount(int length, int parallelism) {
+        return Math.max(1, Math.min(parallelism * CHUNKS_PER_WORKER, length / MIN_CHUNK_SIZE));
+    }
+
+    static TokenBuffer lex(ByteSource text, AtomTable atoms, ForkJoinPool pool, int chunks) {
+        if (chunks <= 1)
+            return Lexer.lexToBuffer(text, atoms);
+        List<Boundary> boundaries = findBoundaries(text, chunks);
+        if (boundaries.size() == 1)
+            return Lexer.lexToBuffer(text, atoms);
+
+        List<ForkJoinTask<Chunk>> tasks = new ArrayList<>(boundaries.size());
+        for (int i = 0; i < boundaries.size(); i++) {
+            Boundary start = boundaries.get(i);
+            int end = i + 1 < boundaries.size() ? boundaries.get(i + 1).offset : text.length();
+            tasks.add(pool.submit(() -> lexChunk(text, start, end)));
+        }
+
+        List<Chunk> lexed = new ArrayList<>(tasks.size());
+        int size = 0;
+        for (int i = 0; i < tasks.size(); i++) {
+            Chunk chunk = tasks.get(i).join();
+            // every chunk before this one started and ended where the pre-scan said, so this is the first error in the source
+            if (chunk.error != null) {
+                cancel(tasks, i + 1);
+                throw chunk.error;
+            }
+            Boundary next = i + 1 < boundaries.size() ? boundaries.get(i + 1) : null;
+            if (next != null && (chunk.endState != next.state || chunk.endLine != next.lineNumber)) {
+                // the pre-scan misjudged the source; it never should, but the sequential lexer is always right
+                cancel(tasks, i + 1);
+                return Lexer.lexToBuffer(text, atoms);
+            }
+            lexed.add(chunk);
+            size += chunk.tokens.size();
+        }
+        Chunk last = lexed.get(lexed.size() - 1);
+        Lexer end = new Lexer(new TokenBuffer(text, 0), atoms);
+        end.resume(last.endState, last.endLine);
+        end.checkEndOfInput();
+
+        TokenBuffer buffer = new TokenBuffer(text, size);
+        for (Chunk chunk : lexed) {
+            int[] atomMap = new int[chunk.atoms.size()];
+            for (int atom = 0; atom < atomMap.length; atom++)
+                atomMap[atom] = atoms.intern(chunk.atoms.name(atom));
+            buffer.appendAll(chunk.tokens, atomMap, atoms);
+        }
+        return buffer;
+    }
+
+    private static Chunk lexChunk(ByteSource text, Boundary start, int end) {
+        Chunk chunk = new Chunk();
+        chunk.tokens = new TokenBuffer(text);
+        chunk.atoms = new AtomTable();
+        Lexer lexer = new Lexer(chunk.tokens, chunk.atoms);
+        lexer.resume(start.state, start.lineNumber);
+        try {
+            lexer.analyze(text, start.offset, end, Integer.MAX_VALUE);
+        }
+        catch (RuntimeException e) {
+            chunk.error = e;
+        }
+        chunk.endState = lexer.getState();
+        chunk.endLine = lexer.getLineNumber();
+        return chunk;
+    }
+
+    private static void cancel(List<ForkJoinTask<Chunk>> tasks, int from) {
+        for (int i = from; i < tasks.size(); i++)
+            tasks.get(i).cancel(false);
+    }
+
+    /*
+     * Walk the source once, following only what can hide a line break or an opening comment from the lexer:
+     * comments, string literals and multi-line strings. Chunks start at the first line start past each
+     * evenly spaced target that isn't inside a multi-line string, whose value would have to be carried across
+     */
+    static List<Boundary> findBoundaries(CharSequence text, int chunks) {
+        List<Boundary> boundaries = new ArrayList<>(chunks);
+        boundaries.add(new Boundary(0, 1, LexerState.DEFAULT));
+        int length = text.length();
+        long target = (long) length / chunks;
+        LexerState state = LexerState.DEFAULT;
+        int lineNumber = 1;
+        int i = 0;
+        while (i < length) {
+            char currentChar = text.charAt(i);
+            char nextChar = i + 1 < length ? text.charAt(i + 1) : '\0';
+            if (state == LexerState.DEFAULT) {
+                if (currentChar == '"') {
+                    i = skipString(text, i + 1, length);
+                    continue;
+                }
+                if (currentChar == '/' && nextChar == '/') {
+                    i = skipToLineBreak(text, i + 2, length);
+                    continue;
+                }
+                if (currentChar == '/' && (nextChar == '*' || nextChar == '"')) {
+                    state = nextChar == '*' ? LexerState.IN_MULTILINE_COMMENT : LexerState.IN_MULTILINE_STRING;
+                    i += 2;
+                    continue;
+                }
+            }
+            else if (nextChar == '/' && currentChar == (state == LexerState.IN_MULTILINE_COMMENT ? '*' : '"')) {
+                state = LexerState.DEFAULT;
+                i += 2;
+                continue;
+            }
+            i++;
+            // \r\n is one line break, counted on the \n
+            if (currentChar == '\n' || (currentChar == '\r' && nextChar != '\n')) {
+                lineNumber++;
+                if (i >= target && i < length && state != LexerState.IN_MULTILINE_STRING) {
+                    boundaries.add(new Boundary(i, lineNumber, state));
+                    if (boundaries.size() == chunks)
+                        break;
+                    target = (long) length * boundaries.size() / chunks;
+                }
+            }
+        }
+        return boundaries;
+    }
+
+    // past the closing quote, or at the line break that leaves the literal unterminated
+    private static int skipString(CharSequence text, int i, int end) {
+        while (i < end) {
+            char currentChar = text.charAt(i);
+            if (currentChar == '\\' && i + 1 < end && text.charAt(i + 1) == '"')
+                i += 2;
+            else if (currentChar == '"')
+                return i + 1;
+            else if (currentChar == '\n' || currentChar == '\r')
+                return i;
+            else
+                i++;
+        }
+        return i;
+    }
+
+    private static int skipToLineBreak(CharSequence text, int i, int end) {
+        while (i < end && text.charAt(i) != '\n' && text.charAt(i) != '\r')
+            i++;
+        return i;
+    }
+
+    static final class Boundary {
+        final int offset;
+        final int lineNumber;
+        final LexerState state;
+
+        Boundary(int offset, int lineNumber, LexerState state) {
+            this.offset = offset;
+            this.lineNumber = lineNumber;
+            this.state = state;
+        }
+    }
+
+    private static final class Chunk {
+        TokenBuffer tokens;
+        AtomTable atoms;
+        LexerState endState;
+        int endLine;
+        RuntimeException error;
+    }
+}
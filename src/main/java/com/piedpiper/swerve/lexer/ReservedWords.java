@@ -0,0 +1,86 @@
+package com.piedpiper.swerve.lexer;
+
+/**
+ * Keyword recognition by a switch on length and first character, then a compare of the remaining characters.
+ * Nothing is hashed or allocated, so keywords never reach the AtomTable
+ */
+final class ReservedWords {
+    private ReservedWords() {}
+
+    // keyword type of text[start, end) or null if it is an identifier
+    static TokenType lookup(CharSequence text, int start, int end) {
+        char first = text.charAt(start);
+        switch (end - start) {
+            case 2:
+                if (first == 'f')
+                    return matches(text, start, "fn", TokenType.KW_FN);
+                if (first == 'i')
+                    return matches(text, start, "if", TokenType.KW_IF);
+                return null;
+            case 3:
+                if (first == 'i')
+                    return matches(text, start, "int", TokenType.KW_INT);
+                if (first == 'f')
+                    return matches(text, start, "for", TokenType.KW_FOR);
+                return null;
+            case 4:
+                switch (first) {
+                    case 'e':
+                        return matches(text, start, "else", TokenType.KW_ELSE);
+                    case 't':
+                        return matches(text, start, "true", TokenType.KW_TRUE);
+                    case 'n':
+                        return matches(text, start, "null", TokenType.KW_NULL);
+                    default:
+                        return null;
+                }
+            case 5:
+                switch (first) {
+                    case 'c':
+                        return matches(text, start, "const", TokenType.KW_CONST);
+                    case 'w':
+                        return matches(text, start, "while", TokenType.KW_WHILE);
+                    case 'b':
+                        return matches(text, start, "break", TokenType.KW_BRK);
+                    case 'f':
+                        return matches(text, start, "false", TokenType.KW_FALSE);
+                    case 'A':
+                        return matches(text, start, "Array", TokenType.KW_ARR);
+                    default:
+                        return null;
+                }
+            case 6:
+                switch (first) {
+                    case 'd':
+                        return matches(text, start, "double", TokenType.KW_DOUBLE);
+                    case 's':
+                        return matches(text, start, "string", TokenType.KW_STR);
+                    case 'r':
+                        return matches(text, start, "return", TokenType.KW_RET);
+                    default:
+                        return null;
+                }
+            case 7:
+                if (first == 'b')
+                    return matches(text, start, "boolean", TokenType.KW_BOOL);
+                if (first == 'g')
+                    return matches(text, start, "generic", TokenType.KW_GEN);
+                return null;
+            case 8:
+                return first == 'c' ? matches(text, start, "continue", TokenType.KW_CNT) : null;
+            case 9:
+                return first == 'p' ? matches(text, start, "prototype", TokenType.KW_PROTO) : null;
+            default:
+                return null;
+        }
+    }
+
+    // the first character already matched and the lengths are equal
+    private static TokenType matches(CharSequence text, int start, String word, TokenType type) {
+        for (int i = 1; i < word.length(); i++) {
+            if (text.charAt(start + i) != word.charAt(i))
+                return null;
+        }
+        return type;
+    }
+}
@@ -10,4 +10,27 @@ public interface Token {
     TokenType getName();
     String getValue();
     Integer getLineNumber();
+
+    // atom of an identifier in the lexer's AtomTable, if the token kept track of it
+    default int getAtom() {
+        return AtomTable.NO_ATOM;
+    }
+
+    // operator of an OP token, null for every other token; tokens the lexer didn't recognize fall back to their text
+    default OperatorKind getOperator() {
+        return getName() == TokenType.OP ? OperatorKind.of(getValue()) : null;
+    }
+
+    // value of a NUMBER token; tokens the lexer didn't parse fall back to their text
+    default boolean isIntegral() {
+        return getValue().indexOf('.') < 0;
+    }
+
+    default long getLongValue() {
+        return isIntegral() ? Long.parseLong(getValue()) : (long) getDoubleValue();
+    }
+
+    default double getDoubleValue() {
+        return Double.parseDouble(getValue());
+    }
 }
@@ -0,0 +1,313 @@
+package com.piedpiper.swerve.lexer;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+
+/**
+ * Compact token storage: parallel int arrays for type, source offset, length and line instead of one object per token.
+ * Lexemes stay slices of the source, multi-line strings included; their value is only built when it is asked for.
+ * Only values of tokens lexed from some other text are kept as strings.
+ * Identifiers keep their atom in place of the start offset and share the interned name, operators their OperatorKind.
+ * Number literals also keep the value the lexer parsed from them.
+ * get() hands out a new cursor reading through to the arrays on every call, so the buffer can be used wherever a List of Token is expected.
+ * A cursor can be read until its token is discarded from the front of the buffer, or until a stream moves it to another token
+ */
+public final class TokenBuffer extends AbstractList<Token> implements TokenSink {
+    private static final TokenType[] TYPES = TokenType.values();
+    private static final OperatorKind[] OPERATORS = OperatorKind.values();
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final CharSequence source;
+    private int[] types;
+    private int[] starts;
+    private int[] lengths;
+    private int[] lines;
+    private String[] values;
+    // number literals are never negative, so doubles are stored as their complemented bits and told apart by the sign
+    private long[] numbers;
+    private int size = 0;
+    // number of tokens dropped from the front; cursors keep absolute positions
+    private int discarded = 0;
+
+    // offsets of sliced tokens refer to source; null if every value has to be stored
+    TokenBuffer(CharSequence source) {
+        this(source, INITIAL_CAPACITY);
+    }
+
+    TokenBuffer(CharSequence source, int capacity) {
+        this.source = source;
+        types = new int[capacity];
+        starts = new int[capacity];
+        lengths = new int[capacity];
+        lines = new int[capacity];
+        values = new String[capacity];
+        numbers = new long[capacity];
+    }
+
+    @Override
+    public void add(TokenType type, int lineNumber) {
+        append(type, 0, 0, lineNumber, null);
+    }
+
+    @Override
+    public void add(TokenType type, String value, int lineNumber) {
+        append(type, 0, value.length(), lineNumber, value);
+    }
+
+    @Override
+    public void addMultilineString(CharSequence text, int start, int end, int lineNumber) {
+        if (text == source && source != null)
+            append(TokenType.STRING, start, end - start, lineNumber, null);
+        else
+            append(TokenType.STRING, 0, end - start, lineNumber, Lexer.decodeMultilineString(text, start, end));
+    }
+
+    @Override
+    public void addNumber(CharSequence text, int start, int end, boolean integral, long bits, int lineNumber) {
+        add(TokenType.NUMBER, text, start, end, lineNumber);
+        numbers[size - 1] = integral ? bits : ~bits;
+    }
+
+    @Override
+    public void addOperator(OperatorKind operator, int lineNumber) {
+        append(TokenType.OP, operator.ordinal(), operator.getSymbol().length(), lineNumber, operator.getSymbol());
+    }
+
+    @Override
+    public void addIdentifier(int atom, String name, int lineNumber) {
+        append(TokenType.ID, atom, name.length(), lineNumber, name);
+    }
+
+    @Override
+    public void add(TokenType type, CharSequence text, int start, int end, int lineNumber) {
+        if (text == source && source != null)
+            append(type, start, end - start, lineNumber, null);
+        else
+            append(type, 0, end - start, lineNumber, Lexer.slice(text, start, end));
+    }
+
+    // append every token of a buffer over the same source, moving its identifiers to the atoms in atomMap
+    void appendAll(TokenBuffer other, int[] atomMap, AtomTable atoms) {
+        for (int i = 0; i < other.size; i++) {
+            TokenType type = TYPES[other.types[i]];
+            if (type == TokenType.ID) {
+                int atom = atomMap[other.starts[i]];
+                append(type, atom, other.lengths[i], other.lines[i], atoms.name(atom));
+            }
+            else {
+                append(type, other.starts[i], other.lengths[i], other.lines[i], other.values[i]);
+                numbers[size - 1] = other.numbers[i];
+            }
+        }
+    }
+
+    // drop the spare capacity once nothing more will be added
+    void trimToSize() {
+        types = Arrays.copyOf(types, size);
+        starts = Arrays.copyOf(starts, size);
+        lengths = Arrays.copyOf(lengths, size);
+        lines = Arrays.copyOf(lines, size);
+        values = Arrays.copyOf(values, size);
+        numbers = Arrays.copyOf(numbers, size);
+    }
+
+    // put the tokens of other in place of the tokens [from, to); both buffers have to share their source and atoms
+    void replace(int from, int to, TokenBuffer other) {
+        int newSize = size - (to - from) + other.size;
+        ensureCapacity(newSize);
+        int tail = size - to;
+        int newTo = from + other.size;
+        System.arraycopy(types, to, types, newTo, tail);
+        System.arraycopy(starts, to, starts, newTo, tail);
+        System.arraycopy(lengths, to, lengths, newTo, tail);
+        System.arraycopy(lines, to, lines, newTo, tail);
+        System.arraycopy(values, to, values, newTo, tail);
+        System.arraycopy(numbers, to, numbers, newTo, tail);
+        System.arraycopy(other.types, 0, types, from, other.size);
+        System.arraycopy(other.starts, 0, starts, from, other.size);
+        System.arraycopy(other.lengths, 0, lengths, from, other.size);
+        System.arraycopy(other.lines, 0, lines, from, other.size);
+        System.arraycopy(other.values, 0, values, from, other.size);
+        System.arraycopy(other.numbers, 0, numbers, from, other.size);
+        if (newSize < size)
+            Arrays.fill(values, newSize, size, null);
+        size = newSize;
+    }
+
+    // move the tokens from index on by delta lines
+    void shiftLines(int from, int delta) {
+        for (int i = from; i < size; i++)
+            lines[i] += delta;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= types.length)
+            return;
+        capacity = Math.max(capacity, Math.max(INITIAL_CAPACITY, types.length * 2));
+        types = Arrays.copyOf(types, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+        lines = Arrays.copyOf(lines, capacity);
+        values = Arrays.copyOf(values, capacity);
+        numbers = Arrays.copyOf(numbers, capacity);
+    }
+
+    private void append(TokenType type, int start, int length, int lineNumber, String value) {
+        ensureCapacity(size + 1);
+        types[size] = type.ordinal();
+        starts[size] = start;
+        lengths[size] = length;
+        lines[size] = lineNumber;
+        values[size] = value;
+        numbers[size] = 0;
+        size++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Token get(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        return new Cursor(discarded + index);
+    }
+
+    // point a cursor get() handed out at the token at index instead; only for streams that know it isn't read any more
+    Token moveCursor(Token cursor, int index) {
+        ((Cursor) cursor).moveTo(discarded + index);
+        return cursor;
+    }
+
+    // the token at index as a standalone StaticToken or VariableToken
+    public Token materialize(int index) {
+        return get(index).withLineNumber(lines[index]);
+    }
+
+    // drop the first count tokens; cursors to them can't be read afterwards
+    void discard(int count) {
+        int remaining = size - count;
+        System.arraycopy(types, count, types, 0, remaining);
+        System.arraycopy(starts, count, starts, 0, remaining);
+        System.arraycopy(lengths, count, lengths, 0, remaining);
+        System.arraycopy(lines, count, lines, 0, remaining);
+        System.arraycopy(values, count, values, 0, remaining);
+        System.arraycopy(numbers, count, numbers, 0, remaining);
+        Arrays.fill(values, remaining, size, null);
+        size = remaining;
+        discarded += count;
+    }
+
+    private int slot(int position) {
+        int slot = position - discarded;
+        if (slot < 0)
+            throw new IllegalStateException("Token " + position + " was already discarded from the buffer");
+        return slot;
+    }
+
+    private String valueAt(int slot) {
+        if (!TYPES[types[slot]].hasValue())
+            return "";
+        if (values[slot] != null)
+            return values[slot];
+        int start = starts[slot];
+        // multi-line strings are kept as their span in the source, /" and "/ included
+        if (types[slot] == TokenType.STRING.ordinal() && source.charAt(start) == '/')
+            return Lexer.decodeMultilineString(source, start, start + lengths[slot]);
+        return Lexer.slice(source, start, start + lengths[slot]);
+    }
+
+    // view of one token; the value is only sliced out of the source and the line number only boxed when asked for
+    private final class Cursor implements Token {
+        private int position;
+        private String value;
+        private Integer lineNumber;
+
+        private Cursor(int position) {
+            this.position = position;
+        }
+
+        private void moveTo(int position) {
+            this.position = position;
+            value = null;
+            lineNumber = null;
+        }
+
+        @Override
+        public TokenType getName() {
+            return TYPES[types[slot(position)]];
+        }
+
+        @Override
+        public String getValue() {
+            if (value == null)
+                value = valueAt(slot(position));
+            return value;
+        }
+
+        @Override
+        public Integer getLineNumber() {
+            if (lineNumber == null)
+                lineNumber = lines[slot(position)];
+            return lineNumber;
+        }
+
+        @Override
+        public int getAtom() {
+            int slot = slot(position);
+            return types[slot] == TokenType.ID.ordinal() ? starts[slot] : AtomTable.NO_ATOM;
+        }
+
+        @Override
+        public OperatorKind getOperator() {
+            int slot = slot(position);
+            return types[slot] == TokenType.OP.ordinal() ? OPERATORS[starts[slot]] : null;
+        }
+
+        @Override
+        public boolean isIntegral() {
+            return numbers[slot(position)] >= 0;
+        }
+
+        @Override
+        public long getLongValue() {
+            long number = numbers[slot(position)];
+            return number >= 0 ? number : (long) Double.longBitsToDouble(~number);
+        }
+
+        @Override
+        public double getDoubleValue() {
+            long number = numbers[slot(position)];
+            return number >= 0 ? number : Double.longBitsToDouble(~number);
+        }
+
+        @Override
+        public Token withName(TokenType name) {
+            return name.hasValue() ? new VariableToken(name, getValue(), getLineNumber()) : new StaticToken(name, getLineNumber());
+        }
+
+        @Override
+        public Token withValue(String value) {
+            return new VariableToken(getName(), value, getLineNumber());
+        }
+
+        @Override
+        public Token withLineNumber(Integer lineNumber) {
+            TokenType name = getName();
+            if (name == TokenType.NUMBER) {
+                long number = numbers[slot(position)];
+                return new NumberToken(getValue(), lineNumber, number >= 0, number >= 0 ? number : ~number);
+            }
+            if (name == TokenType.OP)
+                return new OperatorToken(getOperator(), lineNumber);
+            return name.hasValue() ? new VariableToken(name, getValue(), lineNumber) : new StaticToken(name, lineNumber);
+        }
+
+        @Override
+        public String toString() {
+            return withLineNumber(getLineNumber()).toString();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.piedpiper.swerve.lexer;
+
+/**
+ * Where the lexer puts the tokens it finds
+ */
+interface TokenSink {
+    // keywords and punctuation, fully described by their type
+    void add(TokenType type, int lineNumber);
+
+    void add(TokenType type, String value, int lineNumber);
+
+    // the value is text[start, end)
+    void add(TokenType type, CharSequence text, int start, int end, int lineNumber);
+
+    // a whole multi-line string literal text[start, end) with its delimiters; its value still has to be built
+    void addMultilineString(CharSequence text, int start, int end, int lineNumber);
+
+    // a number literal text[start, end) and its value: the long itself, or the bits of the double
+    void addNumber(CharSequence text, int start, int end, boolean integral, long bits, int lineNumber);
+
+    void addOperator(OperatorKind operator, int lineNumber);
+
+    // name is the atom's interned name
+    void addIdentifier(int atom, String name, int lineNumber);
+
+    int size();
+}
@@ -0,0 +1,25 @@
+package com.piedpiper.swerve.lexer;
+
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Pull based source of tokens for the parser.
+ * Tokens are only produced as far as they are looked at, consumed tokens can be dropped
+ */
+public interface TokenStream {
+    // token at the given distance from the current one or null when past EOF
+    Token peek(int offset);
+
+    // drop the current token
+    void advance();
+
+    static TokenStream of(List<Token> tokens) {
+        return new ListTokenStream(tokens);
+    }
+
+    // tokens as they are consumed are also written to out; write errors surface as UncheckedIOException
+    static TokenStream writing(TokenStream tokens, Writer out) {
+        return new WritingTokenStream(tokens, out);
+    }
+}
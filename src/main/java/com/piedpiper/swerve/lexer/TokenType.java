@@ -33,5 +33,10 @@ public enum TokenType {
     KW_TRUE,
     KW_FALSE,
     KW_ARR,
-    KW_NULL
+    KW_NULL;
+
+    // tokens of these types carry their lexeme as value, the rest are fully described by their type
+    public boolean hasValue() {
+        return this == NUMBER || this == OP || this == ID || this == STRING;
+    }
 }
@@ -0,0 +1,41 @@
+package com.piedpiper.swerve.lexer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+// passes tokens through unchanged and writes each one to out as it is consumed, one line per token
+class WritingTokenStream implements TokenStream {
+    private final TokenStream tokens;
+    private final Writer out;
+
+    WritingTokenStream(TokenStream tokens, Writer out) {
+        this.tokens = tokens;
+        this.out = out;
+    }
+
+    @Override
+    public Token peek(int offset) {
+        return tokens.peek(offset);
+    }
+
+    @Override
+    public void advance() {
+        Token token = tokens.peek(0);
+        if (token != null)
+            write(token);
+        tokens.advance();
+    }
+
+    private void write(Token token) {
+        try {
+            out.write("Token: ");
+            out.write(token.getName().name());
+            if (token.getName().hasValue())
+                out.append(" ('").append(token.getValue()).append("')");
+            out.append(", line: ").append(String.valueOf(token.getLineNumber())).append('\n');
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+}
@@ -1,16 +1,21 @@
 package com.piedpiper.swerve.parser;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import com.piedpiper.swerve.lexer.AtomTable;
+import com.piedpiper.swerve.lexer.OperatorKind;
 import com.piedpiper.swerve.lexer.Token;
 import com.piedpiper.swerve.lexer.TokenType;
-import com.piedpiper.swerve.lexer.VariableToken;
 
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.RequiredArgsConstructor;
 
 @RequiredArgsConstructor
@@ -21,59 +26,114 @@ public class AbstractSyntaxTree {
     private String value = "";
     private Integer lineNumber = 0;
     private List<AbstractSyntaxTree> children = new ArrayList<>();
+    // identifier atom carried over from the token; not part of equality since hand built trees don't have one
+    @EqualsAndHashCode.Exclude
+    private int atom = AtomTable.NO_ATOM;
+    // operator of an OP token, null otherwise; it only restates the value
+    @EqualsAndHashCode.Exclude
+    private OperatorKind operator;
+    // value of a number literal as parsed by the lexer
+    @EqualsAndHashCode.Exclude
+    private boolean integral;
+    @EqualsAndHashCode.Exclude
+    private long longValue;
+    @EqualsAndHashCode.Exclude
+    private double doubleValue;
+    // derived from the label, or from the name for terminals; null for labels the parser never builds.
+    // The setters of label, name and kind keep them in agreement
+    @EqualsAndHashCode.Exclude
+    private NodeKind kind;
+
+    public AbstractSyntaxTree(NodeKind kind) {
+        this.label = kind.getLabel();
+        this.kind = kind;
+    }
+
+    public AbstractSyntaxTree(NodeKind kind, int lineNumber) {
+        this(kind);
+        this.lineNumber = lineNumber;
+    }
+
+    public AbstractSyntaxTree(NodeKind kind, int lineNumber, List<AbstractSyntaxTree> children) {
+        this(kind, lineNumber);
+        this.children.addAll(children); // setting this.children = children causes the list to become immutable
+    }
 
     public AbstractSyntaxTree(String label) {
         this.label = label;
+        this.kind = NodeKind.ofLabel(label);
     }
 
     public AbstractSyntaxTree(String label, int lineNumber) {
         this.label = label;
+        this.kind = NodeKind.ofLabel(label);
         this.lineNumber = lineNumber;
     }
 
     public AbstractSyntaxTree(String label, List<AbstractSyntaxTree> children) {
         this.label = label;
+        this.kind = NodeKind.ofLabel(label);
         this.children.addAll(children); // setting this.children = children causes the list to become immutable
     }
 
     public AbstractSyntaxTree(String label, int lineNumber, List<AbstractSyntaxTree> children) {
         this.label = label;
+        this.kind = NodeKind.ofLabel(label);
         this.lineNumber = lineNumber;
         this.children.addAll(children); // setting this.children = children causes the list to become immutable
     }
 
     public AbstractSyntaxTree(String label, Token... children) {
         this.label = label;
+        this.kind = NodeKind.ofLabel(label);
         this.children.addAll(tokensToNodes(children));
     }
 
     public AbstractSyntaxTree(String label, int lineNumber, Token... children) {
         this.label = label;
+        this.kind = NodeKind.ofLabel(label);
         this.lineNumber = lineNumber;
         this.children.addAll(tokensToNodes(children));
     }
 
     public AbstractSyntaxTree(Token token) {
-        this.label = "terminal";
+        this.label = NodeKind.TERMINAL;
+        this.kind = NodeKind.of(token.getName());
         this.name = token.getName();
-        if (token instanceof VariableToken)
+        if (token.getName().hasValue())
             this.value = token.getValue();
         this.lineNumber = token.getLineNumber();
+        this.atom = token.getAtom();
+        this.operator = token.getOperator();
+        setNumber(token);
     }
 
     public AbstractSyntaxTree(String label, Token token) {
         this.label = label;
+        this.kind = NodeKind.ofLabel(label);
         this.children.add(new AbstractSyntaxTree(token));
     }
 
     public AbstractSyntaxTree(Token token, List<AbstractSyntaxTree> children) {
-        this.label = "terminal";
+        this.label = NodeKind.TERMINAL;
+        this.kind = NodeKind.of(token.getName());
         this.name = token.getName();
-        if (token instanceof VariableToken)
+        if (token.getName().hasValue())
             this.value = token.getValue();
+        this.atom = token.getAtom();
+        this.operator = token.getOperator();
+        setNumber(token);
         this.children.addAll(children);
     }
 
+    private void setNumber(Token token) {
+        if (token.getName() != TokenType.NUMBER)
+            return;
+        integral = token.isIntegral();
+        longValue = token.getLongValue();
+        doubleValue = token.getDoubleValue();
+    }
+
     public AbstractSyntaxTree(Token... tokens) { // the first element becomes the parent of the rest of the tokens
         this(tokens[0], tokensToNodes(Arrays.copyOfRange(tokens, 1, tokens.length)));
     }
@@ -86,6 +146,26 @@ public class AbstractSyntaxTree {
         return name;
     }
 
+    public void setLabel(String label) {
+        this.label = label;
+        if (!NodeKind.TERMINAL.equals(label))
+            kind = label == null ? null : NodeKind.ofLabel(label);
+        else
+            kind = name == null ? null : NodeKind.of(name);
+    }
+
+    public void setName(TokenType name) {
+        this.name = name;
+        if (NodeKind.TERMINAL.equals(label) && name != null)
+            kind = NodeKind.of(name);
+    }
+
+    // a terminal kind only sets the label; the name is what tells terminals apart
+    public void setKind(NodeKind kind) {
+        this.kind = kind;
+        label = kind == null ? null : kind.getLabel();
+    }
+
     public String getValue() {
         return value;
     }
@@ -94,24 +174,29 @@ public class AbstractSyntaxTree {
         return lineNumber;
     }
 
+    // these go through getChildren() so lazily parsed function bodies are parsed first
     public void appendChildren(AbstractSyntaxTree... children) {
-        Collections.addAll(this.children, children);
+        Collections.addAll(getChildren(), children);
     }
 
     public boolean hasChildren() {
-        return !children.isEmpty();
+        return !getChildren().isEmpty();
     }
 
     public int countChildren() {
         if (!hasChildren())
             return 0;
-        return children.size();
+        return getChildren().size();
     }
 
     public boolean matchesLabel(String value) {
         return label.equals(value);
     }
 
+    public boolean matchesKind(NodeKind kind) {
+        return this.kind == kind;
+    }
+
     public boolean matchesStaticToken(TokenType value) {
         return name == value;
     }
@@ -120,12 +205,16 @@ public class AbstractSyntaxTree {
         return this.value.equals(value);
     }
 
+    public boolean matchesOperator(OperatorKind operator) {
+        return this.operator == operator;
+    }
+
     public boolean isDoubleLiteral() {
         return name == TokenType.NUMBER;
     }
 
     public boolean isIntegerLiteral() {
-        return name == TokenType.NUMBER && !value.contains(".");
+        return name == TokenType.NUMBER && integral;
     }
 
     public boolean isStringLiteral() {
@@ -137,52 +226,89 @@ public class AbstractSyntaxTree {
     }
 
     public boolean isArrayLiteral() {
-        return matchesLabel("ARRAY-LIT");
+        return kind == NodeKind.ARRAY_LIT;
     }
 
     public boolean isTypeLabel() {
-        final List<TokenType> typeTokens = List.of(
-            TokenType.KW_BOOL,
-            TokenType.KW_INT,
-            TokenType.KW_DOUBLE,
-            TokenType.KW_STR,
-            TokenType.KW_ARR,
-            TokenType.KW_GEN
-        );
-        if (name == null)
-            return false;
-        return typeTokens.contains(name);
-    }
-
-    @Override
-    public String toString() {
-        return toString(0);
+        return kind == NodeKind.TYPE;
     }
 
-    private String toString(int indentLevel) {
-        String indentation = getNestedIndentation(indentLevel);
-        StringBuilder output = new StringBuilder(indentation + "AST => ");
-        if (label.equals("terminal")) {
-            output.append("Token: ").append(name);
-            if (!value.isEmpty())
-                output.append(" ('").append(value).append("')");
-        }
-        else {
-            output.append(label);
-        }
-        if (lineNumber != 0)
-                output.append(", line: ").append(lineNumber);
-        if (!children.isEmpty()) {
-            output.append(", children: [");
-            for (AbstractSyntaxTree child : children) {
-                output.append("\n").append(child.toString(indentLevel + 1));
-            }
-            output.append("\n").append(indentation).append("]");
+    // calls the visitor method for this node's kind
+    public <R> R accept(AstVisitor<R> visitor) {
+        if (kind == null)
+            return visitor.visitNode(this);
+        switch (kind) {
+            case PROGRAM:
+                return visitor.visitProgram(this);
+            case VAR_DECL:
+                return visitor.visitVariableDeclaration(this);
+            case ARRAY_DECL:
+                return visitor.visitArrayDeclaration(this);
+            case ARRAY_INDEX:
+                return visitor.visitArrayIndex(this);
+            case ARRAY_LIT:
+                return visitor.visitArrayLiteral(this);
+            case BLOCK_BODY:
+                return visitor.visitBlockBody(this);
+            case COND:
+                return visitor.visitConditional(this);
+            case ELSE_IF:
+                return visitor.visitElseIf(this);
+            case CONTROL_FLOW:
+                return visitor.visitControlFlow(this);
+            case FUNC_CALL:
+                return visitor.visitFunctionCall(this);
+            case FUNC_PARAM:
+                return visitor.visitFunctionParam(this);
+            case FUNC_PARAMS:
+                return visitor.visitFunctionParams(this);
+            case TERNARY:
+                return visitor.visitTernary(this);
+            case UNARY_OP:
+                return visitor.visitUnaryOp(this);
+            case ERROR:
+                return visitor.visitError(this);
+            case IF:
+                return visitor.visitIf(this);
+            case ELSE:
+                return visitor.visitElse(this);
+            case WHILE_LOOP:
+                return visitor.visitWhileLoop(this);
+            case FOR_LOOP:
+                return visitor.visitForLoop(this);
+            case FUNCTION:
+                return visitor.visitFunction(this);
+            case PROTOTYPE:
+                return visitor.visitPrototype(this);
+            case OPERATOR:
+                return visitor.visitOperator(this);
+            case IDENTIFIER:
+                return visitor.visitIdentifier(this);
+            case NUMBER:
+                return visitor.visitNumber(this);
+            case STRING:
+                return visitor.visitString(this);
+            case BOOLEAN:
+                return visitor.visitBoolean(this);
+            case NULL:
+                return visitor.visitNull(this);
+            case TYPE:
+                return visitor.visitType(this);
+            case KEYWORD:
+                return visitor.visitKeyword(this);
+            default:
+                return visitor.visitNode(this);
         }
-        return output.toString();
     }
 
-    private String getNestedIndentation(int indentLevel) {
-        return "\t".repeat(Math.max(0, indentLevel));
+    @Override
+    public String toString() {
+        StringWriter out = new StringWriter();
+        try {
+            AstWriter.write(this, out);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception); // a StringWriter doesn't throw
+        }
+        return out.toString();
     }
 }
@@ -0,0 +1,274 @@
+package com.piedpiper.swerve.parser;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.piedpiper.swerve.lexer.AtomTable;
+import com.piedpiper.swerve.lexer.OperatorKind;
+import com.piedpiper.swerve.lexer.TokenType;
+
+/**
+ * Binary form of a parsed tree.
+ * A header with the format version and a fingerprint of the grammar enums, a table of every distinct value,
+ * then the nodes in pre-order: a varint tag for the kind, or for terminals the token the kind follows from,
+ * the value index and number of terminals that have them, a zigzag varint line delta and the child count.
+ * Data written by another version or grammar is rejected, so stale cache entries are never read back
+ */
+public final class AstCodec {
+    // bump whenever the parser builds different trees for the same source
+    public static final int FORMAT_VERSION = 1;
+    private static final int MAGIC = 0x53574153; // "SWAS"
+    private static final int GRAMMAR = grammarFingerprint();
+    private static final NodeKind[] KINDS = NodeKind.values();
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private AstCodec() {}
+
+    // changes whenever a node kind, token type or operator is added, removed or renamed
+    private static int grammarFingerprint() {
+        StringBuilder grammar = new StringBuilder();
+        for (NodeKind kind : NodeKind.values())
+            grammar.append(kind.name()).append(' ').append(kind.getLabel()).append(',');
+        for (TokenType type : TokenType.values())
+            grammar.append(type.name()).append(',');
+        for (OperatorKind operator : OperatorKind.values())
+            grammar.append(operator.getSymbol()).append(',');
+        return grammar.toString().hashCode();
+    }
+
+    public static byte[] encode(AbstractSyntaxTree tree) {
+        Output nodes = new Output();
+        Map<String, Integer> indexes = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        int count = 0;
+        int line = 0;
+        List<AbstractSyntaxTree> pending = new ArrayList<>();
+        pending.add(tree);
+        while (!pending.isEmpty()) {
+            AbstractSyntaxTree node = pending.remove(pending.size() - 1);
+            NodeKind kind = node.getKind();
+            if (kind == null)
+                throw new IllegalArgumentException("Only nodes the parser builds can be encoded, not " + node.getLabel());
+            if (kind.isTerminal()) {
+                nodes.varint(KINDS.length + node.getName().ordinal());
+                if (node.getName().hasValue()) {
+                    Integer index = indexes.get(node.getValue());
+                    if (index == null) {
+                        index = strings.size();
+                        strings.add(node.getValue());
+                        indexes.put(node.getValue(), index);
+                    }
+                    nodes.varint(index);
+                }
+                // doubles as their complemented bits like in TokenBuffer, literals are never negative
+                if (node.getName() == TokenType.NUMBER)
+                    nodes.varint(node.isIntegral() ? node.getLongValue() : ~Double.doubleToRawLongBits(node.getDoubleValue()));
+            }
+            else
+                nodes.varint(kind.ordinal());
+            nodes.varint(zigzag(node.getLineNumber() - line));
+            line = node.getLineNumber();
+            nodes.varint(node.getChildren().size());
+            count++;
+            for (int i = node.getChildren().size() - 1; i >= 0; i--)
+                pending.add(node.getChildren().get(i));
+        }
+
+        Output output = new Output();
+        output.fixed(MAGIC);
+        output.varint(FORMAT_VERSION);
+        output.fixed(GRAMMAR);
+        output.varint(strings.size());
+        for (String string : strings) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            output.varint(bytes.length);
+            output.bytes(bytes, bytes.length);
+        }
+        output.varint(count);
+        output.bytes(nodes.bytes, nodes.size);
+        return Arrays.copyOf(output.bytes, output.size);
+    }
+
+    // identifiers are interned into atoms when a table is given
+    public static AbstractSyntaxTree decode(byte[] data, AtomTable atoms) throws IOException {
+        Input input = new Input(data);
+        if (input.fixed() != MAGIC)
+            throw new IOException("Not an encoded syntax tree");
+        int version = input.index(Integer.MAX_VALUE);
+        if (version != FORMAT_VERSION || input.fixed() != GRAMMAR)
+            throw new IOException("Syntax tree was encoded by format version " + version + " or another grammar");
+        String[] strings = new String[input.index(data.length)];
+        for (int i = 0; i < strings.length; i++) {
+            int length = input.index(data.length);
+            strings[i] = input.string(length);
+        }
+
+        int count = input.index(data.length);
+        AbstractSyntaxTree root = null;
+        List<AbstractSyntaxTree> open = new ArrayList<>();
+        // per open node the number of children still to come
+        int[] remaining = new int[16];
+        int line = 0;
+        // per value its operator and atom, worked out once however often the value occurs
+        OperatorKind[] operators = new OperatorKind[strings.length];
+        int[] valueAtoms = new int[strings.length];
+        Arrays.fill(valueAtoms, AtomTable.NO_ATOM);
+        for (int i = 0; i < count; i++) {
+            int tag = input.index(KINDS.length + TYPES.length);
+            AbstractSyntaxTree node;
+            if (tag < KINDS.length) {
+                if (KINDS[tag].isTerminal())
+                    throw new IOException("Corrupt syntax tree: terminal " + KINDS[tag] + " without a token");
+                line += unzigzag(input.varint());
+                node = new AbstractSyntaxTree(KINDS[tag], line);
+            }
+            else {
+                // built field by field, without a token in between
+                TokenType name = TYPES[tag - KINDS.length];
+                int value = name.hasValue() ? input.index(strings.length) : -1;
+                long number = name == TokenType.NUMBER ? input.varint() : 0;
+                line += unzigzag(input.varint());
+                node = new AbstractSyntaxTree(NodeKind.of(name), line);
+                node.setName(name);
+                if (value >= 0)
+                    node.setValue(strings[value]);
+                if (name == TokenType.OP) {
+                    if (operators[value] == null)
+                        operators[value] = OperatorKind.of(strings[value]);
+                    node.setOperator(operators[value]);
+                }
+                else if (name == TokenType.NUMBER) {
+                    boolean integral = number >= 0;
+                    double doubleValue = integral ? number : Double.longBitsToDouble(~number);
+                    node.setIntegral(integral);
+                    node.setLongValue(integral ? number : (long) doubleValue);
+                    node.setDoubleValue(doubleValue);
+                }
+                else if (name == TokenType.ID && atoms != null) {
+                    if (valueAtoms[value] == AtomTable.NO_ATOM)
+                        valueAtoms[value] = atoms.intern(strings[value]);
+                    node.setAtom(valueAtoms[value]);
+                }
+            }
+            int children = input.index(count);
+
+            if (root == null)
+                root = node;
+            else if (open.isEmpty())
+                throw new IOException("Corrupt syntax tree: more than one root");
+            else {
+                int top = open.size() - 1;
+                open.get(top).appendChildren(node);
+                if (--remaining[top] == 0)
+                    open.remove(top);
+            }
+            if (children > 0) {
+                if (open.size() == remaining.length)
+                    remaining = Arrays.copyOf(remaining, remaining.length * 2);
+                remaining[open.size()] = children;
+                open.add(node);
+            }
+        }
+        if (root == null || !open.isEmpty() || !input.atEnd())
+            throw new IOException("Corrupt syntax tree: node count doesn't match the data");
+        return root;
+    }
+
+    private static long zigzag(int value) {
+        return ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL;
+    }
+
+    private static int unzigzag(long value) {
+        return (int) (value >>> 1) ^ -(int) (value & 1);
+    }
+
+    private static final class Output {
+        private byte[] bytes = new byte[256];
+        private int size = 0;
+
+        private void varint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((byte) (value & 0x7F | 0x80));
+                value >>>= 7;
+            }
+            write((byte) value);
+        }
+
+        private void fixed(int value) {
+            for (int shift = 24; shift >= 0; shift -= 8)
+                write((byte) (value >>> shift));
+        }
+
+        private void bytes(byte[] source, int length) {
+            if (size + length > bytes.length)
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + length));
+            System.arraycopy(source, 0, bytes, size, length);
+            size += length;
+        }
+
+        private void write(byte value) {
+            if (size == bytes.length)
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            bytes[size++] = value;
+        }
+    }
+
+    // every read is bounds checked, so truncated or corrupt data fails with an IOException
+    private static final class Input {
+        private final byte[] bytes;
+        private int position = 0;
+
+        private Input(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        private long varint() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte next = read();
+                value |= (long) (next & 0x7F) << shift;
+                if (next >= 0)
+                    return value;
+            }
+            throw new IOException("Corrupt syntax tree: varint too long");
+        }
+
+        // a varint that must lie in [0, bound)
+        private int index(int bound) throws IOException {
+            long value = varint();
+            if (value < 0 || value >= bound)
+                throw new IOException("Corrupt syntax tree: " + value + " out of range");
+            return (int) value;
+        }
+
+        private int fixed() throws IOException {
+            int value = 0;
+            for (int i = 0; i < 4; i++)
+                value = value << 8 | read() & 0xFF;
+            return value;
+        }
+
+        private String string(int length) throws IOException {
+            if (length > bytes.length - position)
+                throw new IOException("Corrupt syntax tree: truncated string");
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        private byte read() throws IOException {
+            if (position == bytes.length)
+                throw new IOException("Corrupt syntax tree: truncated data");
+            return bytes[position++];
+        }
+
+        private boolean atEnd() {
+            return position == bytes.length;
+        }
+    }
+}
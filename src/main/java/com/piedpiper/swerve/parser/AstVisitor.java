@@ -0,0 +1,125 @@
+package com.piedpiper.swerve.parser;
+
+/**
+ * One method per NodeKind, called by AbstractSyntaxTree.accept with a single switch on the node's kind.
+ * Every method falls back to visitNode, so a pass only overrides the kinds it cares about
+ */
+public interface AstVisitor<R> {
+    R visitNode(AbstractSyntaxTree node);
+
+    default R visitProgram(AbstractSyntaxTree node) {
+        return visitNode(node);
+    }
+
+    default R visitVariableDeclaration(AbstractSyntaxTree node) {
+        return visitNode(node);
+    }
+
+    default R visitArrayDeclaration(AbstractSyntaxTree node) {
+        return visitNode(node);
+    }
+
+    default R visitArrayIndex(AbstractSyntaxTree node) {
+        return visitNode(node);
+    }
+
+    default R visitArrayLiteral(AbstractSyntaxTree node) {
+        return visitNode(node);
+    }
+
+    default R visitBlockBody(AbstractSyntaxTree node) {
+        return visitNode(node);
+    }
+
+    default R visitConditional(AbstractSyntaxTree node) {
+        return visitNode(node);
+    }
+
+    default R visitElseIf(AbstractSyntaxTree node) {
+        return visitNode(node);
+    }
+
+    default R visitControlFlow(AbstractSyntaxTree node) {
+        return visitNode(node);
+    }
+
+    default R visitFunctionCall(AbstractSyntaxTree node) {
+        return visitNode(node);
+    }
+
+    default R visitFunctionParam(AbstractSyntaxTree node) {
+        return visitNode(node);
+    }
+
+    default R visitFunctionParams(AbstractSyntaxTree node) {
+        return visitNode(node);
+    }
+
+    default R visitTernary(AbstractSyntaxTree node) {
+        return visitNode(node);
+    }
+
+    default R visitUnaryOp(AbstractSyntaxTree node) {
+        return visitNode(node);
+    }
+
+    default R visitError(AbstractSyntaxTree node) {
+        return visitNode(node);
+    }
+
+    default R visitIf(AbstractSyntaxTree node) {
+        return visitNode(node);
+    }
+
+    default R visitElse(AbstractSyntaxTree node) {
+        return visitNode(node);
+    }
+
+    default R visitWhileLoop(AbstractSyntaxTree node) {
+        return visitNode(node);
+    }
+
+    default R visitForLoop(AbstractSyntaxTree node) {
+        return visitNode(node);
+    }
+
+    default R visitFunction(AbstractSyntaxTree node) {
+        return visitNode(node);
+    }
+
+    default R visitPrototype(AbstractSyntaxTree node) {
+        return visitNode(node);
+    }
+
+    default R visitOperator(AbstractSyntaxTree node) {
+        return visitNode(node);
+    }
+
+    default R visitIdentifier(AbstractSyntaxTree node) {
+        return visitNode(node);
+    }
+
+    default R visitNumber(AbstractSyntaxTree node) {
+        return visitNode(node);
+    }
+
+    default R visitString(AbstractSyntaxTree node) {
+        return visitNode(node);
+    }
+
+    default R visitBoolean(AbstractSyntaxTree node) {
+        return visitNode(node);
+    }
+
+    default R visitNull(AbstractSyntaxTree node) {
+        return visitNode(node);
+    }
+
+    default R visitType(AbstractSyntaxTree node) {
+        return visitNode(node);
+    }
+
+    default R visitKeyword(AbstractSyntaxTree node) {
+        return visitNode(node);
+    }
+}
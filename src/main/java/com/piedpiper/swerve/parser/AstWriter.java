@@ -0,0 +1,130 @@
+package com.piedpiper.swerve.parser;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streams a tree to a Writer instead of building it up as one String.
+ * Both formats walk an explicit stack of open nodes, so deep trees don't overflow and nothing is buffered but the Writer's own buffer
+ */
+public final class AstWriter {
+    private final Writer out;
+    private final List<AbstractSyntaxTree> open = new ArrayList<>();
+    // per open node the index of the next child to write
+    private int[] nextChildren = new int[16];
+
+    private AstWriter(Writer out) {
+        this.out = out;
+    }
+
+    // the same text as AbstractSyntaxTree.toString()
+    public static void write(AbstractSyntaxTree tree, Writer out) throws IOException {
+        new AstWriter(out).writeText(tree);
+    }
+
+    // one JSON object per node: kind, token and value for terminals, line when known and children when there are any
+    public static void writeJson(AbstractSyntaxTree tree, Writer out) throws IOException {
+        new AstWriter(out).writeJsonTree(tree);
+    }
+
+    private void writeText(AbstractSyntaxTree tree) throws IOException {
+        writeTextNode(tree, 0);
+        while (!open.isEmpty()) {
+            int top = open.size() - 1;
+            List<AbstractSyntaxTree> children = open.get(top).getChildren();
+            out.write('\n');
+            if (nextChildren[top] < children.size()) {
+                writeTextNode(children.get(nextChildren[top]++), top + 1);
+                continue;
+            }
+            indent(top);
+            out.write(']');
+            open.remove(top);
+        }
+    }
+
+    private void writeTextNode(AbstractSyntaxTree node, int depth) throws IOException {
+        indent(depth);
+        out.write("AST => ");
+        if (node.getLabel().equals(NodeKind.TERMINAL)) {
+            out.append("Token: ").append(String.valueOf(node.getName()));
+            if (!node.getValue().isEmpty())
+                out.append(" ('").append(node.getValue()).append("')");
+        }
+        else {
+            out.write(node.getLabel());
+        }
+        if (node.getLineNumber() != 0)
+            out.append(", line: ").append(String.valueOf(node.getLineNumber()));
+        if (node.hasChildren()) {
+            out.write(", children: [");
+            push(node);
+        }
+    }
+
+    private void indent(int depth) throws IOException {
+        for (int i = 0; i < depth; i++)
+            out.write('\t');
+    }
+
+    private void writeJsonTree(AbstractSyntaxTree tree) throws IOException {
+        writeJsonNode(tree);
+        while (!open.isEmpty()) {
+            int top = open.size() - 1;
+            List<AbstractSyntaxTree> children = open.get(top).getChildren();
+            if (nextChildren[top] < children.size()) {
+                if (nextChildren[top] > 0)
+                    out.write(',');
+                writeJsonNode(children.get(nextChildren[top]++));
+                continue;
+            }
+            out.write("]}");
+            open.remove(top);
+        }
+    }
+
+    private void writeJsonNode(AbstractSyntaxTree node) throws IOException {
+        out.write("{\"kind\":");
+        writeJsonString(node.getKind() == null ? node.getLabel() : node.getKind().name());
+        if (node.getName() != null) {
+            out.write(",\"token\":");
+            writeJsonString(node.getName().name());
+            if (node.getName().hasValue()) {
+                out.write(",\"value\":");
+                writeJsonString(node.getValue());
+            }
+        }
+        if (node.getLineNumber() != 0)
+            out.append(",\"line\":").append(String.valueOf(node.getLineNumber()));
+        if (node.hasChildren()) {
+            out.write(",\"children\":[");
+            push(node);
+        }
+        else
+            out.write('}');
+    }
+
+    private void writeJsonString(String value) throws IOException {
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\')
+                out.append('\\').append(c);
+            else if (c < 0x20)
+                out.write(String.format("\\u%04x", (int) c));
+            else
+                out.write(c);
+        }
+        out.write('"');
+    }
+
+    private void push(AbstractSyntaxTree node) {
+        if (open.size() == nextChildren.length)
+            nextChildren = Arrays.copyOf(nextChildren, nextChildren.length * 2);
+        nextChildren[open.size()] = 0;
+        open.add(node);
+    }
+}
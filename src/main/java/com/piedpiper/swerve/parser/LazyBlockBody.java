@@ -0,0 +1,42 @@
+package com.piedpiper.swerve.parser;
+
+import java.util.List;
+
+import com.piedpiper.swerve.lexer.Token;
+
+/**
+ * BLOCK-BODY of a function or prototype that Parser.parseLazily only matched braces for.
+ * It keeps the tokens from the first statement up to the closing "}" and parses them the first time its children are asked for,
+ * so a syntax error in the body is thrown from there. Compares equal to the BLOCK-BODY parse() builds
+ */
+final class LazyBlockBody extends AbstractSyntaxTree {
+    // null once the statements are parsed; equals and hashCode are inherited and go through getChildren()
+    private List<Token> tokens;
+
+    LazyBlockBody(int lineNumber, List<Token> tokens) {
+        super(NodeKind.BLOCK_BODY, lineNumber);
+        this.tokens = tokens;
+    }
+
+    boolean isParsed() {
+        return tokens == null;
+    }
+
+    @Override
+    public List<AbstractSyntaxTree> getChildren() {
+        if (tokens != null) {
+            // parsed on the side so a body that throws is parsed (and throws) again next time instead of looking half empty
+            AbstractSyntaxTree body = new AbstractSyntaxTree(NodeKind.BLOCK_BODY, getLineNumber());
+            Parser.parseBody(tokens, body);
+            super.getChildren().addAll(body.getChildren());
+            tokens = null;
+        }
+        return super.getChildren();
+    }
+
+    @Override
+    public void setChildren(List<AbstractSyntaxTree> children) {
+        tokens = null;
+        super.setChildren(children);
+    }
+}
@@ -0,0 +1,112 @@
+package com.piedpiper.swerve.parser;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.piedpiper.swerve.lexer.TokenType;
+
+// every kind of node the parser builds, so later phases can switch on the kind instead of comparing labels and token names
+public enum NodeKind {
+    PROGRAM("PROGRAM"),
+    VAR_DECL("VAR-DECL"),
+    ARRAY_DECL("ARRAY-DECL"),
+    ARRAY_INDEX("ARRAY-INDEX"),
+    ARRAY_LIT("ARRAY-LIT"),
+    BLOCK_BODY("BLOCK-BODY"),
+    COND("COND"),
+    ELSE_IF("ELSE IF"),
+    CONTROL_FLOW("CONTROL-FLOW"),
+    FUNC_CALL("FUNC-CALL"),
+    FUNC_PARAM("FUNC-PARAM"),
+    FUNC_PARAMS("FUNC-PARAMS"),
+    TERNARY("TERNARY"),
+    UNARY_OP("UNARY-OP"),
+    // what is left of a statement the parser skipped while recovering from a syntax error
+    ERROR("ERROR"),
+    // terminals, told apart by the token they were built from
+    IF,
+    ELSE,
+    WHILE_LOOP,
+    FOR_LOOP,
+    FUNCTION,
+    PROTOTYPE,
+    OPERATOR,
+    IDENTIFIER,
+    NUMBER,
+    STRING,
+    BOOLEAN,
+    NULL,
+    TYPE,
+    KEYWORD;
+
+    public static final String TERMINAL = "terminal";
+    private static final Map<String, NodeKind> BY_LABEL = new HashMap<>();
+
+    static {
+        for (NodeKind kind : values())
+            if (!kind.isTerminal())
+                BY_LABEL.put(kind.label, kind);
+    }
+
+    private final String label;
+
+    NodeKind() {
+        this(TERMINAL);
+    }
+
+    NodeKind(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public boolean isTerminal() {
+        return label.equals(TERMINAL);
+    }
+
+    // the kind labeled label, or null for labels the parser doesn't build
+    public static NodeKind ofLabel(String label) {
+        return BY_LABEL.get(label);
+    }
+
+    public static NodeKind of(TokenType name) {
+        switch (name) {
+            case KW_IF:
+                return IF;
+            case KW_ELSE:
+                return ELSE;
+            case KW_WHILE:
+                return WHILE_LOOP;
+            case KW_FOR:
+                return FOR_LOOP;
+            case KW_FN:
+                return FUNCTION;
+            case KW_PROTO:
+                return PROTOTYPE;
+            case OP:
+                return OPERATOR;
+            case ID:
+                return IDENTIFIER;
+            case NUMBER:
+                return NUMBER;
+            case STRING:
+                return STRING;
+            case KW_TRUE:
+            case KW_FALSE:
+                return BOOLEAN;
+            case KW_NULL:
+                return NULL;
+            case KW_INT:
+            case KW_DOUBLE:
+            case KW_STR:
+            case KW_BOOL:
+            case KW_GEN:
+            case KW_ARR:
+                return TYPE;
+            default:
+                return KEYWORD;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.piedpiper.swerve.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import com.piedpiper.swerve.lexer.NumberToken;
+import com.piedpiper.swerve.lexer.OperatorKind;
+import com.piedpiper.swerve.lexer.OperatorToken;
+import com.piedpiper.swerve.lexer.StaticToken;
+import com.piedpiper.swerve.lexer.Token;
+import com.piedpiper.swerve.lexer.TokenType;
+import com.piedpiper.swerve.lexer.VariableToken;
+
+/**
+ * ARRAY-LIT whose elements are all literals of one kind: numbers (negated ones too), strings or booleans.
+ * The parser packs big ones into arrays instead of building a node per element, so a lookup table is typed and sized
+ * from what is known up front. Numbers are kept like in TokenBuffer, doubles as their complemented bits.
+ * The first time the children are asked for or set, the elements become ordinary mutable children and the packed arrays
+ * are dropped, like a LazyBlockBody is parsed; the element accessors are only there while isPacked().
+ * The literal compares equal to the ARRAY-LIT the parser builds for the same elements
+ */
+public final class PackedArrayLiteral extends AbstractSyntaxTree {
+    // smaller literals aren't worth it and stay ordinary nodes
+    static final int MIN_ELEMENTS = 16;
+
+    private final NodeKind elementKind;
+    private final int size;
+    private final boolean integral;
+    // NUMBER values, 1 and 0 for true and false; the arrays are null once the elements are children
+    private long[] numbers;
+    private BitSet negated;
+    private String[] strings;
+    private int[] lines;
+
+    private PackedArrayLiteral(int lineNumber, Builder builder) {
+        super(NodeKind.ARRAY_LIT, lineNumber);
+        elementKind = builder.elementKind;
+        size = builder.size;
+        integral = builder.integral;
+        numbers = builder.numbers == null ? null : Arrays.copyOf(builder.numbers, size);
+        negated = builder.negated;
+        strings = builder.strings == null ? null : Arrays.copyOf(builder.strings, size);
+        lines = Arrays.copyOf(builder.lines, size);
+    }
+
+    // false once the elements are ordinary children, which passes may have changed
+    public boolean isPacked() {
+        return lines != null;
+    }
+
+    // NUMBER, STRING or BOOLEAN
+    public NodeKind getElementKind() {
+        checkPacked();
+        return elementKind;
+    }
+
+    // whether every element is an integer; only numbers can be
+    public boolean isIntegral() {
+        checkPacked();
+        return elementKind == NodeKind.NUMBER && integral;
+    }
+
+    public int size() {
+        checkPacked();
+        return size;
+    }
+
+    public boolean isNegated(int index) {
+        checkPacked();
+        return negated.get(index);
+    }
+
+    public long getLongValue(int index) {
+        checkPacked();
+        long number = numbers[index];
+        long value = number >= 0 ? number : (long) Double.longBitsToDouble(~number);
+        return negated.get(index) ? -value : value;
+    }
+
+    public double getDoubleValue(int index) {
+        checkPacked();
+        long number = numbers[index];
+        double value = number >= 0 ? number : Double.longBitsToDouble(~number);
+        return negated.get(index) ? -value : value;
+    }
+
+    public String getString(int index) {
+        checkPacked();
+        return strings[index];
+    }
+
+    public boolean getBoolean(int index) {
+        checkPacked();
+        return numbers[index] != 0;
+    }
+
+    private void checkPacked() {
+        if (!isPacked())
+            throw new IllegalStateException("The elements of the array literal are children now");
+    }
+
+    @Override
+    public boolean hasChildren() {
+        return isPacked() ? size > 0 : super.hasChildren();
+    }
+
+    @Override
+    public int countChildren() {
+        return isPacked() ? size : super.countChildren();
+    }
+
+    @Override
+    public List<AbstractSyntaxTree> getChildren() {
+        if (isPacked()) {
+            List<AbstractSyntaxTree> children = new ArrayList<>(size);
+            for (int i = 0; i < size; i++)
+                children.add(element(i));
+            unpack();
+            super.getChildren().addAll(children);
+        }
+        return super.getChildren();
+    }
+
+    @Override
+    public void setChildren(List<AbstractSyntaxTree> children) {
+        unpack();
+        super.setChildren(children);
+    }
+
+    private void unpack() {
+        numbers = null;
+        negated = null;
+        strings = null;
+        lines = null;
+    }
+
+    // the node parseExpr() builds for the element
+    private AbstractSyntaxTree element(int index) {
+        int line = lines[index];
+        switch (elementKind) {
+            case STRING:
+                return new AbstractSyntaxTree(new VariableToken(TokenType.STRING, strings[index], line));
+            case BOOLEAN:
+                return new AbstractSyntaxTree(new StaticToken(numbers[index] != 0 ? TokenType.KW_TRUE : TokenType.KW_FALSE, line));
+            default:
+                long number = numbers[index];
+                Token token = number >= 0
+                    ? new NumberToken(Long.toString(number), line, true, number)
+                    : new NumberToken(Double.toString(Double.longBitsToDouble(~number)), line, false, ~number);
+                AbstractSyntaxTree node = new AbstractSyntaxTree(token);
+                if (!negated.get(index))
+                    return node;
+                return new AbstractSyntaxTree(NodeKind.UNARY_OP, line, List.of(
+                    new AbstractSyntaxTree(new OperatorToken(OperatorKind.MINUS, line)),
+                    node
+                ));
+        }
+    }
+
+    /**
+     * Collects a run of elements while the parser reads an array literal.
+     * Only literals the element nodes can be rebuilt from exactly are taken, which rules out numbers not spelled
+     * the way Long.toString or Double.toString would and a minus on another line than its number
+     */
+    static final class Builder {
+        private NodeKind elementKind;
+        private int size;
+        private boolean integral = true;
+        private long[] numbers;
+        private final BitSet negated = new BitSet();
+        private String[] strings;
+        private int[] lines = new int[MIN_ELEMENTS];
+
+        int size() {
+            return size;
+        }
+
+        // whether token, negated by minus unless that is null, is an element of the same kind as the ones so far
+        boolean accepts(Token minus, Token token) {
+            NodeKind kind = NodeKind.of(token.getName());
+            if (elementKind != null && kind != elementKind)
+                return false;
+            switch (kind) {
+                case NUMBER:
+                    if (minus != null && !minus.getLineNumber().equals(token.getLineNumber()))
+                        return false;
+                    return token.isIntegral()
+                        ? token.getValue().equals(Long.toString(token.getLongValue()))
+                        : token.getValue().equals(Double.toString(token.getDoubleValue()));
+                case STRING:
+                case BOOLEAN:
+                    return minus == null;
+                default:
+                    return false;
+            }
+        }
+
+        // token after accepts(minus, token)
+        void add(Token minus, Token token) {
+            if (elementKind == null) {
+                elementKind = NodeKind.of(token.getName());
+                if (elementKind == NodeKind.STRING)
+                    strings = new String[MIN_ELEMENTS];
+                else
+                    numbers = new long[MIN_ELEMENTS];
+            }
+            if (size == lines.length) {
+                lines = Arrays.copyOf(lines, size * 2);
+                if (strings != null)
+                    strings = Arrays.copyOf(strings, size * 2);
+                else
+                    numbers = Arrays.copyOf(numbers, size * 2);
+            }
+            lines[size] = token.getLineNumber();
+            if (elementKind == NodeKind.STRING)
+                strings[size] = token.getValue();
+            else if (elementKind == NodeKind.BOOLEAN)
+                numbers[size] = token.getName() == TokenType.KW_TRUE ? 1 : 0;
+            else {
+                integral &= token.isIntegral();
+                numbers[size] = token.isIntegral() ? token.getLongValue() : ~Double.doubleToRawLongBits(token.getDoubleValue());
+                negated.set(size, minus != null);
+            }
+            size++;
+        }
+
+        PackedArrayLiteral build(int lineNumber) {
+            return new PackedArrayLiteral(lineNumber, this);
+        }
+    }
+}
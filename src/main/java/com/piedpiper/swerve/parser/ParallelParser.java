@@ -0,0 +1,84 @@
+package com.piedpiper.swerve.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import com.piedpiper.swerve.error.SyntaxError;
+import com.piedpiper.swerve.lexer.Token;
+import com.piedpiper.swerve.lexer.TokenType;
+
+/**
+ * Parses a token list in slices that start at top-level definitions, one ForkJoinPool task per slice.
+ * A pre-scan matches braces to find the fn and prototype keywords outside of any block; statements between definitions
+ * stay in the slice before them. The slices' top-level nodes are appended in source order.
+ * Whatever a slice can't parse on its own, like a syntax error or unbalanced braces, is left to the sequential parser
+ */
+final class ParallelParser {
+    // below this a slice isn't worth a task of its own, so small definitions are grouped
+    static final int MIN_SLICE_TOKENS = 8192;
+    // more slices than workers so an expensive slice doesn't leave the others idle
+    private static final int SLICES_PER_WORKER = 4;
+
+    private ParallelParser() {}
+
+    static int sliceTokens(int size, int parallelism) {
+        return Math.max(MIN_SLICE_TOKENS, size / (parallelism * SLICES_PER_WORKER));
+    }
+
+    // the PROGRAM node parse() builds, or null when only the sequential parser can tell what is wrong with the tokens
+    static AbstractSyntaxTree parse(List<Token> tokens, ForkJoinPool pool, int sliceTokens) {
+        List<Integer> boundaries = findBoundaries(tokens, sliceTokens);
+        if (boundaries == null)
+            return null;
+        if (boundaries.size() == 1)
+            return parseSlice(tokens);
+
+        List<ForkJoinTask<AbstractSyntaxTree>> tasks = new ArrayList<>(boundaries.size());
+        for (int i = 0; i < boundaries.size(); i++) {
+            List<Token> slice = tokens.subList(boundaries.get(i), i + 1 < boundaries.size() ? boundaries.get(i + 1) : tokens.size());
+            tasks.add(pool.submit(() -> parseSlice(slice)));
+        }
+        AbstractSyntaxTree program = new AbstractSyntaxTree(NodeKind.PROGRAM);
+        for (int i = 0; i < tasks.size(); i++) {
+            AbstractSyntaxTree slice = tasks.get(i).join();
+            if (slice == null) {
+                for (int j = i + 1; j < tasks.size(); j++)
+                    tasks.get(j).cancel(false);
+                return null;
+            }
+            program.getChildren().addAll(slice.getChildren());
+        }
+        return program;
+    }
+
+    private static AbstractSyntaxTree parseSlice(List<Token> slice) {
+        try {
+            return new Parser(slice).parse();
+        } catch (SyntaxError error) {
+            return null;
+        }
+    }
+
+    // start of every slice: 0 and then top-level fn / prototype keywords at least sliceTokens apart; null if the braces don't match
+    static List<Integer> findBoundaries(List<Token> tokens, int sliceTokens) {
+        List<Integer> boundaries = new ArrayList<>();
+        boundaries.add(0);
+        int depth = 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            TokenType name = tokens.get(i).getName();
+            if (name == TokenType.LEFT_CB)
+                depth++;
+            else if (name == TokenType.RIGHT_CB && --depth < 0)
+                return null;
+            else if (
+                (name == TokenType.KW_FN || name == TokenType.KW_PROTO)
+                && depth == 0
+                && i - boundaries.get(boundaries.size() - 1) >= sliceTokens
+            )
+                boundaries.add(i);
+        }
+        return depth == 0 ? boundaries : null;
+    }
+}
@@ -0,0 +1,72 @@
+package com.piedpiper.swerve.parser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import com.piedpiper.swerve.lexer.AtomTable;
+
+/**
+ * Parsed trees kept on disk in AstCodec form, one file per SHA-256 of the source they were parsed from.
+ * Entries of another format version or grammar read as misses and are overwritten by the next put
+ */
+public final class ParseCache {
+    private static final String SUFFIX = ".ast";
+    private static final int READ_SIZE = 64 * 1024;
+
+    private final Path directory;
+
+    public ParseCache(Path directory) {
+        this.directory = directory;
+    }
+
+    // hex SHA-256 of the whole channel; reads by position so the channel can still be lexed from the start
+    public static String key(FileChannel channel) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException("Every Java platform supports SHA-256", exception);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(READ_SIZE);
+        long position = 0;
+        for (int read = channel.read(buffer, position); read > 0; read = channel.read(buffer, position)) {
+            position += read;
+            digest.update(buffer.flip());
+            buffer.clear();
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // the cached tree or null if there is none that this compiler can read
+    public AbstractSyntaxTree get(String key, AtomTable atoms) {
+        try {
+            return AstCodec.decode(Files.readAllBytes(entry(key)), atoms);
+        } catch (IOException exception) {
+            // missing, unreadable, stale and corrupt entries all just mean parsing again
+            return null;
+        }
+    }
+
+    // written next to the entry and moved into place, so concurrent compiles never read half an entry
+    public void put(String key, AbstractSyntaxTree tree) throws IOException {
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, key, ".tmp");
+        try {
+            Files.write(temporary, AstCodec.encode(tree));
+            Files.move(temporary, entry(key), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private Path entry(String key) {
+        return directory.resolve(key + SUFFIX);
+    }
+}
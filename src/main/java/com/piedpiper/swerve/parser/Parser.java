@@ -1,42 +1,65 @@
 package com.piedpiper.swerve.parser;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import com.piedpiper.swerve.error.SyntaxError;
+import com.piedpiper.swerve.lexer.OperatorKind;
 import com.piedpiper.swerve.lexer.Token;
+import com.piedpiper.swerve.lexer.TokenStream;
 import com.piedpiper.swerve.lexer.TokenType;
 
 /* NOTE: Refer to grammar.md for full formal grammar*/
 public class Parser {
-    private final List<Token> tokens;
-    private int position = 0;
+    private final TokenStream tokens;
     private Token current;
     private Token next; // use this to look ahead
-    List<String> leftUnaryOps = List.of("-", "!", "++", "--");
-    List<String> rightUnaryOps = leftUnaryOps.subList(2, 4);
-    List<String> assignmentOps = List.of("=", "+=", "-=", "*=", "/=");
-    List<String> comparisonOps = List.of("<", ">", "<=", ">=", "!=", "==");
-    List<String> addOps = List.of("+", "-", "^", "&");
-    List<String> multOps = List.of("*", "/", "%");
+    // tokens consumed so far, to tell if recovering made progress
+    private int position = 0;
+    // collects the syntax errors while recovering, null when the first one is thrown
+    private List<SyntaxError> errors;
+    private boolean reportedEnd = false;
+    // tokens of a parseLazily parser, null when function bodies are parsed right away
+    private List<Token> lazyTokens;
+    private static final int COMPARISON = 3;
     
     public Parser(List<Token> tokens) {
+        this(TokenStream.of(tokens));
+    }
+
+    public Parser(TokenStream tokens) {
         this.tokens = tokens;
-        current = tokens.get(position);
-        next = tokens.size() == 1 ? null : tokens.get(position + 1);
+        current = tokens.peek(0);
+        next = tokens.peek(1);
     }
 
     private boolean atEnd() {
-        return position >= tokens.size();
+        return tokens.peek(0) == null;
     }
 
     private void move() {
+        tokens.advance();
         position++;
         if (!atEnd()) {
-            current = tokens.get(position);
-            next = position == tokens.size() - 1 ? null : tokens.get(position + 1);
+            current = tokens.peek(0);
+            next = tokens.peek(1);
+        }
+    }
+
+    // errors of a recovering parse are only caught and collected, so they skip the stack trace
+    private static final class RecoverableError extends SyntaxError {
+        private static final long serialVersionUID = 1L;
+
+        private RecoverableError(String message, int lineNumber) {
+            super(message, lineNumber, false);
         }
     }
 
+    private SyntaxError error(String message, int lineNumber) {
+        return errors == null ? new SyntaxError(message, lineNumber) : new RecoverableError(message, lineNumber);
+    }
+
     private SyntaxError formComplaint(String expected, Token token) {
         String messageStart = "Expected " + expected + " but ";
         String messageEnd = atEnd() || token == null
@@ -46,7 +69,7 @@ public class Parser {
                 ? ""
                 : " ('" + token.getValue() + "')"
             );
-        return new SyntaxError(messageStart + messageEnd, token == null ? 0 : token.getLineNumber());
+        return error(messageStart + messageEnd, token == null ? 0 : token.getLineNumber());
     }
 
     private SyntaxError formComplaint(TokenType expected, Token token) {
@@ -55,18 +78,125 @@ public class Parser {
 
     // PROGRAM ::= ( STMNT / FUNCDEF )+
     public AbstractSyntaxTree parse() {
-        AbstractSyntaxTree node = new AbstractSyntaxTree("PROGRAM");
+        AbstractSyntaxTree node = new AbstractSyntaxTree(NodeKind.PROGRAM);
+        parseProgram(node);
+        return node;
+    }
+
+    // parses past syntax errors: each one is added to errors and what it broke becomes an ERROR node
+    public AbstractSyntaxTree parse(List<SyntaxError> errors) {
+        this.errors = errors;
+        AbstractSyntaxTree node = new AbstractSyntaxTree(NodeKind.PROGRAM);
+        try {
+            parseProgram(node);
+        } catch (SyntaxError error) {
+            // the lexer can't go on past its errors, so the parse ends with what it has so far
+            errors.add(error);
+        } finally {
+            this.errors = null;
+        }
+        return node;
+    }
+
+    // parse() that only matches the braces of function and prototype bodies; each body is parsed the first time its children are asked for
+    public static AbstractSyntaxTree parseLazily(List<Token> tokens) {
+        Parser parser = new Parser(tokens);
+        parser.lazyTokens = tokens;
+        return parser.parse();
+    }
+
+    // statements of a LazyBlockBody, whose tokens run from the first statement up to the closing "}"
+    static void parseBody(List<Token> tokens, AbstractSyntaxTree body) {
+        Parser parser = new Parser(tokens);
+        parser.parseBlockStatements(body);
+        parser.parseExpectedToken(TokenType.RIGHT_CB, parser.current);
+    }
+
+    // parse() with the top-level definitions parsed in parallel on the common ForkJoinPool; builds the same tree and throws the same errors
+    public static AbstractSyntaxTree parseParallel(List<Token> tokens) {
+        AbstractSyntaxTree program = parseSlices(tokens);
+        return program != null ? program : new Parser(tokens).parse();
+    }
+
+    // parse(errors) with the top-level definitions parsed in parallel; broken input is parsed again sequentially to collect its errors
+    public static AbstractSyntaxTree parseParallel(List<Token> tokens, List<SyntaxError> errors) {
+        AbstractSyntaxTree program = parseSlices(tokens);
+        return program != null ? program : new Parser(tokens).parse(errors);
+    }
 
+    private static AbstractSyntaxTree parseSlices(List<Token> tokens) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        return ParallelParser.parse(tokens, pool, ParallelParser.sliceTokens(tokens.size(), pool.getParallelism()));
+    }
+
+    private void parseProgram(AbstractSyntaxTree node) {
         while (!atEnd()) {
-            if (current.getName() == TokenType.KW_FN || current.getName() == TokenType.KW_PROTO) {
-                node.appendChildren(parseFunctionDefinition());
+            int start = position;
+            try {
+                if (isDefinition(current)) {
+                    node.appendChildren(parseFunctionDefinition());
+                }
+                else {
+                    node.appendChildren(parseStatement());
+                }
+            } catch (RecoverableError error) {
+                node.appendChildren(recover(error, true));
+                if (position == start && !atEnd())
+                    move();
             }
-            else {
-                node.appendChildren(parseStatement());
+        }
+    }
+
+    /*
+     * Panic mode: note the error and skip to where parsing can pick up again.
+     * That is after the ";" ending the broken statement, before the "}" of the enclosing block (after a stray one at the top level)
+     * or before the next function or prototype. A block opened by the broken statement is skipped as a whole
+     */
+    private AbstractSyntaxTree recover(SyntaxError error, boolean topLevel) {
+        // past the end everything else follows from the first error there
+        if (!(reportedEnd && atEnd()))
+            errors.add(error);
+        reportedEnd = atEnd();
+        int depth = 0;
+        while (!atEnd()) {
+            TokenType name = current.getName();
+            if (isDefinition(current))
+                break;
+            if (name == TokenType.LEFT_CB)
+                depth++;
+            else if (name == TokenType.RIGHT_CB) {
+                if (depth == 0 && !topLevel)
+                    break;
+                if (depth <= 1) {
+                    move();
+                    break;
+                }
+                depth--;
             }
+            else if (name == TokenType.SC && depth == 0) {
+                move();
+                break;
+            }
+            move();
         }
+        return new AbstractSyntaxTree(NodeKind.ERROR, error.getLineNumber());
+    }
 
-        return node;
+    // ( STMNT )* up to the "}" closing a block
+    private void parseBlockStatements(AbstractSyntaxTree body) {
+        while (current.getName() != TokenType.RIGHT_CB) {
+            // functions aren't statements, the block is missing its "}"
+            if (isDefinition(current) && !atEnd())
+                return;
+            try {
+                body.appendChildren(parseStatement());
+            } catch (RecoverableError error) {
+                body.appendChildren(recover(error, false));
+                // the block is missing its "}", which the caller reports
+                if (atEnd() || isDefinition(current))
+                    return;
+            }
+        }
     }
 
 
@@ -90,7 +220,7 @@ public class Parser {
             else if (
                 current.getName() == TokenType.LEFT_PAREN
                 || current.getName() == TokenType.LEFT_CB
-                || leftUnaryOps.contains(current.getValue())
+                || isLeftUnaryOp(current)
                 || isBooleanLiteral(current)
                 || isString(current)
                 || isNumber(current)
@@ -101,34 +231,25 @@ public class Parser {
             else if (isControlFlow(current))
                 node = parseControlFlow();
             else if (isID(current)) {
-                if (isOp(next) && assignmentOps.contains(next.getValue()))
+                if (isAssignmentOp(next))
                     node = parseVariableAssignment();
                 else if (next.getName() == TokenType.LEFT_PAREN)
                     node = parseFunctionCall();
                 else if (next.getName() == TokenType.LEFT_SQB) {
-                    if (position >= tokens.size() - 2)
-                        throw new SyntaxError("Expected EXPR but reached EOF", current.getLineNumber());
-                    int line = current.getLineNumber();
-                    int currPos = position + 2; // skip next
-                    Token lookahead = tokens.get(currPos);
-                    while (currPos != tokens.size() - 1 && lookahead.getLineNumber() == line) { // look for assignment operator
-                        if (assignmentOps.contains(lookahead.getValue())) {
-                            node = parseVariableAssignment();
-                            break;
-                        }
-                        currPos++;
-                        lookahead = tokens.get(currPos);
-                    }
-                    if (currPos == tokens.size() - 1 || lookahead.getLineNumber() != line)
-                        node = parseArrayAccess();
+                    if (tokens.peek(2) == null)
+                        throw error("Expected EXPR but reached EOF", current.getLineNumber());
+                    // the access reads the same either way, the token after its last "]" tells if it is assigned to
+                    node = parseArrayAccess();
+                    if (!atEnd() && isAssignmentOp(current))
+                        node = parseAssignment(node);
                 }
                 else
                     node = parseExpr();
             }
             else
-                throw new SyntaxError("Invalid STMT", current.getLineNumber());
+                throw error("Invalid STMT", current.getLineNumber());
             if (atEnd() || current.getName() != TokenType.SC)
-                throw new SyntaxError("Missing semicolon", current.getLineNumber());
+                throw error("Missing semicolon", current.getLineNumber());
             else
                 parseExpectedToken(TokenType.SC, current);
             return node;
@@ -141,63 +262,88 @@ public class Parser {
         if (!(current.getName() == TokenType.LEFT_PAREN
             || current.getName() == TokenType.LEFT_CB
             || current.getName() == TokenType.ID
-            || leftUnaryOps.contains(current.getValue())
+            || isLeftUnaryOp(current)
             || isNumber(current)
             || isBooleanLiteral(current)
             || isString(current)
             || current.getName() == TokenType.KW_NULL
         ))
             throw formComplaint("EXPR", current);
-        AbstractSyntaxTree node = parseLogicalOr();
-        if (current.getValue().equals("?"))
+        AbstractSyntaxTree node = parseBinaryExpression();
+        if (current.getOperator() == OperatorKind.QUESTION)
             node = parseTernary(node);
         return node;
     }
 
-    // ARITH-EXPR ::= TERM (ADD-OP ARITH-EXPR)*
-    private AbstractSyntaxTree parseArithmeticExpression() {
-        AbstractSyntaxTree term = parseTerm();
-        if (atEnd() || !addOps.contains(current.getValue()))
-            return term;
-        else if (!atEnd() && addOps.contains(current.getValue())) {
-            AbstractSyntaxTree node = parseExpectedToken(current.getValue(), current);
-            node.appendChildren(term, parseArithmeticExpression());
-            return node;
-        }
-        return null;
-    }
-
-    // TERM ::= EXPO (MULT-OP TERM)*
-    private AbstractSyntaxTree parseTerm() {
-        AbstractSyntaxTree exponent = parseExponent();
-        if (atEnd() || !multOps.contains(current.getValue()))
-            return exponent;
-        else if (!atEnd() && multOps.contains(current.getValue())) {
-            AbstractSyntaxTree node = parseExpectedToken(current.getValue(), current);
-            node.appendChildren(exponent, parseTerm());
-            return node;
-        }
-        return null;
-    }
-
-    // EXPO ::= FACTOR ( "**" EXPO )*
-    private AbstractSyntaxTree parseExponent() {
-        AbstractSyntaxTree factor = parseFactor();
-        if (atEnd() || !current.getValue().equals("**"))
-            return factor;
-        else if (!atEnd() && current.getValue().equals("**")) {
-            AbstractSyntaxTree node = parseExpectedToken(current.getValue(), current);
-            node.appendChildren(factor, parseExponent());
-            return node;
-        }
-        return null;
+    /*
+     * LOGICAL-OR ::= LOGICAL-AND ( "||" LOGICAL-OR )?
+     * LOGICAL-AND ::= CMPR-EXPR ( "&&" LOGICAL-AND )?
+     * CMPR-EXPR ::= ARITH-EXPR ( CMPR-OP ARITH-EXPR )?
+     * ARITH-EXPR ::= TERM ( ADD-OP ARITH-EXPR )?
+     * TERM ::= EXPO ( MULT-OP TERM )?
+     * EXPO ::= FACTOR ( "**" EXPO )?
+     * All six levels in one loop, binding as tight as their precedence. Operands and operators wait on stacks instead of the call stack,
+     * so long chains don't recurse; operators of the same level nest to the right like the rules above
+     */
+    private AbstractSyntaxTree parseBinaryExpression() {
+        List<AbstractSyntaxTree> operands = new ArrayList<>();
+        List<AbstractSyntaxTree> operators = new ArrayList<>();
+        operands.add(parseFactor());
+        boolean compared = false; // comparisons don't chain, a second one ends the expression
+        while (!atEnd()) {
+            int precedence = precedence(current.getOperator());
+            if (precedence == 0 || (precedence == COMPARISON && compared))
+                break;
+            while (!operators.isEmpty() && precedence(operators.get(operators.size() - 1).getOperator()) > precedence)
+                reduce(operands, operators);
+            if (precedence < COMPARISON)
+                compared = false;
+            else if (precedence == COMPARISON)
+                compared = true;
+            operators.add(parseExpectedToken(current.getOperator(), current));
+            operands.add(parseFactor());
+        }
+        while (!operators.isEmpty())
+            reduce(operands, operators);
+        return operands.get(0);
+    }
+
+    // binary operators from loosest (1) to tightest binding; 0 if op isn't one
+    private static int precedence(OperatorKind op) {
+        if (op == null)
+            return 0;
+        switch (op) {
+            case OR:
+                return 1;
+            case AND:
+                return 2;
+            case LESS: case GREATER: case LESS_EQUAL: case GREATER_EQUAL: case NOT_EQUAL: case EQUAL:
+                return COMPARISON;
+            case PLUS: case MINUS: case BITWISE_XOR: case BITWISE_AND:
+                return 4;
+            case MULTIPLY: case DIVIDE: case MODULO:
+                return 5;
+            case POWER:
+                return 6;
+            default:
+                return 0;
+        }
+    }
+
+    // the last operator takes the last two operands as its children
+    private void reduce(List<AbstractSyntaxTree> operands, List<AbstractSyntaxTree> operators) {
+        AbstractSyntaxTree right = operands.remove(operands.size() - 1);
+        AbstractSyntaxTree left = operands.remove(operands.size() - 1);
+        AbstractSyntaxTree operator = operators.remove(operators.size() - 1);
+        operator.appendChildren(left, right);
+        operands.add(operator);
     }
 
     // FACTOR ::= VALUE / "(" EXPR ")" / UNARY-OP
     private AbstractSyntaxTree parseFactor() {
         if (next == null)
             return parseValue();
-        if (leftUnaryOps.contains(current.getValue()) || (isID(current) && rightUnaryOps.contains(next.getValue())))
+        if (isLeftUnaryOp(current) || (isID(current) && isRightUnaryOp(next)))
             return parseUnaryOp();
         else if (current.getName() == TokenType.LEFT_PAREN) {
             parseExpectedToken(TokenType.LEFT_PAREN, current);
@@ -209,53 +355,10 @@ public class Parser {
             return parseValue();
     }
 
-    // LOGICAL-OR ::=  ( LOGICAL-OR "||" )* LOGICAL-AND
-    private AbstractSyntaxTree parseLogicalOr() {
-        AbstractSyntaxTree logicalAnd = parseLogicalAnd();
-        if (atEnd() || !current.getValue().equals("||"))
-            return logicalAnd;
-
-        if (!atEnd() && current.getValue().equals("||")) {
-            AbstractSyntaxTree node = parseExpectedToken("||", current);
-            node.appendChildren(logicalAnd, parseLogicalOr());
-            return node;
-        }
-        return null;
-    }
-
-    // LOGICAL-AND ::= ( LOGICAL-AND "&&" )* CMPR-EXPR
-    private AbstractSyntaxTree parseLogicalAnd() {
-        AbstractSyntaxTree compare = parseComparisonExpression();
-        if (atEnd() || !current.getValue().equals("&&"))
-            return compare;
-
-        if (!atEnd() && current.getValue().equals("&&")) {
-            AbstractSyntaxTree node = parseExpectedToken("&&", current);
-            node.appendChildren(compare, parseLogicalAnd());
-            return node;
-        }
-        return null;
-    }
-
-    // CMPR-EXPR ::= ARITH-EXPR ( CMPR-OP ARITH-EXPR )?
-    private AbstractSyntaxTree parseComparisonExpression() {
-        AbstractSyntaxTree arithExpr = parseArithmeticExpression();
-        if (atEnd() || !comparisonOps.contains(current.getValue()))
-            return arithExpr;
-
-        if (comparisonOps.contains(current.getValue())) {
-            AbstractSyntaxTree node = parseExpectedToken(current.getValue(), current);
-            node.appendChildren(arithExpr, parseArithmeticExpression());
-            return node;
-        }
-        return null;
-
-    }
-
     // UNARY-OP ::= LEFT-UNARY-OP / ( ID / NUMBER / ARRAY-ACCESS / FUNC-CALL ) ( "++" / "--" )
     private AbstractSyntaxTree parseUnaryOp() {
-        AbstractSyntaxTree node = new AbstractSyntaxTree("UNARY-OP", current.getLineNumber());
-        if (leftUnaryOps.contains(current.getValue()))
+        AbstractSyntaxTree node = new AbstractSyntaxTree(NodeKind.UNARY_OP, current.getLineNumber());
+        if (isLeftUnaryOp(current))
             return parseLeftUnaryOp();
         else {
             if (isID(current)) {
@@ -266,7 +369,7 @@ public class Parser {
                 else
                     node.appendChildren(parseExpectedToken(TokenType.ID, current));
             }
-            if (rightUnaryOps.contains(current.getValue()))
+            if (isRightUnaryOp(current))
                 node.appendChildren(parseExpectedToken(TokenType.OP, current));
         }
         return node;
@@ -274,9 +377,10 @@ public class Parser {
 
     // LEFT-UNARY-OP ::= ( "++" / "--" / "-" ) ( ID / NUMBER / ARRAY-ACCESS / FUNC-CALL ) / "!" (BOOLEAN / ID / ARRAY-ACCESS / FUNC-CALL)
     private AbstractSyntaxTree parseLeftUnaryOp() {
-        AbstractSyntaxTree node = new AbstractSyntaxTree("UNARY-OP", current.getLineNumber());
-        if (current.getValue().equals("++") || current.getValue().equals("--") || current.getValue().equals("-")) {
-            node.appendChildren(parseExpectedToken(current.getValue(), current));
+        AbstractSyntaxTree node = new AbstractSyntaxTree(NodeKind.UNARY_OP, current.getLineNumber());
+        OperatorKind op = current.getOperator();
+        if (op == OperatorKind.INCREMENT || op == OperatorKind.DECREMENT || op == OperatorKind.MINUS) {
+            node.appendChildren(parseExpectedToken(op, current));
             if (isNumber(current))
                 node.appendChildren(parseExpectedToken(TokenType.NUMBER, current));
             else if (isID(current)) {
@@ -288,11 +392,11 @@ public class Parser {
                     node.appendChildren(parseExpectedToken(TokenType.ID, current));
             }
             else {
-                throw new SyntaxError("Invalid unary operator on " + current.getName(), current.getLineNumber());
+                throw error("Invalid unary operator on " + current.getName(), current.getLineNumber());
             }
         }
-        else if (current.getValue().equals("!")) {
-            node.appendChildren(parseExpectedToken(current.getValue(), current));
+        else if (op == OperatorKind.NOT) {
+            node.appendChildren(parseExpectedToken(op, current));
             if (isBooleanLiteral(current))
                 node.appendChildren(parseExpectedToken(current.getName(), current));
             else if (isID(current)) {
@@ -304,7 +408,7 @@ public class Parser {
                     node.appendChildren(parseExpectedToken(TokenType.ID, current));
             }
             else {
-                throw new SyntaxError("Invalid unary operator on " + current.getName(), current.getLineNumber());
+                throw error("Invalid unary operator on " + current.getName(), current.getLineNumber());
             }
         }
         else
@@ -314,8 +418,8 @@ public class Parser {
 
     // TERNARY ::= LOGICAL-OR "?" EXPR ":" EXPR
     private AbstractSyntaxTree parseTernary(AbstractSyntaxTree parsedLogicalOr) {
-        AbstractSyntaxTree node = new AbstractSyntaxTree("TERNARY", current.getLineNumber(), List.of(parsedLogicalOr));
-        parseExpectedToken("?", current);
+        AbstractSyntaxTree node = new AbstractSyntaxTree(NodeKind.TERNARY, current.getLineNumber(), List.of(parsedLogicalOr));
+        parseExpectedToken(OperatorKind.QUESTION, current);
         node.appendChildren(parseExpr());
         parseExpectedToken(TokenType.COLON, current);
         node.appendChildren(parseExpr());
@@ -350,9 +454,9 @@ public class Parser {
 
     // FUNC-CALL ::= ID ( ( "(" (EXPR ("," EXPR)* )? ")" )
     private AbstractSyntaxTree parseFunctionCall() {
-        AbstractSyntaxTree node = new AbstractSyntaxTree("FUNC-CALL", current.getLineNumber(), List.of(parseExpectedToken(TokenType.ID, current)));
+        AbstractSyntaxTree node = new AbstractSyntaxTree(NodeKind.FUNC_CALL, current.getLineNumber(), List.of(parseExpectedToken(TokenType.ID, current)));
         parseExpectedToken(TokenType.LEFT_PAREN, current);
-        AbstractSyntaxTree params = new AbstractSyntaxTree("FUNC-PARAMS", current.getLineNumber());
+        AbstractSyntaxTree params = new AbstractSyntaxTree(NodeKind.FUNC_PARAMS, current.getLineNumber());
         if (current.getName() != TokenType.RIGHT_PAREN) {
             params.appendChildren(parseExpr());
             while (current.getName() != TokenType.RIGHT_PAREN) {
@@ -391,7 +495,7 @@ public class Parser {
 
     // ARRAY-INDEX ::= ( "[" EXPR "]" )+
     private AbstractSyntaxTree parseArrayIndex() {
-        AbstractSyntaxTree node = new AbstractSyntaxTree("ARRAY-INDEX", current.getLineNumber());
+        AbstractSyntaxTree node = new AbstractSyntaxTree(NodeKind.ARRAY_INDEX, current.getLineNumber());
         if (!atEnd() && current.getName() != TokenType.LEFT_SQB)
             throw formComplaint("LEFT_SQB", current);
         parseExpectedToken(TokenType.LEFT_SQB, current);
@@ -404,9 +508,19 @@ public class Parser {
 
     // ARRAY-LIT ::= "{" (EXPR ("," EXPR)* )? "}"
     private AbstractSyntaxTree parseArrayLiteral() {
-        AbstractSyntaxTree node = new AbstractSyntaxTree("ARRAY-LIT", current.getLineNumber());
+        AbstractSyntaxTree node = new AbstractSyntaxTree(NodeKind.ARRAY_LIT, current.getLineNumber());
         parseExpectedToken(TokenType.LEFT_CB, current);
         if (current.getName() != TokenType.RIGHT_CB && current.getName() != TokenType.COMMA) {
+            // leading literal elements are packed; if every element is one, the literal doesn't need a node per element
+            PackedArrayLiteral.Builder packed = new PackedArrayLiteral.Builder();
+            if (parsePackedElements(packed)) {
+                parseExpectedToken(TokenType.RIGHT_CB, current);
+                if (packed.size() >= PackedArrayLiteral.MIN_ELEMENTS)
+                    return packed.build(node.getLineNumber());
+                node.getChildren().addAll(packed.build(node.getLineNumber()).getChildren());
+                return node;
+            }
+            node.getChildren().addAll(packed.build(node.getLineNumber()).getChildren());
             node.appendChildren(parseExpr());
             while (!atEnd() && current.getName() != TokenType.RIGHT_CB) {
                 parseExpectedToken(TokenType.COMMA, current);
@@ -417,9 +531,30 @@ public class Parser {
         return node;
     }
 
+    // moves past the elements packed accepts along with their commas; true if that reached the "}" ending the literal
+    private boolean parsePackedElements(PackedArrayLiteral.Builder packed) {
+        while (!atEnd()) {
+            Token minus = current.getOperator() == OperatorKind.MINUS ? current : null;
+            Token element = minus == null ? current : next;
+            Token after = tokens.peek(minus == null ? 1 : 2);
+            if (element == null || after == null || !packed.accepts(minus, element))
+                return false;
+            if (after.getName() != TokenType.COMMA && after.getName() != TokenType.RIGHT_CB)
+                return false;
+            packed.add(minus, element);
+            if (minus != null)
+                move();
+            move();
+            if (current.getName() == TokenType.RIGHT_CB)
+                return true;
+            move();
+        }
+        return false;
+    }
+
     // COND ::= IF ( ELSEIF )* ( ELSE )?
     private AbstractSyntaxTree parseConditional() {
-        AbstractSyntaxTree node = new AbstractSyntaxTree("COND", current.getLineNumber(), List.of(parseIf()));
+        AbstractSyntaxTree node = new AbstractSyntaxTree(NodeKind.COND, current.getLineNumber(), List.of(parseIf()));
         if (current.getName() == TokenType.KW_ELSE && next != null && next.getName() == TokenType.KW_IF) {
             while(current.getName() == TokenType.KW_ELSE && next != null && next.getName() == TokenType.KW_IF) {
                 node.appendChildren(parseElseIf());
@@ -442,7 +577,7 @@ public class Parser {
 
     // ELSEIF ::= "else" "if" "(" EXPR ")" COND-BODY
     private AbstractSyntaxTree parseElseIf() {
-        AbstractSyntaxTree node = new AbstractSyntaxTree("ELSE IF", current.getLineNumber());
+        AbstractSyntaxTree node = new AbstractSyntaxTree(NodeKind.ELSE_IF, current.getLineNumber());
         parseExpectedToken(TokenType.KW_ELSE, current);
         parseExpectedToken(TokenType.KW_IF, current);
         parseExpectedToken(TokenType.LEFT_PAREN, current);
@@ -461,27 +596,23 @@ public class Parser {
 
     // COND-BODY ::= ( ( "{" ( STMNT )* "}" ) / STMNT )
     private AbstractSyntaxTree parseConditionalBody() {
-        AbstractSyntaxTree node = new AbstractSyntaxTree("BLOCK-BODY", current.getLineNumber());
+        AbstractSyntaxTree node = new AbstractSyntaxTree(NodeKind.BLOCK_BODY, current.getLineNumber());
         if (current.getName() == TokenType.LEFT_CB) {
             parseExpectedToken(TokenType.LEFT_CB, current);
-            while (current.getName() != TokenType.RIGHT_CB) {
-                node.appendChildren(parseStatement());
-            }
+            parseBlockStatements(node);
             parseExpectedToken(TokenType.RIGHT_CB, current);
         }
         else
-            return new AbstractSyntaxTree("BLOCK-BODY", current.getLineNumber(), List.of(parseStatement()));
+            return new AbstractSyntaxTree(NodeKind.BLOCK_BODY, current.getLineNumber(), List.of(parseStatement()));
         return node;
     }
 
     // LOOP ::= ( WHILE-LOOP / FOR-LOOP ) "{" ( STMNT )* "}"
     private AbstractSyntaxTree parseLoop() {
         AbstractSyntaxTree node = current.getName() == TokenType.KW_FOR ? parseForLoop() : parseWhileLoop();
-        AbstractSyntaxTree bodyNode = new AbstractSyntaxTree("BLOCK-BODY", current.getLineNumber());
+        AbstractSyntaxTree bodyNode = new AbstractSyntaxTree(NodeKind.BLOCK_BODY, current.getLineNumber());
         parseExpectedToken(TokenType.LEFT_CB, current);
-        while (current.getName() != TokenType.RIGHT_CB) {
-            bodyNode.appendChildren(parseStatement());
-        }
+        parseBlockStatements(bodyNode);
         node.appendChildren(bodyNode);
         parseExpectedToken(TokenType.RIGHT_CB, current);
         return node;
@@ -501,26 +632,27 @@ public class Parser {
         AbstractSyntaxTree node = parseExpectedToken(TokenType.KW_FOR, current);
         parseExpectedToken(TokenType.LEFT_PAREN, current);
         // look ahead to find out what type of for loop this is
-        int lookAheadPosition = position;
+        int lookAheadOffset = 0;
         boolean isForEach = false;
-        while (lookAheadPosition != tokens.size()) {
-            if (tokens.get(lookAheadPosition).getName() == TokenType.COLON) {
+        while (tokens.peek(lookAheadOffset) != null) {
+            Token lookahead = tokens.peek(lookAheadOffset);
+            if (lookahead.getName() == TokenType.COLON) {
                 isForEach = true;
                 break;
             }
-            if (tokens.get(lookAheadPosition).getName() == TokenType.SC)
+            if (lookahead.getName() == TokenType.SC)
                 break;
 
             if (
-                lookAheadPosition != tokens.size() - 1
-                && tokens.get(lookAheadPosition).getName() == TokenType.RIGHT_PAREN
-                && tokens.get(lookAheadPosition + 1).getName() == TokenType.LEFT_CB
+                tokens.peek(lookAheadOffset + 1) != null
+                && lookahead.getName() == TokenType.RIGHT_PAREN
+                && tokens.peek(lookAheadOffset + 1).getName() == TokenType.LEFT_CB
             )
                 break; // found the end of the for loop header, break out of this loop
-            lookAheadPosition++;
+            lookAheadOffset++;
         }
         if (isForEach) {
-            AbstractSyntaxTree varNode = new AbstractSyntaxTree("VAR-DECL", current.getLineNumber(), List.of(
+            AbstractSyntaxTree varNode = new AbstractSyntaxTree(NodeKind.VAR_DECL, current.getLineNumber(), List.of(
                 parseType(),
                 parseExpectedToken(TokenType.ID, current)
             ));
@@ -553,7 +685,7 @@ public class Parser {
         AbstractSyntaxTree functionNameNode = parseExpectedToken(TokenType.ID, current);
         node.appendChildren(functionNameNode);
         parseExpectedToken(TokenType.LEFT_PAREN, current);
-        AbstractSyntaxTree paramsNode = new AbstractSyntaxTree("FUNC-PARAMS", current.getLineNumber());
+        AbstractSyntaxTree paramsNode = new AbstractSyntaxTree(NodeKind.FUNC_PARAMS, current.getLineNumber());
         if (current.getName() != TokenType.RIGHT_PAREN) {
             paramsNode.appendChildren(parseFunctionParameter());
         }
@@ -569,11 +701,11 @@ public class Parser {
             node.appendChildren(parseType());
         }
         parseExpectedToken(TokenType.LEFT_CB, current);
-        if (current.getName() != TokenType.RIGHT_CB) {
-            AbstractSyntaxTree bodyNode = new AbstractSyntaxTree("BLOCK-BODY", current.getLineNumber());
-            while(current.getName() != TokenType.RIGHT_CB) {
-                bodyNode.appendChildren(parseStatement());
-            }
+        if (current.getName() != TokenType.RIGHT_CB && lazyTokens != null)
+            node.appendChildren(skipFunctionBody());
+        else if (current.getName() != TokenType.RIGHT_CB) {
+            AbstractSyntaxTree bodyNode = new AbstractSyntaxTree(NodeKind.BLOCK_BODY, current.getLineNumber());
+            parseBlockStatements(bodyNode);
             if (bodyNode.hasChildren())
                 node.appendChildren(bodyNode);
         }
@@ -581,9 +713,24 @@ public class Parser {
         return node;
     }
 
+    // moves up to the "}" matching the "{" of the body, keeping the tokens in between for the LazyBlockBody to parse
+    private AbstractSyntaxTree skipFunctionBody() {
+        int start = position;
+        int lineNumber = current.getLineNumber();
+        int depth = 0;
+        while (!atEnd() && (current.getName() != TokenType.RIGHT_CB || depth > 0)) {
+            if (current.getName() == TokenType.LEFT_CB)
+                depth++;
+            else if (current.getName() == TokenType.RIGHT_CB)
+                depth--;
+            move();
+        }
+        return new LazyBlockBody(lineNumber, lazyTokens.subList(start, atEnd() ? lazyTokens.size() : position + 1));
+    }
+
     // FUNC-PARAM ::= TYPE ID
     private AbstractSyntaxTree parseFunctionParameter() {
-        return new AbstractSyntaxTree("FUNC-PARAM", current.getLineNumber(), List.of(
+        return new AbstractSyntaxTree(NodeKind.FUNC_PARAM, current.getLineNumber(), List.of(
             parseType(),
             parseExpectedToken(TokenType.ID, current)
         ));
@@ -592,15 +739,15 @@ public class Parser {
     // ARRAY-TYPE ::= "Array" "<" TYPE ">"
     private AbstractSyntaxTree parseArrayType() {
         AbstractSyntaxTree node = parseExpectedToken(TokenType.KW_ARR, current);
-        parseExpectedToken("<", current);
+        parseExpectedToken(OperatorKind.LESS, current);
         node.appendChildren(parseType());
-        parseExpectedToken(">", current);
+        parseExpectedToken(OperatorKind.GREATER, current);
         return node;
     }
 
     // IMMUTABLE-ARRAY-DECL ::= "const" ARRAY-TYPE ID ( ARRAY-INDEX )? "=" EXPR
     private AbstractSyntaxTree parseImmutableArrayDeclaration() {
-        AbstractSyntaxTree node = new AbstractSyntaxTree("ARRAY-DECL", current.getLineNumber(), List.of(
+        AbstractSyntaxTree node = new AbstractSyntaxTree(NodeKind.ARRAY_DECL, current.getLineNumber(), List.of(
             parseExpectedToken(TokenType.KW_CONST, current),
             parseArrayType(),
             parseExpectedToken(TokenType.ID, current)
@@ -608,26 +755,26 @@ public class Parser {
         if (current.getName() == TokenType.LEFT_SQB)
             node.appendChildren(parseArrayIndex());
 
-        if (current.getValue().equals("=")) {
-            parseExpectedToken("=", current);
+        if (current.getOperator() == OperatorKind.ASSIGN) {
+            parseExpectedToken(OperatorKind.ASSIGN, current);
             node.appendChildren(parseExpr());
         }
         else
-            throw new SyntaxError("Constant array cannot be uninitialized", current.getLineNumber());
+            throw error("Constant array cannot be uninitialized", current.getLineNumber());
         return node;
     }
 
     // ARRAY-DECL ::= ARRAY-TYPE ID ARRAY-INDEX ( "=" EXPR )? / IMMUTABLE-ARRAY-DECL
     private AbstractSyntaxTree parseArrayDeclaration() {
-        AbstractSyntaxTree node = new AbstractSyntaxTree("ARRAY-DECL", current.getLineNumber());
+        AbstractSyntaxTree node = new AbstractSyntaxTree(NodeKind.ARRAY_DECL, current.getLineNumber());
         if (current.getName() == TokenType.KW_CONST)
             return parseImmutableArrayDeclaration();
         node.appendChildren(parseArrayType(), parseExpectedToken(TokenType.ID, current));
         if (current.getName() != TokenType.LEFT_SQB)
-            throw new SyntaxError("Array size required for mutable arrays", current.getLineNumber());
+            throw error("Array size required for mutable arrays", current.getLineNumber());
         node.appendChildren(parseArrayIndex());
-        if (current.getValue().equals("=")) {
-            parseExpectedToken("=", current);
+        if (current.getOperator() == OperatorKind.ASSIGN) {
+            parseExpectedToken(OperatorKind.ASSIGN, current);
             node.appendChildren(parseExpr());
         }
         return node;
@@ -635,7 +782,7 @@ public class Parser {
 
     // VAR-DECL ::= ("const")? TYPE ID ( "=" EXPR )? / ARRAY-DECL
     private AbstractSyntaxTree parseVariableDeclaration() {
-        AbstractSyntaxTree node = new AbstractSyntaxTree("VAR-DECL", current.getLineNumber());
+        AbstractSyntaxTree node = new AbstractSyntaxTree(NodeKind.VAR_DECL, current.getLineNumber());
         boolean isConst = false;
         if (current.getName() == TokenType.KW_CONST) {
             isConst = true;
@@ -650,19 +797,19 @@ public class Parser {
         if (current.getName() == TokenType.KW_ARR)
             return parseArrayDeclaration(); // let array declaration do the rest
         node.appendChildren(parseType());
-        if (next != null && next.getValue().equals("=")) {
+        if (next != null && next.getOperator() == OperatorKind.ASSIGN) {
             node.appendChildren(parseExpectedToken(TokenType.ID, current));
-            parseExpectedToken("=", current);
+            parseExpectedToken(OperatorKind.ASSIGN, current);
             node.appendChildren(parseExpr());
         }
         else if (next != null && next.getName().equals(TokenType.SC)) {
             if (isConst)
-                throw new SyntaxError("Constant variable must be initialized", current.getLineNumber());
+                throw error("Constant variable must be initialized", current.getLineNumber());
             node.appendChildren(parseExpectedToken(TokenType.ID, current));
         }
         else {
             node.appendChildren(parseExpectedToken(TokenType.ID, current));
-            parseExpectedToken("=", current);
+            parseExpectedToken(OperatorKind.ASSIGN, current);
         }
         return node;
     }
@@ -670,14 +817,18 @@ public class Parser {
     // VAR-ASSIGN ::= ( ID / ARRAY-ACCESS )  ( "+" / "-" / "*" / "/" )? = EXPR
     private AbstractSyntaxTree parseVariableAssignment() { // reassignment of already declared variable
         AbstractSyntaxTree left = next.getName() == TokenType.LEFT_SQB ? parseArrayAccess() : parseExpectedToken(TokenType.ID, current);
+        return parseAssignment(left);
+    }
 
-        if (current.getName() == TokenType.OP && assignmentOps.contains(current.getValue())) {
-            AbstractSyntaxTree node = parseExpectedToken(current.getValue(), current);
+    // the assignment operator and EXPR of a VAR-ASSIGN whose left side is already parsed
+    private AbstractSyntaxTree parseAssignment(AbstractSyntaxTree left) {
+        if (isAssignmentOp(current)) {
+            AbstractSyntaxTree node = parseExpectedToken(current.getOperator(), current);
             node.appendChildren(left, parseExpr());
             return node;
         }
         else
-            throw new SyntaxError("Unexpected character '" + current.getValue() + "' in variable assignment", current.getLineNumber());
+            throw error("Unexpected character '" + current.getValue() + "' in variable assignment", current.getLineNumber());
     }
 
     // TYPE ::= "int" / "string" / "double" / "boolean" / ARRAY-TYPE
@@ -692,7 +843,7 @@ public class Parser {
 
     // CONTROL-FLOW ::= "return" ( EXPR )? / "continue" / "break"
     private AbstractSyntaxTree parseControlFlow() {
-        AbstractSyntaxTree node = new AbstractSyntaxTree("CONTROL-FLOW", current.getLineNumber());
+        AbstractSyntaxTree node = new AbstractSyntaxTree(NodeKind.CONTROL_FLOW, current.getLineNumber());
         if (current.getName() == TokenType.KW_CNT || current.getName() == TokenType.KW_BRK) {
             node.appendChildren(parseExpectedToken(current.getName(), current));
         }
@@ -703,7 +854,7 @@ public class Parser {
                 current.getName() == TokenType.LEFT_PAREN
                 || current.getName() == TokenType.LEFT_CB
                 || current.getName() == TokenType.KW_NULL
-                || leftUnaryOps.contains(current.getValue())
+                || isLeftUnaryOp(current)
                 || isID(current)
                 ||  isBooleanLiteral(current)
                 || isString(current)
@@ -739,13 +890,14 @@ public class Parser {
     }
 
       /* Utility parsing method */
-      private AbstractSyntaxTree parseExpectedToken(String value, Token actualToken) {
+      private AbstractSyntaxTree parseExpectedToken(OperatorKind op, Token actualToken) {
         AbstractSyntaxTree node;
         SyntaxError error;
+        String value = op.getSymbol();
         if (atEnd())
             error = formComplaint(TokenType.OP + " ('" + value + "')", actualToken);
         else {
-            if (actualToken.getName() == TokenType.OP && actualToken.getValue().equals(value)) {
+            if (actualToken.getOperator() == op) {
                 node = new AbstractSyntaxTree(actualToken);
                 move();
                 return node;
@@ -757,12 +909,34 @@ public class Parser {
         throw error;
     }
 
+    private boolean isDefinition(Token token) {
+        return token.getName() == TokenType.KW_FN || token.getName() == TokenType.KW_PROTO;
+    }
+
     private boolean isNumber(Token token) {
         return token.getName() == TokenType.NUMBER;
     }
 
-    private boolean isOp(Token token) {
-        return token.getName() == TokenType.OP;
+    private boolean isLeftUnaryOp(Token token) {
+        OperatorKind op = token.getOperator();
+        return op == OperatorKind.MINUS || op == OperatorKind.NOT || isRightUnaryOp(token);
+    }
+
+    private boolean isRightUnaryOp(Token token) {
+        OperatorKind op = token.getOperator();
+        return op == OperatorKind.INCREMENT || op == OperatorKind.DECREMENT;
+    }
+
+    private boolean isAssignmentOp(Token token) {
+        OperatorKind op = token.getOperator();
+        if (op == null)
+            return false;
+        switch (op) {
+            case ASSIGN: case PLUS_ASSIGN: case MINUS_ASSIGN: case MULTIPLY_ASSIGN: case DIVIDE_ASSIGN:
+                return true;
+            default:
+                return false;
+        }
     }
 
     private boolean isID(Token token) {
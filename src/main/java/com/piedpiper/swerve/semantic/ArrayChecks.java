@@ -1,82 +1,136 @@
 package com.piedpiper.swerve.semantic;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.Function;
 
+import com.piedpiper.swerve.error.TypeError;
 import com.piedpiper.swerve.lexer.TokenType;
 import com.piedpiper.swerve.lexer.VariableToken;
 import com.piedpiper.swerve.parser.AbstractSyntaxTree;
+import com.piedpiper.swerve.parser.NodeKind;
+import com.piedpiper.swerve.parser.PackedArrayLiteral;
 
 public class ArrayChecks {
-    private static boolean isArrayLit(AbstractSyntaxTree arrayNode) {
-        return arrayNode.getLabel().equals("ARRAY-LIT");
+    /**
+     * Infer the shape of an array in a single post-order pass
+     * An array's elements are arrays one level down when its first element is an array literal
+     * @param array
+     * @param evaluateType type of a node that isn't an array literal; null to only infer the lengths
+     * @return maximum length at each array depth and, with evaluateType, the array type
+     */
+    public static ArrayShape inferShape(AbstractSyntaxTree array, Function<AbstractSyntaxTree, EntityType> evaluateType) {
+        ShapeInference inference = new ShapeInference(evaluateType);
+        EntityType type = inference.visit(array, 0, evaluateType != null);
+        List<Integer> maxLengths = new ArrayList<>(inference.depth);
+        for (int i = 0; i < inference.depth; i++)
+            maxLengths.add(inference.maxLengths[i]);
+        return new ArrayShape(maxLengths, type);
     }
 
-    private static int getMaxDepth(AbstractSyntaxTree arrayNode) {
-        return getMaxDepth(arrayNode, 1);
+    /**
+     * Given an array, return the maximum length at each array depth
+     * Used for bounds checking (single and multidimensional) arrays
+     * @param array
+     * @return list of array sizes
+     */
+    public static List<AbstractSyntaxTree> estimateArraySizes(AbstractSyntaxTree array) {
+        return estimateArraySizes(inferShape(array, null));
     }
 
-    private static int getMaxDepth(AbstractSyntaxTree arrayNode, int depth) {
-        if (!arrayNode.hasChildren() || !isArrayLit(arrayNode.getChildren().get(0)))
-            return depth;
-        int max_depth = 0;
-        for (AbstractSyntaxTree element : arrayNode.getChildren()) {
-            max_depth = Math.max(max_depth, getMaxDepth(element, depth+1));
+    public static List<AbstractSyntaxTree> estimateArraySizes(ArrayShape shape) {
+        List<AbstractSyntaxTree> sizes = new ArrayList<>();
+        for (Integer length : shape.getMaxLengths()) {
+            sizes.add(new AbstractSyntaxTree(new VariableToken(TokenType.NUMBER, String.valueOf(length))));
         }
-        return max_depth;
+        return sizes;
     }
 
-    private static List<List<Integer>> getAllArraySizes(AbstractSyntaxTree arrayNode) {
-        return getAllArraySizes(arrayNode, new ArrayList<>(), 0);
+    // what evaluating every element gives, ints mixed with doubles being doubles
+    private static NodeType packedElementType(PackedArrayLiteral literal) {
+        switch (literal.getElementKind()) {
+            case STRING:
+                return NodeType.STRING;
+            case BOOLEAN:
+                return NodeType.BOOLEAN;
+            default:
+                return literal.isIntegral() ? NodeType.INT : NodeType.DOUBLE;
+        }
     }
 
-    private static List<List<Integer>> getAllArraySizes(AbstractSyntaxTree arrayNode, List<List<Integer>> sizes, int index) {
-        int depth = getMaxDepth(arrayNode);
-        List<Integer> topLevel = List.of(arrayNode.countChildren());
-        if (depth == 1)
-            return List.of(topLevel);
-        if (sizes.isEmpty()) {
-            for (int i = 0; i < depth; i++) {
-                sizes.add(new ArrayList<>());
-            }
+    private static final class ShapeInference {
+        private final Function<AbstractSyntaxTree, EntityType> evaluateType;
+        private int[] maxLengths = new int[4];
+        // levels seen so far; the deepest array ends the deepest level
+        private int depth = 0;
+
+        private ShapeInference(Function<AbstractSyntaxTree, EntityType> evaluateType) {
+            this.evaluateType = evaluateType;
+        }
+
+        private void record(int level, int length) {
+            if (level == maxLengths.length)
+                maxLengths = Arrays.copyOf(maxLengths, maxLengths.length * 2);
+            if (level == depth)
+                depth++;
+            maxLengths[level] = Math.max(maxLengths[level], length);
         }
-        sizes.get(index).addAll(topLevel);
-        List<List<Integer>> subSizes;
-        for(AbstractSyntaxTree subArray : arrayNode.getChildren()) {
-            subSizes = getAllArraySizes(subArray, sizes, index+1);
-            if (subSizes != null)
-                sizes.get(index+1).addAll(subSizes.get(0));
+
+        // the node's type when typed, after recording it and the arrays below it at their levels
+        private EntityType visit(AbstractSyntaxTree node, int level, boolean typed) {
+            record(level, node.countChildren());
+            // the elements of a packed literal are never arrays, so it isn't expanded to look at them
+            if (node instanceof PackedArrayLiteral && ((PackedArrayLiteral) node).isPacked())
+                return typed ? EntityType.of(NodeType.ARRAY, packedElementType((PackedArrayLiteral) node)) : null;
+            boolean nested = node.hasChildren() && node.getChildren().get(0).isArrayLiteral();
+            if (!typed || (!node.matchesKind(NodeKind.ARRAY_LIT) && !node.matchesStaticToken(TokenType.KW_NULL))) {
+                EntityType type = typed ? evaluateType.apply(node) : null;
+                if (nested) {
+                    for (AbstractSyntaxTree element : node.getChildren())
+                        visit(element, level + 1, false);
+                }
+                return type;
+            }
+            // empty array literal
+            if (!node.hasChildren())
+                return EntityType.of(NodeType.ARRAY);
+            return nested ? nestedType(node, level) : flatType(node);
         }
-        if (index == 0)
-            return sizes;
-        else
-            return null;
-    }
 
-    /**
-     * Given an array, return the maximum length at each array depth
-     * Used for bounds checking (single and multidimensional) arrays
-     * @param array
-     * @return list of array sizes
-     */
-    private static List<Integer> getAllMaxDepths(AbstractSyntaxTree array) {
-        List<List<Integer>> arraySizes = getAllArraySizes(array);
-        if (arraySizes.size() == 1)
-            return arraySizes.get(0);
-        List<Integer> maxes = new ArrayList<>();
-        for (List<Integer> subList : arraySizes) {
-            maxes.add(Collections.max(subList));
+        private EntityType flatType(AbstractSyntaxTree node) {
+            List<AbstractSyntaxTree> children = node.getChildren();
+            EntityType type = evaluateType.apply(children.get(0));
+            EntityType currentType = EntityType.of(NodeType.NONE);
+            for (int i = 1; i < children.size(); i++) {
+                if (children.get(i).isArrayLiteral())
+                    throw new TypeError("Cannot mix non-array elements with nested array elements in array literal", node.getLineNumber());
+                currentType = evaluateType.apply(children.get(i));
+                if (type.isType(NodeType.NULL) && !currentType.isType(NodeType.NULL))
+                    type = currentType;
+                else if (currentType.isType(NodeType.DOUBLE) && type.isType(NodeType.INT))
+                    type = currentType;
+                else if (!((currentType.isType(NodeType.INT) && type.isType(NodeType.DOUBLE))) && !currentType.isType(NodeType.NULL) && !type.equals(currentType))
+                    throw new TypeError("Cannot mix " + type + " elements with " + currentType + " elements in array literal", node.getLineNumber());
+            }
+            return currentType.isType(NodeType.NULL) ? EntityType.of(NodeType.ARRAY) : EntityType.of(NodeType.ARRAY, type);
         }
-        return maxes;
-    }
 
-    public static List<AbstractSyntaxTree> estimateArraySizes(AbstractSyntaxTree array) {
-        List<AbstractSyntaxTree> sizes = new ArrayList<>();
-        List<Integer> depths = getAllMaxDepths(array);
-        for (Integer depth : depths) {
-            sizes.add(new AbstractSyntaxTree(new VariableToken(TokenType.NUMBER, String.valueOf(depth))));
+        // every element is visited once; the first one with elements of its own sets the type the others have to fit
+        private EntityType nestedType(AbstractSyntaxTree node, int level) {
+            List<AbstractSyntaxTree> children = node.getChildren();
+            int first = 0;
+            while (first < children.size() && !children.get(first).hasChildren())
+                first++;
+            EntityType types = first < children.size() ? visit(children.get(first), level + 1, true) : EntityType.of(NodeType.ARRAY);
+            EntityType currentTypes;
+            for (int i = 0; i < children.size(); i++) {
+                currentTypes = i == first ? types : visit(children.get(i), level + 1, true);
+                if (!types.containsSubType(currentTypes)) {
+                    throw new TypeError("Cannot mix types of arrays", node.getLineNumber());
+                }
+            }
+            return EntityType.of(NodeType.ARRAY, types);
         }
-        return sizes;
     }
 }
@@ -0,0 +1,20 @@
+package com.piedpiper.swerve.semantic;
+
+import java.util.List;
+
+import lombok.Data;
+
+/**
+ * What ArrayChecks infers from an array literal in one pass: the longest array at each nesting level and the literal's type
+ */
+@Data
+public class ArrayShape {
+    // one length per level, the outermost array first
+    private final List<Integer> maxLengths;
+    // null when only the lengths were inferred
+    private final EntityType type;
+
+    public int getDepth() {
+        return maxLengths.size();
+    }
+}
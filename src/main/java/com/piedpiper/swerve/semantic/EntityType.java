@@ -1,5 +1,8 @@
 package com.piedpiper.swerve.semantic;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 
@@ -7,117 +10,141 @@ import com.piedpiper.swerve.error.ArrayBoundsError;
 import com.piedpiper.swerve.lexer.TokenType;
 import com.piedpiper.swerve.parser.AbstractSyntaxTree;
 
-import java.util.Arrays;
-import static java.util.Map.entry;
-
-import java.util.ArrayList;
-
-import lombok.Data;
-
 /**
  * Container class to make type system uniform across simple types (int, double, etc.) and complex types (arrays)
+ * Types are interned: there is one EntityType per list of NodeTypes, built from the one for the rest of the list,
+ * so equal types are the same object and comparing them is comparing references.
+ * Every type also keeps the types it ends with, which makes indexing into an array type a lookup
  */
-@Data
-public class EntityType {
-    private final Map<TokenType, NodeType> typeMappings = Map.ofEntries(
-        entry(TokenType.KW_GEN, NodeType.GENERIC),
-        entry(TokenType.KW_BOOL, NodeType.BOOLEAN),
-        entry(TokenType.KW_INT, NodeType.INT),
-        entry(TokenType.KW_DOUBLE, NodeType.DOUBLE),
-        entry(TokenType.KW_STR, NodeType.STRING),
-        entry(TokenType.KW_ARR, NodeType.ARRAY),
-        entry(TokenType.KW_NULL, NodeType.NULL)
-    );
-    private List<NodeType> type;
-
-    private EntityType() {}
-
-    public EntityType(NodeType type) {
-        this.type = List.of(type);
+public final class EntityType {
+    private static final Map<TokenType, NodeType> typeMappings = new EnumMap<>(Map.of(
+        TokenType.KW_GEN, NodeType.GENERIC,
+        TokenType.KW_BOOL, NodeType.BOOLEAN,
+        TokenType.KW_INT, NodeType.INT,
+        TokenType.KW_DOUBLE, NodeType.DOUBLE,
+        TokenType.KW_STR, NodeType.STRING,
+        TokenType.KW_ARR, NodeType.ARRAY,
+        TokenType.KW_NULL, NodeType.NULL
+    ));
+    private static final NodeType[] NODE_TYPES = NodeType.values();
+    private static final EntityType EMPTY = new EntityType(new NodeType[0], null);
+    // guards creating types; looking them up only reads final fields and array slots that never change once set
+    private static final Object INTERNING = new Object();
+
+    private final NodeType[] type;
+    private final List<NodeType> typeList;
+    // suffixes[i] is the type of type[i..]; suffixes[0] is this
+    private final EntityType[] suffixes;
+    // the type that is one of NODE_TYPES followed by this one, by NodeType ordinal
+    private final EntityType[] prefixed = new EntityType[NODE_TYPES.length];
+
+    private EntityType(NodeType[] type, EntityType rest) {
+        this.type = type;
+        this.typeList = Collections.unmodifiableList(Arrays.asList(type));
+        this.suffixes = new EntityType[type.length];
+        if (type.length > 0) {
+            suffixes[0] = this;
+            System.arraycopy(rest.suffixes, 0, suffixes, 1, rest.suffixes.length);
+        }
+    }
+
+    public static EntityType of(NodeType type) {
+        return EMPTY.prefix(type);
+    }
+
+    public static EntityType of(NodeType... types) {
+        EntityType entityType = EMPTY;
+        for (int i = types.length - 1; i >= 0; i--)
+            entityType = entityType.prefix(types[i]);
+        return entityType;
     }
 
-    public EntityType(NodeType... types) {
-        this.type = Arrays.asList(types);
+    public static EntityType of(NodeType type, EntityType entityType) {
+        return entityType.prefix(type);
     }
 
-    public EntityType(NodeType type, EntityType entityType) {
-        this.type = new ArrayList<>();
-        this.type.add(type);
-        this.type.addAll(entityType.getType());
+    // type of a TYPE node, Array<...> types as their chain of child TYPE nodes
+    public static EntityType of(AbstractSyntaxTree AST) {
+        if (!typeMappings.containsKey(AST.getName()))
+            return EMPTY;
+        int length = 1;
+        for (AbstractSyntaxTree node = AST; node.hasChildren(); node = node.getChildren().get(0))
+            length++;
+        NodeType[] types = new NodeType[length];
+        AbstractSyntaxTree node = AST;
+        for (int i = 0; i < length; i++) {
+            types[i] = typeMappings.get(node.getName());
+            if (node.hasChildren())
+                node = node.getChildren().get(0);
+        }
+        return of(types);
     }
 
-    public EntityType(AbstractSyntaxTree AST) {
-        if (typeMappings.containsKey(AST.getName())) {
-            if (!AST.hasChildren())
-                this.type = List.of(typeMappings.get(AST.getName()));
-            else {
-                List<NodeType> types = new ArrayList<>();
-                AbstractSyntaxTree node = AST;
-                while (node.hasChildren()) {
-                    types.add(typeMappings.get(node.getName()));
-                    node = node.getChildren().get(0);
-                }
-                types.add(typeMappings.get(node.getName()));
-                this.type = types;
+    // the type that is type followed by this one
+    private EntityType prefix(NodeType type) {
+        EntityType prefixedType = prefixed[type.ordinal()];
+        if (prefixedType != null)
+            return prefixedType;
+        synchronized (INTERNING) {
+            prefixedType = prefixed[type.ordinal()];
+            if (prefixedType == null) {
+                NodeType[] types = new NodeType[this.type.length + 1];
+                types[0] = type;
+                System.arraycopy(this.type, 0, types, 1, this.type.length);
+                prefixedType = new EntityType(types, this);
+                prefixed[type.ordinal()] = prefixedType;
             }
+            return prefixedType;
         }
     }
 
+    public List<NodeType> getType() {
+        return typeList;
+    }
+
     public boolean containsSubType(NodeType nodeType) {
-        return containsSubType(new EntityType(nodeType));
+        return containsSubType(of(nodeType));
     }
 
     public boolean containsSubType(EntityType entityType) {
-        List<NodeType> typeList = entityType.getType();
-        if (type.size() == typeList.size())
-            return type.equals(typeList);
-        if (type.size() < typeList.size())
+        NodeType[] types = entityType.type;
+        if (type.length == types.length)
+            return this == entityType;
+        if (type.length < types.length)
             return false;
-        if (typeList.size() == 1) {
-            if (typeList.get(0) == NodeType.ARRAY)
-                return type.get(0) == NodeType.ARRAY;
-            return type.get(type.size() - 1) == typeList.get(0);
+        if (types.length == 1) {
+            if (types[0] == NodeType.ARRAY)
+                return type[0] == NodeType.ARRAY;
+            return type[type.length - 1] == types[0];
         }
-        int offset = type.size() - typeList.size();
-        for (int i = offset; i < typeList.size(); i++) {
-            if (typeList.get(i - offset) != type.get(i))
+        int offset = type.length - types.length;
+        for (int i = offset; i < types.length; i++) {
+            if (types[i - offset] != type[i])
                 return false;
         }
         return true;
     }
 
     public boolean isType(NodeType type) {
-        if (this.type.size() != 1)
-            return false;
-        return this.type.get(0) == type;
+        return this.type.length == 1 && this.type[0] == type;
     }
 
     public boolean startsWith(NodeType type) {
-        if (this.type.isEmpty())
-            return false;
-        return this.type.get(0) == type;
-    }
-
-    private void setType(List<NodeType> type) {
-        this.type = type;
+        return this.type.length > 0 && this.type[0] == type;
     }
 
     public EntityType index(int depth, int lineNumber) {
-        List<NodeType> types = type;
-        EntityType entityType = new EntityType();
-        if (depth < types.size()) {
-            entityType.setType(types.subList(depth, types.size()));
-            return entityType;
-        }
-        throw new ArrayBoundsError("Array index depth " + depth + " is greater than array depth " + (types.size() - 1), lineNumber);
+        if (depth < type.length)
+            return suffixes[depth];
+        throw new ArrayBoundsError("Array index depth " + depth + " is greater than array depth " + (type.length - 1), lineNumber);
     }
 
     @Override
     public String toString() {
-        if (type.isEmpty())
+        if (type.length == 0)
             return "";
-        if (type.size() == 1)
-            return this.type.get(0).toString();
-        return this.type.toString();
+        if (type.length == 1)
+            return type[0].toString();
+        return typeList.toString();
     }
 }
@@ -10,33 +10,44 @@ import com.piedpiper.swerve.error.IllegalStatementError;
 import com.piedpiper.swerve.error.ReferenceError;
 import com.piedpiper.swerve.error.TypeError;
 import com.piedpiper.swerve.error.UnreachableCodeError;
+import com.piedpiper.swerve.lexer.AtomTable;
+import com.piedpiper.swerve.lexer.OperatorKind;
 import com.piedpiper.swerve.lexer.TokenType;
 import com.piedpiper.swerve.lexer.VariableToken;
 import com.piedpiper.swerve.parser.AbstractSyntaxTree;
+import com.piedpiper.swerve.parser.AstVisitor;
+import com.piedpiper.swerve.parser.NodeKind;
 import com.piedpiper.swerve.symboltable.FunctionSymbol;
 import com.piedpiper.swerve.symboltable.PrototypeSymbol;
 import com.piedpiper.swerve.symboltable.Symbol;
 import com.piedpiper.swerve.symboltable.SymbolTable;
 
 public class SemanticAnalyzer {
-    private final SymbolTable symbolTable = new SymbolTable();
-    private final List<String> nonEqualityComparisons = List.of("<", "<=", ">", ">=");
-    private final List<String> arithmeticOperators = List.of("-", "/", "%", "**");
-    private final List<String> assignmentOperators = List.of("=", "+=", "-=", "*=", "/=");
+    private final SymbolTable symbolTable;
     private final Set<String> translatedCalls = new HashSet<>();
+    private final ExpressionTypes expressionTypes = new ExpressionTypes();
     private boolean inFunc = false;
     private boolean inPrototype = false;
     // NOTE: inLoop and translatingPrototype flags cannot be part of class state because loops and translations can be nested
 
+    public SemanticAnalyzer() {
+        this(new AtomTable());
+    }
+
+    // share the lexer's atom table so identifiers resolve by their atoms
+    public SemanticAnalyzer(AtomTable atoms) {
+        symbolTable = new SymbolTable(atoms);
+    }
+
     private void resetState() {
         inFunc = false;
         inPrototype = false;
     }
 
     public void analyze(AbstractSyntaxTree AST) {
-        analyze(AST, new EntityType(NodeType.NONE), false, false);
+        analyze(AST, EntityType.of(NodeType.NONE), false, false);
         FunctionSymbol mainNoParams = symbolTable.lookup("main", new EntityType[] {});
-        FunctionSymbol mainWithParams = symbolTable.lookup("main", new EntityType[]{new EntityType(NodeType.INT), new EntityType(NodeType.ARRAY, NodeType.STRING)});
+        FunctionSymbol mainWithParams = symbolTable.lookup("main", new EntityType[]{EntityType.of(NodeType.INT), EntityType.of(NodeType.ARRAY, NodeType.STRING)});
         if (mainNoParams == null && mainWithParams == null)
             throw new ReferenceError("Could not find entry point function 'main()' or 'main(int, Array<string>)'");
         else if (mainNoParams != null && mainWithParams != null)
@@ -48,56 +59,59 @@ public class SemanticAnalyzer {
 
     public void analyze(AbstractSyntaxTree AST, EntityType returnType, boolean inLoop, boolean translatingPrototype) {
         for (AbstractSyntaxTree subTree : AST.getChildren()) {
+            NodeKind kind = subTree.getKind();
             if (!(inFunc || inPrototype || translatingPrototype)) {
-                if (subTree.matchesLabel("CONTROL-FLOW") && isReturn(subTree))
+                if (kind == NodeKind.CONTROL_FLOW && isReturn(subTree))
                     throw new IllegalStatementError("Cannot return outside of a function", subTree.getLineNumber());
                 else if (!(
-                    subTree.matchesLabel("VAR-DECL") ||
-                    subTree.matchesLabel("ARRAY-DECL") ||
-                    subTree.matchesStaticToken(TokenType.KW_FN) ||
-                    subTree.matchesStaticToken(TokenType.KW_PROTO)
+                    kind == NodeKind.VAR_DECL ||
+                    kind == NodeKind.ARRAY_DECL ||
+                    kind == NodeKind.FUNCTION ||
+                    kind == NodeKind.PROTOTYPE
                 ))
                     throw new IllegalStatementError("Outside of a function body, can only declare variables", subTree.getLineNumber());
 
             }
-            if (subTree.matchesLabel("VAR-DECL")) {
-                handleVariableDeclaration(subTree, translatingPrototype);
-            }
-            else if (subTree.matchesLabel("ARRAY-DECL")) {
-                handleArrayDeclaration(subTree, translatingPrototype);
-            }
-            // break / continue / return
-            else if (subTree.matchesLabel("CONTROL-FLOW")) {
-                if (!inLoop && !isReturn(subTree)) {
-                    String controlType = subTree.getChildren().get(0).matchesStaticToken(TokenType.KW_BRK) ? "break" : "continue";
-                    throw new IllegalStatementError("Cannot use " + controlType  + " outside of a loop", subTree.getLineNumber());
-                }
-            }
-
-            // conditional
-            else if (subTree.matchesLabel("COND")) {
-                handleConditionalBlock(subTree.getChildren(), returnType, inLoop, translatingPrototype);
-            }
-
-            // loop
-            else if (subTree.matchesStaticToken(TokenType.KW_WHILE)) {
-                handleWhileLoop(subTree, returnType, translatingPrototype);
-            }
-
-            else if (subTree.matchesStaticToken(TokenType.KW_FOR)) {
-                handleForLoop(subTree, returnType, translatingPrototype);
-            }
-
-            // function
-            else if (subTree.matchesStaticToken(TokenType.KW_FN)) {
-                handleFunctionDefinition(subTree.getChildren(), false);
-            }
-            // prototype
-            else if (subTree.matchesStaticToken(TokenType.KW_PROTO)) {
-                handleFunctionDefinition(subTree.getChildren(), true);
-            }
-            else {
+            // labels the parser never builds have no kind and are evaluated like any other expression
+            if (kind == null) {
                 evaluateType(subTree);
+                continue;
+            }
+            switch (kind) {
+                case VAR_DECL:
+                    handleVariableDeclaration(subTree, translatingPrototype);
+                    break;
+                case ARRAY_DECL:
+                    handleArrayDeclaration(subTree, translatingPrototype);
+                    break;
+                // break / continue / return
+                case CONTROL_FLOW:
+                    if (!inLoop && !isReturn(subTree)) {
+                        String controlType = subTree.getChildren().get(0).matchesStaticToken(TokenType.KW_BRK) ? "break" : "continue";
+                        throw new IllegalStatementError("Cannot use " + controlType  + " outside of a loop", subTree.getLineNumber());
+                    }
+                    break;
+                // conditional
+                case COND:
+                    handleConditionalBlock(subTree.getChildren(), returnType, inLoop, translatingPrototype);
+                    break;
+                // loop
+                case WHILE_LOOP:
+                    handleWhileLoop(subTree, returnType, translatingPrototype);
+                    break;
+                case FOR_LOOP:
+                    handleForLoop(subTree, returnType, translatingPrototype);
+                    break;
+                // function
+                case FUNCTION:
+                    handleFunctionDefinition(subTree.getChildren(), false);
+                    break;
+                // prototype
+                case PROTOTYPE:
+                    handleFunctionDefinition(subTree.getChildren(), true);
+                    break;
+                default:
+                    evaluateType(subTree);
             }
         }
     }
@@ -116,7 +130,7 @@ public class SemanticAnalyzer {
             throw new IllegalStatementError("Cannot use generic variable outside of prototype definition", node.getLineNumber());
         if (node.countChildren() == offset + 3) {
             EntityType rhsType = evaluateType(details.get(offset + 2));
-            EntityType lhsType = new EntityType(details.get(offset));
+            EntityType lhsType = EntityType.of(details.get(offset));
             if (!lhsType.equals(rhsType) && !rhsType.isType(NodeType.NULL)) {
                 if (translatingPrototype && lhsType.isType(NodeType.GENERIC)) {
                     Symbol symbol = new Symbol(details.get(offset+1).getValue(), rhsType, isConst, details.get(offset+2), scope);
@@ -135,7 +149,7 @@ public class SemanticAnalyzer {
         int valueIndex = 0;
         boolean isConstant = details.get(0).matchesStaticToken(TokenType.KW_CONST);
         int offset = isConstant ? 1 : 0;
-        EntityType declaredType = new EntityType(details.get(offset));
+        EntityType declaredType = EntityType.of(details.get(offset));
         if (declaredType.containsSubType(NodeType.GENERIC) && !(inPrototype || translatingPrototype))
             throw new IllegalStatementError("Cannot declare generic array outside of function definition", node.getLineNumber());
         String name = details.get(offset + 1).getValue();
@@ -146,19 +160,22 @@ public class SemanticAnalyzer {
             case 3: // Valid: Array<type> name[size]; Invalid: const Array<type> name, Array<type> name = value;
                 if (isConstant)
                     throw new IllegalStatementError("Constant array '" + name + "' must be set to a value", node.getLineNumber());
-                if (!details.get(2).matchesLabel("ARRAY-INDEX"))
+                if (!details.get(2).matchesKind(NodeKind.ARRAY_INDEX))
                     throw new IllegalStatementError("Non-constant array '" + name + "' missing size", node.getLineNumber());
                 sizes = handleArraySizes(details.get(2));
                 break;
             case 4: // Valid: Array<type> name[size] = value, const Array<type> name = value; Invalid: const Array<type> name[size];
                 valueIndex = 3;
                 if (isConstant) {
-                    if (details.get(3).matchesLabel("ARRAY-INDEX"))
+                    if (details.get(3).matchesKind(NodeKind.ARRAY_INDEX))
                         throw new IllegalStatementError("Constant array '" + name + "' must be set to a value", node.getLineNumber());
-                    sizes = ArrayChecks.estimateArraySizes(details.get(valueIndex));
+                    // sized and typed from one walk over the literal
+                    ArrayShape shape = ArrayChecks.inferShape(details.get(valueIndex), this::evaluateType);
+                    sizes = ArrayChecks.estimateArraySizes(shape);
+                    declaredType = validateArrayType(details.get(valueIndex), shape.getType(), declaredType, translatingPrototype);
+                    break;
                 }
-                else
-                    sizes = handleArraySizes(details.get(2));
+                sizes = handleArraySizes(details.get(2));
                 declaredType = validateArrayType(details.get(valueIndex), declaredType, translatingPrototype);
                 break;
             case 5: // Valid const Array<type> name[size] = value;
@@ -171,7 +188,10 @@ public class SemanticAnalyzer {
     }
 
     private EntityType validateArrayType(AbstractSyntaxTree valueNode, EntityType declaredType, boolean translatingPrototype) {
-        EntityType literalType = estimateArrayTypes(valueNode);
+        return validateArrayType(valueNode, estimateArrayTypes(valueNode), declaredType, translatingPrototype);
+    }
+
+    private EntityType validateArrayType(AbstractSyntaxTree valueNode, EntityType literalType, EntityType declaredType, boolean translatingPrototype) {
         if (!declaredType.containsSubType(literalType)) {
             if (translatingPrototype && literalType.startsWith(NodeType.ARRAY) && declaredType.containsSubType(NodeType.GENERIC)) {
                 return literalType;
@@ -212,7 +232,7 @@ public class SemanticAnalyzer {
         }
         // analyze body
         AbstractSyntaxTree body = loopNode.getChildren().get(1);
-        if (body.matchesLabel("BLOCK-BODY")) {
+        if (body.matchesKind(NodeKind.BLOCK_BODY)) {
             loopHasControlFlow(body); // this will check for unreachable code
             symbolTable.enterScope();
             analyze(body, returnType, true, translatingPrototype);
@@ -228,14 +248,14 @@ public class SemanticAnalyzer {
         AbstractSyntaxTree body = null;
         switch (length) {
             case 3: // for (double element : array) {}
-                if (!loopDetails.get(0).matchesLabel("VAR-DECL"))
+                if (!loopDetails.get(0).matchesKind(NodeKind.VAR_DECL))
                     throw new IllegalStatementError("Variable declaration must be at start of for (each) loop", lineNum);
                 if (loopDetails.get(0).countChildren() != 2)
                     throw new IllegalStatementError("Loop variable must be non-constant and not-initialized", lineNum);
                 Symbol loopVar = new Symbol(loopDetails.get(0), scope);
                 EntityType loopVarType = loopVar.getType();
 
-                Symbol container = symbolTable.lookup(loopDetails.get(1).getValue());
+                Symbol container = symbolTable.lookup(loopDetails.get(1));
                 if (container == null)
                     throw new ReferenceError("Variable " + loopDetails.get(1).getValue() + " used before being defined in current scope", lineNum);
                 EntityType containerType = container.getType();
@@ -250,15 +270,15 @@ public class SemanticAnalyzer {
                 break;
             case 4: // for (int i = 0; i < 10; i++) {}
                 EntityType varType;
-                if (loopDetails.get(0).matchesLabel("VAR-DECL")) {
+                if (loopDetails.get(0).matchesKind(NodeKind.VAR_DECL)) {
                     Symbol symbol = new Symbol(loopDetails.get(0), scope);
                     varType = symbol.getType();
                     if (loopDetails.get(0).countChildren() != 3)
                         throw new IllegalStatementError("Loop variable must be non-constant and assigned to a value", lineNum);
                     handleVariableDeclaration(loopDetails.get(0), false);
                 }
-                else if (loopDetails.get(0).matchesValue("=")) {
-                    Symbol symbol = symbolTable.lookup(loopDetails.get(0).getValue());
+                else if (loopDetails.get(0).matchesOperator(OperatorKind.ASSIGN)) {
+                    Symbol symbol = symbolTable.lookup(loopDetails.get(0));
                     if (symbol == null)
                         throw new ReferenceError("Variable " + loopDetails.get(0).getValue() + " used before being defined in current scope", lineNum);
                     varType = symbol.getType();
@@ -289,7 +309,7 @@ public class SemanticAnalyzer {
         int lineNum = fnDetails.get(0).getLineNumber();
         int length = fnDetails.size();
         String name = fnDetails.get(0).getValue();
-        EntityType fnReturnType = new EntityType(NodeType.NONE);
+        EntityType fnReturnType = EntityType.of(NodeType.NONE);
         AbstractSyntaxTree body = null;
         EntityType[] types = {};
         String[] paramNames = {};
@@ -308,7 +328,7 @@ public class SemanticAnalyzer {
                         defType + " " + name + "expected to return " + fnDetails.get(1) + " but returns nothing",
                         lineNum
                     );
-                else if (fnDetails.get(1).matchesLabel("FUNC-PARAMS")) {
+                else if (fnDetails.get(1).matchesKind(NodeKind.FUNC_PARAMS)) {
                     types = getParamTypes(fnDetails.get(1).getChildren());
                     params = paramsToSymbols(fnDetails.get(1).getChildren(), scope);
                     if (isPrototype)
@@ -319,7 +339,7 @@ public class SemanticAnalyzer {
                 }
                 break;
             case 3:
-                if (fnDetails.get(1).matchesLabel("FUNC-PARAMS")) {
+                if (fnDetails.get(1).matchesKind(NodeKind.FUNC_PARAMS)) {
                     types = getParamTypes(fnDetails.get(1).getChildren());
                     params = paramsToSymbols(fnDetails.get(1).getChildren(), scope);
                     if (isPrototype)
@@ -334,7 +354,7 @@ public class SemanticAnalyzer {
                     }
                 }
                 if (fnDetails.get(1).isTypeLabel()) {
-                    fnReturnType = new EntityType(fnDetails.get(1));
+                    fnReturnType = EntityType.of(fnDetails.get(1));
                     body = fnDetails.get(2);
                 }
                 break;
@@ -343,7 +363,7 @@ public class SemanticAnalyzer {
                 params = paramsToSymbols(fnDetails.get(1).getChildren(), scope);
                 if (isPrototype)
                     paramNames = getParamNames(fnDetails.get(1).getChildren());
-                fnReturnType = new EntityType(fnDetails.get(2));
+                fnReturnType = EntityType.of(fnDetails.get(2));
                 body = fnDetails.get(3);
                 break;
         }
@@ -417,16 +437,16 @@ public class SemanticAnalyzer {
         int length = contents.size();
         for (int i = 0; i < length; i++) {
             node = contents.get(i);
-            if (node.matchesLabel("COND")) {
+            if (node.matchesKind(NodeKind.COND)) {
                 if (conditionalBlockReturns(node, returnType)) {
                     if (i < length - 1)
                         throw new UnreachableCodeError("Unreachable statement following returning conditional block", contents.get(i+1).getLineNumber());
                     return true;
                 }
             }
-            if (node.matchesStaticToken(TokenType.KW_FOR) || node.matchesStaticToken(TokenType.KW_WHILE)) {
+            if (node.matchesKind(NodeKind.FOR_LOOP) || node.matchesKind(NodeKind.WHILE_LOOP)) {
                 AbstractSyntaxTree lastChild = node.getChildren().get(node.countChildren() - 1);
-                if (lastChild.matchesLabel("BLOCK-BODY")) {
+                if (lastChild.matchesKind(NodeKind.BLOCK_BODY)) {
                     if (functionReturns(lastChild, returnType)) {
                         if (i < length - 1)
                             throw new UnreachableCodeError("Unreachable statement following returning " +  node.getName() + " loop", contents.get(i+1).getLineNumber());
@@ -465,19 +485,19 @@ public class SemanticAnalyzer {
         AbstractSyntaxTree node;
         for (int i = 0; i < length; i++) {
             node = contents.get(i);
-            if (node.matchesLabel("COND")) {
+            if (node.matchesKind(NodeKind.COND)) {
                 if (conditionalBlockHasLoopControl(node)) {
                     if (i < length - 1)
                         throw new UnreachableCodeError("Unreachable statement following continuing/breaking conditional block", contents.get(i+1).getLineNumber());
                     return true;
                 }
             }
-            if (node.matchesStaticToken(TokenType.KW_WHILE) || node.matchesStaticToken(TokenType.KW_FOR)) {
+            if (node.matchesKind(NodeKind.WHILE_LOOP) || node.matchesKind(NodeKind.FOR_LOOP)) {
                 AbstractSyntaxTree bodyNode = node.getChildren().get(node.countChildren() - 1);
-                if (bodyNode.matchesLabel("BLOCK-BODY"))
+                if (bodyNode.matchesKind(NodeKind.BLOCK_BODY))
                     return loopHasControlFlow(bodyNode);
             }
-            if (node.matchesLabel("CONTROL-FLOW")) {
+            if (node.matchesKind(NodeKind.CONTROL_FLOW)) {
                 node = node.getChildren().get(0);
                 if (i < length - 1) {
                     String controlType = node.matchesStaticToken(TokenType.KW_BRK) ? "break" : "continue";
@@ -506,7 +526,7 @@ public class SemanticAnalyzer {
     }
 
     private boolean isReturn(AbstractSyntaxTree node) {
-        if (!node.matchesLabel("CONTROL-FLOW"))
+        if (!node.matchesKind(NodeKind.CONTROL_FLOW))
             return false;
         return node.getChildren().get(0).matchesStaticToken(TokenType.KW_RET);
     }
@@ -526,7 +546,7 @@ public class SemanticAnalyzer {
         AbstractSyntaxTree param;
         for (int i = 0; i < params.size(); i++) {
             param = params.get(i);
-            types[i] = new EntityType(param.getChildren().get(0));
+            types[i] = EntityType.of(param.getChildren().get(0));
         }
         return types;
     }
@@ -554,51 +574,9 @@ public class SemanticAnalyzer {
         throw new TypeError("Ternary expression cannot evaluate to different types");
     }
 
+    // shape and type of an array literal come from the same pass in ArrayChecks
     public EntityType estimateArrayTypes(AbstractSyntaxTree node) {
-        if (!node.matchesLabel("ARRAY-LIT") && !node.matchesStaticToken(TokenType.KW_NULL))
-            return evaluateType(node);
-        // empty array literal
-        if (!node.hasChildren())
-            return new EntityType(NodeType.ARRAY);
-
-        List<AbstractSyntaxTree> children = node.getChildren();
-        // non-nested array literal
-        if (!children.get(0).isArrayLiteral()) {
-            EntityType type = evaluateType(children.get(0));
-            EntityType currentType = new EntityType(NodeType.NONE);
-            for (int i = 1; i < children.size(); i++) {
-                if (children.get(i).isArrayLiteral())
-                    throw new TypeError("Cannot mix non-array elements with nested array elements in array literal", node.getLineNumber());
-                currentType = evaluateType(children.get(i));
-                if (type.isType(NodeType.NULL) && !currentType.isType(NodeType.NULL))
-                    type = currentType;
-                else if (currentType.isType(NodeType.DOUBLE) && type.isType(NodeType.INT))
-                    type = currentType;
-                else if (!((currentType.isType(NodeType.INT) && type.isType(NodeType.DOUBLE))) && !currentType.isType(NodeType.NULL) && !type.equals(currentType))
-                    throw new TypeError("Cannot mix " + type + " elements with " + currentType + " elements in array literal", node.getLineNumber());
-            }
-            return currentType.isType(NodeType.NULL) ? new EntityType(NodeType.ARRAY) : new EntityType(NodeType.ARRAY, type);
-        }
-        // nested array literal
-        EntityType types;
-        if (children.get(0).hasChildren())
-            types = estimateArrayTypes(children.get(0));
-        else {
-            // find first element with children
-            int i = 1;
-            while (i < children.size() && !children.get(i).hasChildren()) {
-                i++;
-            }
-            types = i < children.size() ? estimateArrayTypes(children.get(i)) : new EntityType(NodeType.ARRAY);
-        }
-        EntityType currentTypes;
-        for (AbstractSyntaxTree child : children) {
-            currentTypes = estimateArrayTypes(child);
-            if (!types.containsSubType(currentTypes)) {
-                throw new TypeError("Cannot mix types of arrays", node.getLineNumber());
-            }
-        }
-        return new EntityType(NodeType.ARRAY, types);
+        return ArrayChecks.inferShape(node, this::evaluateType).getType();
     }
 
     public void validateAssignment(AbstractSyntaxTree assignmentNode) {
@@ -608,7 +586,7 @@ public class SemanticAnalyzer {
             varType = handleArrayIndex(assignmentNode.getChildren().get(0));
         }
         else {
-            Symbol symbol = symbolTable.lookup(varName);
+            Symbol symbol = symbolTable.lookup(assignmentNode.getChildren().get(0));
             if (symbol == null)
                 throw new ReferenceError("Variable " + varName + " is used before being defined in current scope", assignmentNode.getLineNumber());
             varType = symbol.getType();
@@ -623,8 +601,10 @@ public class SemanticAnalyzer {
         }
         AbstractSyntaxTree rightHandSide = assignmentNode.getChildren().get(1);
         EntityType rhsType = evaluateType(rightHandSide);
-        switch (assignmentNode.getValue()) {
-            case "=":
+        if (assignmentNode.getOperator() == null)
+            return;
+        switch (assignmentNode.getOperator()) {
+            case ASSIGN:
                 if (!rhsType.isType(NodeType.NULL) && !rhsType.equals(varType)) {
                     if (varType.isType(NodeType.GENERIC) || varType.containsSubType(NodeType.GENERIC)) {
                         Symbol concreteSymbol = new Symbol(varName, rhsType, false, rightHandSide, symbolTable.getScopeLevel());
@@ -634,113 +614,175 @@ public class SemanticAnalyzer {
                     throw new TypeError("Cannot assign " + rhsType + " to variable of type " + varType, assignmentNode.getLineNumber());
                 }
                 break;
-            case "+=":
+            case PLUS_ASSIGN:
                 handleAddition(assignmentNode);
                 break;
-            case "-=":
-            case "/=":
+            case MINUS_ASSIGN:
+            case DIVIDE_ASSIGN:
                 handleArithmetic(assignmentNode);
                 break;
-            case "*=":
+            case MULTIPLY_ASSIGN:
                 handleMultiplication(assignmentNode);
                 break;
+            default:
+                break;
         }
     }
 
     public EntityType evaluateType(AbstractSyntaxTree node) {
-        if (node.getName() == TokenType.ID) {
-            if (!node.hasChildren()) {
-                Symbol symbol = symbolTable.lookup(node.getValue());
-                if (symbol == null)
-                    throw new ReferenceError("Variable '" + node.getValue() + "' used before being defined in current scope", node.getLineNumber());
-                return symbol.getType();
-            }
-            else
+        return node.accept(expressionTypes);
+    }
+
+    // the type of every expression node, one visit per kind; statements and anything else have none
+    private final class ExpressionTypes implements AstVisitor<EntityType> {
+        @Override
+        public EntityType visitNode(AbstractSyntaxTree node) {
+            return EntityType.of(NodeType.NONE);
+        }
+
+        @Override
+        public EntityType visitIdentifier(AbstractSyntaxTree node) {
+            if (node.hasChildren())
                 return handleArrayIndex(node);
+            Symbol symbol = symbolTable.lookup(node);
+            if (symbol == null)
+                throw new ReferenceError("Variable '" + node.getValue() + "' used before being defined in current scope", node.getLineNumber());
+            return symbol.getType();
+        }
+
+        @Override
+        public EntityType visitNumber(AbstractSyntaxTree node) {
+            return EntityType.of(node.isIntegerLiteral() ? NodeType.INT : NodeType.DOUBLE);
+        }
+
+        @Override
+        public EntityType visitString(AbstractSyntaxTree node) {
+            return EntityType.of(NodeType.STRING);
+        }
+
+        @Override
+        public EntityType visitBoolean(AbstractSyntaxTree node) {
+            return EntityType.of(NodeType.BOOLEAN);
+        }
+
+        @Override
+        public EntityType visitNull(AbstractSyntaxTree node) {
+            return EntityType.of(NodeType.NULL);
+        }
+
+        @Override
+        public EntityType visitOperator(AbstractSyntaxTree node) {
+            return node.getOperator() == null ? visitNode(node) : evaluateOperatorType(node);
         }
-        if (node.isIntegerLiteral())
-            return new EntityType(NodeType.INT);
-        if (node.isDoubleLiteral())
-            return new EntityType(NodeType.DOUBLE);
-        if (node.isStringLiteral())
-            return new EntityType(NodeType.STRING);
-        if (node.isBooleanLiteral())
-            return new EntityType(NodeType.BOOLEAN);
-        if (node.matchesStaticToken(TokenType.KW_NULL))
-            return new EntityType(NodeType.NULL);
-        if (nonEqualityComparisons.contains(node.getValue()))
-            return handleComparison(node);
-        if (node.matchesValue("==") || node.matchesValue("!="))
-            return handleEqualityComparison(node);
-        if (node.matchesValue("||") || node.matchesValue("&&")) {
-            EntityType leftType = evaluateType(node.getChildren().get(0));
-            EntityType rightType = evaluateType(node.getChildren().get(1));
-            if (!(leftType.isType(NodeType.BOOLEAN) && rightType.isType(NodeType.BOOLEAN)))
-                throw new TypeError("Both sides of logical statement must be boolean but instead got " + leftType + " " + node.getValue() + " " + rightType, node.getLineNumber());
-            return new EntityType(NodeType.BOOLEAN);
-        }
-        if (arithmeticOperators.contains(node.getValue()))
-            return handleArithmetic(node);
-        if (node.matchesValue("&") || node.matchesValue("^"))
-            return handleBitwise(node);
-        if (node.matchesValue("*"))
-            return handleMultiplication(node);
-        if (node.matchesValue("+"))
-            return handleAddition(node);
-        if (assignmentOperators.contains(node.getValue()))
-            validateAssignment(node);
-        if (node.matchesLabel("UNARY-OP"))
+
+        @Override
+        public EntityType visitUnaryOp(AbstractSyntaxTree node) {
             return handleUnaryOp(node);
-        if (node.matchesLabel("FUNC-CALL")) {
-            List<AbstractSyntaxTree> children = node.getChildren();
-            String name = children.get(0).getValue();
-            FunctionSymbol matchingDefinition;
-            EntityType[] types = {};
-            if (children.size() != 1) {
-                List<AbstractSyntaxTree> funcParams = children.get(1).getChildren();
-                types = new EntityType[funcParams.size()];
-                for (int i = 0; i < funcParams.size(); i++) {
-                    types[i] = evaluateType(funcParams.get(i));
-                }
-            }
-            matchingDefinition = symbolTable.lookup(name, types);
-            if (matchingDefinition == null) {
-                // check if there is a matching prototype
-                PrototypeSymbol prototype = symbolTable.lookupPrototype(name, types);
-                if (prototype == null) {
-                    throw new ReferenceError("Could not find function definition for " + name + "(" + Arrays.toString(types) + ")", children.get(0).getLineNumber());
-                }
-                if (translatedCalls.contains(prototype.formSignature()) && prototype.returnsGeneric())
-                    return new EntityType(NodeType.NULL);
-                matchingDefinition = prototypeToFunction(prototype, types);
-            }
-            return matchingDefinition.getReturnType();
         }
-        if (node.isArrayLiteral())
+
+        @Override
+        public EntityType visitFunctionCall(AbstractSyntaxTree node) {
+            return evaluateFunctionCall(node);
+        }
+
+        @Override
+        public EntityType visitArrayLiteral(AbstractSyntaxTree node) {
             return estimateArrayTypes(node);
-        if (node.matchesLabel("TERNARY"))
+        }
+
+        @Override
+        public EntityType visitTernary(AbstractSyntaxTree node) {
             return handleTernary(node);
-        return new EntityType(NodeType.NONE);
+        }
+    }
+
+    private EntityType evaluateFunctionCall(AbstractSyntaxTree node) {
+        List<AbstractSyntaxTree> children = node.getChildren();
+        String name = children.get(0).getValue();
+        FunctionSymbol matchingDefinition;
+        EntityType[] types = {};
+        if (children.size() != 1) {
+            List<AbstractSyntaxTree> funcParams = children.get(1).getChildren();
+            types = new EntityType[funcParams.size()];
+            for (int i = 0; i < funcParams.size(); i++) {
+                types[i] = evaluateType(funcParams.get(i));
+            }
+        }
+        matchingDefinition = symbolTable.lookup(name, types);
+        if (matchingDefinition == null) {
+            // check if there is a matching prototype
+            PrototypeSymbol prototype = symbolTable.lookupPrototype(name, types);
+            if (prototype == null) {
+                throw new ReferenceError("Could not find function definition for " + name + "(" + Arrays.toString(types) + ")", children.get(0).getLineNumber());
+            }
+            if (translatedCalls.contains(prototype.formSignature()) && prototype.returnsGeneric())
+                return EntityType.of(NodeType.NULL);
+            matchingDefinition = prototypeToFunction(prototype, types);
+        }
+        return matchingDefinition.getReturnType();
+    }
+
+    private EntityType evaluateOperatorType(AbstractSyntaxTree node) {
+        switch (node.getOperator()) {
+            case LESS:
+            case LESS_EQUAL:
+            case GREATER:
+            case GREATER_EQUAL:
+                return handleComparison(node);
+            case EQUAL:
+            case NOT_EQUAL:
+                return handleEqualityComparison(node);
+            case OR:
+            case AND:
+                EntityType leftType = evaluateType(node.getChildren().get(0));
+                EntityType rightType = evaluateType(node.getChildren().get(1));
+                if (!(leftType.isType(NodeType.BOOLEAN) && rightType.isType(NodeType.BOOLEAN)))
+                    throw new TypeError("Both sides of logical statement must be boolean but instead got " + leftType + " " + node.getValue() + " " + rightType, node.getLineNumber());
+                return EntityType.of(NodeType.BOOLEAN);
+            case MINUS:
+            case DIVIDE:
+            case MODULO:
+            case POWER:
+                return handleArithmetic(node);
+            case BITWISE_AND:
+            case BITWISE_XOR:
+                return handleBitwise(node);
+            case MULTIPLY:
+                return handleMultiplication(node);
+            case PLUS:
+                return handleAddition(node);
+            case ASSIGN:
+            case PLUS_ASSIGN:
+            case MINUS_ASSIGN:
+            case MULTIPLY_ASSIGN:
+            case DIVIDE_ASSIGN:
+                validateAssignment(node);
+                return EntityType.of(NodeType.NONE);
+            default: // unary operators on their own, typed by handleUnaryOp
+                return EntityType.of(NodeType.NONE);
+        }
+    }
+
+    private static boolean isEither(EntityType type, NodeType first, NodeType second) {
+        return type.isType(first) || type.isType(second);
     }
 
     private EntityType handleComparison(AbstractSyntaxTree rootNode) {
         String comparisonOperator = rootNode.getValue();
         EntityType leftType = evaluateType(rootNode.getChildren().get(0));
         EntityType rightType = evaluateType(rootNode.getChildren().get(1));
-        Set<EntityType> acceptedTypes = Set.of(new EntityType(NodeType.INT), new EntityType(NodeType.DOUBLE));
-        if (!(acceptedTypes.contains(leftType) && acceptedTypes.contains(rightType)))
+        if (!(isEither(leftType, NodeType.INT, NodeType.DOUBLE) && isEither(rightType, NodeType.INT, NodeType.DOUBLE)))
             throw new TypeError("Cannot compare " + leftType + " with " + rightType + " using " + comparisonOperator, rootNode.getLineNumber());
-        return new EntityType(NodeType.BOOLEAN);
+        return EntityType.of(NodeType.BOOLEAN);
     }
 
     private EntityType handleBitwise(AbstractSyntaxTree rootNode) {
         String comparisonOperator = rootNode.getValue();
         EntityType leftType = evaluateType(rootNode.getChildren().get(0));
         EntityType rightType = evaluateType(rootNode.getChildren().get(1));
-        Set<EntityType> acceptedTypes = Set.of(new EntityType(NodeType.INT), new EntityType(NodeType.BOOLEAN));
-        if (!(acceptedTypes.contains(leftType) && acceptedTypes.contains(rightType)))
+        if (!(isEither(leftType, NodeType.INT, NodeType.BOOLEAN) && isEither(rightType, NodeType.INT, NodeType.BOOLEAN)))
             throw new TypeError("Binary expression (" + comparisonOperator + ") with " + leftType + " and " + rightType + " is not valid", rootNode.getLineNumber());
-        return new EntityType(NodeType.INT);
+        return EntityType.of(NodeType.INT);
     }
 
     private EntityType handleMultiplication(AbstractSyntaxTree rootNode) {
@@ -748,19 +790,19 @@ public class SemanticAnalyzer {
         EntityType rightType = evaluateType(rootNode.getChildren().get(1));
         if (leftType.isType(NodeType.INT)) {
             if (rightType.isType(NodeType.INT))
-                return new EntityType(NodeType.INT);
+                return EntityType.of(NodeType.INT);
             if (rightType.isType(NodeType.DOUBLE))
-                return new EntityType(NodeType.DOUBLE);
+                return EntityType.of(NodeType.DOUBLE);
             if (rightType.isType(NodeType.STRING))
-                return new EntityType(NodeType.STRING);
+                return EntityType.of(NodeType.STRING);
         }
         else if (leftType.isType(NodeType.DOUBLE)) {
             if (rightType.isType(NodeType.DOUBLE) || rightType.isType(NodeType.INT))
-                return new EntityType(NodeType.DOUBLE);
+                return EntityType.of(NodeType.DOUBLE);
         }
         else if (leftType.isType(NodeType.STRING)) {
             if (rightType.isType(NodeType.INT))
-                return new EntityType(NodeType.STRING);
+                return EntityType.of(NodeType.STRING);
         }
         throw new TypeError("Cannot multiply " + leftType + " with " + rightType, rootNode.getLineNumber());
     }
@@ -768,18 +810,18 @@ public class SemanticAnalyzer {
     private EntityType handleArithmetic(AbstractSyntaxTree rootNode) {
         String operator = rootNode.getValue();
         if (!rootNode.hasChildren()) // handles the minus unary operator case
-            return new EntityType(NodeType.NONE);
+            return EntityType.of(NodeType.NONE);
         EntityType leftType = evaluateType(rootNode.getChildren().get(0));
         EntityType rightType = evaluateType(rootNode.getChildren().get(1));
         if (leftType.isType(NodeType.INT)) {
             if (rightType.isType(NodeType.INT))
-                return new EntityType(NodeType.INT);
+                return EntityType.of(NodeType.INT);
             if (rightType.isType(NodeType.DOUBLE))
-                return new EntityType(NodeType.DOUBLE);
+                return EntityType.of(NodeType.DOUBLE);
         }
         else if (leftType.isType(NodeType.DOUBLE)) {
             if (rightType.isType(NodeType.DOUBLE) || rightType.isType(NodeType.INT))
-                return new EntityType(NodeType.DOUBLE);
+                return EntityType.of(NodeType.DOUBLE);
         }
         throw new TypeError("Arithmetic expression (" + operator + ") with " + leftType + " and " + rightType + " is not valid", rootNode.getLineNumber());
     }
@@ -789,16 +831,16 @@ public class SemanticAnalyzer {
         EntityType rightType = evaluateType(rootNode.getChildren().get(1));
         if (leftType.isType(NodeType.INT)) {
             if (rightType.isType(NodeType.INT))
-                return new EntityType(NodeType.INT);
+                return EntityType.of(NodeType.INT);
             if (rightType.isType(NodeType.DOUBLE))
-                return new EntityType(NodeType.DOUBLE);
+                return EntityType.of(NodeType.DOUBLE);
         }
         else if (leftType.isType(NodeType.DOUBLE)) {
             if (rightType.isType(NodeType.DOUBLE) || rightType.isType(NodeType.INT))
-                return new EntityType(NodeType.DOUBLE);
+                return EntityType.of(NodeType.DOUBLE);
         }
         else if (leftType.isType(NodeType.STRING) && rightType.isType(NodeType.STRING))
-            return new EntityType(NodeType.STRING);
+            return EntityType.of(NodeType.STRING);
         else if (leftType.startsWith(NodeType.ARRAY) && rightType.startsWith(NodeType.ARRAY)) {
             if (leftType.equals(rightType))
                 return leftType;
@@ -822,7 +864,7 @@ public class SemanticAnalyzer {
             )
             || (leftType.startsWith(NodeType.ARRAY) && rightType.startsWith(NodeType.ARRAY))
         )
-            return new EntityType(NodeType.BOOLEAN);
+            return EntityType.of(NodeType.BOOLEAN);
         throw new TypeError("Cannot check for equality between " + leftType + " and " + rightType, rootNode.getLineNumber());
     }
 
@@ -831,14 +873,16 @@ public class SemanticAnalyzer {
         AbstractSyntaxTree right = rootNode.getChildren().get(1);
         EntityType leftType = evaluateType(left);
         EntityType rightType = evaluateType(right);
-        if (left.matchesValue("!") && rightType.isType(NodeType.BOOLEAN))
-            return new EntityType(NodeType.BOOLEAN);
-        if (left.matchesValue("-") && (rightType.isType(NodeType.INT) || rightType.isType(NodeType.DOUBLE)))
+        OperatorKind prefix = left.getOperator();
+        OperatorKind postfix = right.getOperator();
+        if (prefix == OperatorKind.NOT && rightType.isType(NodeType.BOOLEAN))
+            return EntityType.of(NodeType.BOOLEAN);
+        if (prefix == OperatorKind.MINUS && (rightType.isType(NodeType.INT) || rightType.isType(NodeType.DOUBLE)))
             return rightType;
-        if (left.matchesValue("++") || left.matchesValue("--")) {
+        if (prefix == OperatorKind.INCREMENT || prefix == OperatorKind.DECREMENT) {
             if (right.getName() != TokenType.ID)
                 throw new IllegalStatementError("Can only increment/decrement non-variables using operator " + left.getValue(), left.getLineNumber());
-            if (symbolTable.lookup(right.getValue()).getValueNodes() == null)
+            if (symbolTable.lookup(right).getValueNodes() == null)
                 throw new IllegalStatementError("Can only increment/decrement initialized variables using operator " + left.getValue(), left.getLineNumber());
             if (rightType.isType(NodeType.INT) || rightType.isType(NodeType.DOUBLE)) {
                 if (right.getName() != TokenType.ID)
@@ -846,10 +890,10 @@ public class SemanticAnalyzer {
                 return rightType;
             }
         }
-        if (right.matchesValue("++") || right.matchesValue("--")) {
+        if (postfix == OperatorKind.INCREMENT || postfix == OperatorKind.DECREMENT) {
             if (left.getName() != TokenType.ID)
                 throw new IllegalStatementError("Can only increment/decrement non-variables using operator " + right.getValue(), right.getLineNumber());
-            if (symbolTable.lookup(left.getValue()).getValueNodes() == null)
+            if (symbolTable.lookup(left).getValueNodes() == null)
                 throw new IllegalStatementError("Can only increment/decrement initialized variables using operator " + right.getValue(), right.getLineNumber());
             if (leftType.isType(NodeType.INT) || leftType.isType(NodeType.DOUBLE)) {
                 if (left.getName() != TokenType.ID)
@@ -863,7 +907,7 @@ public class SemanticAnalyzer {
     }
 
     private EntityType handleArrayIndex(AbstractSyntaxTree node) {
-        Symbol symbol = symbolTable.lookup(node.getValue());
+        Symbol symbol = symbolTable.lookup(node);
         if (symbol == null)
             throw new ReferenceError("Variable '" + node.getValue() + "' used before being defined in current scope", node.getLineNumber());
         if (!symbol.getType().startsWith(NodeType.ARRAY))
@@ -909,11 +953,11 @@ public class SemanticAnalyzer {
         String signature = prototype.formSignature();
         translatedCalls.add(signature);
         Set<EntityType> returnTypes = new HashSet<>();
-        EntityType nullType = new EntityType(NodeType.NULL);
+        EntityType nullType = EntityType.of(NodeType.NULL);
         for (AbstractSyntaxTree child : prototype.getFnBodyNode().getChildren()) {
-            if (child.matchesLabel("COND") || (child.getName() != null && (child.matchesStaticToken(TokenType.KW_FOR) || child.matchesStaticToken(TokenType.KW_WHILE))))
+            if (child.matchesKind(NodeKind.COND) || child.matchesKind(NodeKind.FOR_LOOP) || child.matchesKind(NodeKind.WHILE_LOOP))
                 returnTypes.addAll(getReturnTypesFromBlocks(child));
-            if (child.matchesLabel("CONTROL-FLOW") && child.getChildren().size() == 2 && child.getChildren().get(0).matchesStaticToken(TokenType.KW_RET))
+            if (child.matchesKind(NodeKind.CONTROL_FLOW) && child.getChildren().size() == 2 && child.getChildren().get(0).matchesStaticToken(TokenType.KW_RET))
                 returnTypes.add(evaluateType(child.getChildren().get(1)));
         }
         if (returnTypes.size() > 1) {
@@ -927,30 +971,30 @@ public class SemanticAnalyzer {
             throw new TypeError("Prototype " + prototype.getName() + " returns more than one type with parameter types " + Arrays.toString(calledParams));
         }
         translatedCalls.remove(signature);
-        return returnTypes.iterator().hasNext() ? returnTypes.iterator().next() : new EntityType(NodeType.NONE);
+        return returnTypes.iterator().hasNext() ? returnTypes.iterator().next() : EntityType.of(NodeType.NONE);
     }
 
     private Set<EntityType> getReturnTypesFromBlocks(AbstractSyntaxTree block) {
         Set<EntityType> returnTypes = new HashSet<>();
-        if (block.getName() != null && (block.matchesStaticToken(TokenType.KW_FOR) || block.matchesStaticToken(TokenType.KW_WHILE))) {
+        if (block.matchesKind(NodeKind.FOR_LOOP) || block.matchesKind(NodeKind.WHILE_LOOP)) {
             AbstractSyntaxTree lastChild = block.getChildren().get(block.countChildren() - 1);
-            if (lastChild.matchesLabel("BLOCK-BODY")) {
+            if (lastChild.matchesKind(NodeKind.BLOCK_BODY)) {
                 for (AbstractSyntaxTree child : lastChild.getChildren()) {
                     if (isReturn(child) && child.getChildren().size() == 2)
                         returnTypes.add(evaluateType(child.getChildren().get(1)));
-                    if (child.matchesLabel("COND") || (child.getName() != null && (child.matchesStaticToken(TokenType.KW_FOR) || child.matchesStaticToken(TokenType.KW_WHILE))))
+                    if (child.matchesKind(NodeKind.COND) || child.matchesKind(NodeKind.FOR_LOOP) || child.matchesKind(NodeKind.WHILE_LOOP))
                         returnTypes.addAll(getReturnTypesFromBlocks(child));
                 }
             }
         }
-        if (block.matchesLabel("COND")) {
+        if (block.matchesKind(NodeKind.COND)) {
             for (AbstractSyntaxTree child : block.getChildren()) {
                 AbstractSyntaxTree lastChild = child.getChildren().get(child.countChildren() - 1);
-                if (lastChild.matchesLabel("BLOCK-BODY")) {
+                if (lastChild.matchesKind(NodeKind.BLOCK_BODY)) {
                     for (AbstractSyntaxTree body : lastChild.getChildren()) {
-                        if (body.matchesLabel("CONTROL-FLOW") && body.getChildren().size() == 2 && body.getChildren().get(0).matchesStaticToken(TokenType.KW_RET))
+                        if (body.matchesKind(NodeKind.CONTROL_FLOW) && body.getChildren().size() == 2 && body.getChildren().get(0).matchesStaticToken(TokenType.KW_RET))
                             returnTypes.add(evaluateType(body.getChildren().get(1)));
-                        if (child.matchesLabel("COND") || (child.getName() != null && (child.matchesStaticToken(TokenType.KW_FOR) || child.matchesStaticToken(TokenType.KW_WHILE))))
+                        if (child.matchesKind(NodeKind.COND) || child.matchesKind(NodeKind.FOR_LOOP) || child.matchesKind(NodeKind.WHILE_LOOP))
                             returnTypes.addAll(getReturnTypesFromBlocks(body));
                     }
                 }
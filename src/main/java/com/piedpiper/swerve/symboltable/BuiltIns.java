@@ -11,13 +11,13 @@ import com.piedpiper.swerve.semantic.NodeType;
 import static java.util.Map.entry;
 
 public class BuiltIns {
-    private static final EntityType intType = new EntityType(NodeType.INT);
-    private static final EntityType doubleType = new EntityType(NodeType.DOUBLE);
-    private static final EntityType booleanType = new EntityType(NodeType.BOOLEAN);
-    private static final EntityType stringType = new EntityType(NodeType.STRING);
-    private static final EntityType stringArrayType = new EntityType(NodeType.ARRAY, NodeType.STRING);
-    private static final EntityType genericType = new EntityType(NodeType.GENERIC);
-    private static final EntityType genericArrayType = new EntityType(NodeType.ARRAY, NodeType.GENERIC);
+    private static final EntityType intType = EntityType.of(NodeType.INT);
+    private static final EntityType doubleType = EntityType.of(NodeType.DOUBLE);
+    private static final EntityType booleanType = EntityType.of(NodeType.BOOLEAN);
+    private static final EntityType stringType = EntityType.of(NodeType.STRING);
+    private static final EntityType stringArrayType = EntityType.of(NodeType.ARRAY, NodeType.STRING);
+    private static final EntityType genericType = EntityType.of(NodeType.GENERIC);
+    private static final EntityType genericArrayType = EntityType.of(NodeType.ARRAY, NodeType.GENERIC);
     public static final Map<String, List<Symbol>> Variables = Map.ofEntries(
         entry("INT MIN", List.of(new Symbol("INT_MIN", intType, new VariableToken(TokenType.NUMBER, String.valueOf(Integer.MIN_VALUE))))),
         entry("INT_MAX", List.of(new Symbol("INT_MAX", intType, new VariableToken(TokenType.NUMBER, String.valueOf(Integer.MAX_VALUE))))),
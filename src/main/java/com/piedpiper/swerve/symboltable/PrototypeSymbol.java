@@ -22,7 +22,7 @@ valid prototype cases:
 public class PrototypeSymbol implements ProcedureSymbol {
     @NonNull
     private String name;
-    private EntityType returnType = new EntityType(NodeType.NONE);
+    private EntityType returnType = EntityType.of(NodeType.NONE);
     private EntityType[] paramTypes = {};
     private String[] paramNames = {};
     private Boolean builtIn = false;
@@ -2,14 +2,18 @@ package com.piedpiper.swerve.symboltable;
 
 import com.piedpiper.swerve.lexer.VariableToken;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
+import lombok.ToString;
 
 import java.util.List;
 
+import com.piedpiper.swerve.lexer.AtomTable;
 import com.piedpiper.swerve.lexer.Token;
 import com.piedpiper.swerve.lexer.TokenType;
 import com.piedpiper.swerve.parser.AbstractSyntaxTree;
+import com.piedpiper.swerve.parser.NodeKind;
 import com.piedpiper.swerve.semantic.EntityType;
 
 @RequiredArgsConstructor
@@ -24,6 +28,10 @@ public class Symbol {
     private boolean isConstant = false;
     private List<AbstractSyntaxTree> arraySizes = List.of(new AbstractSyntaxTree(new VariableToken(TokenType.NUMBER, "0")));
     private AbstractSyntaxTree valueNodes = null;
+    // atom of the name when the symbol came from a lexed identifier
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private int atom = AtomTable.NO_ATOM;
 
     // use this to add builtin variables
     public Symbol(@NonNull String name, @NonNull EntityType type, Token value) {
@@ -51,6 +59,7 @@ public class Symbol {
         this.isConstant = children.get(0).getName() == TokenType.KW_CONST;
         int offset = isConstant ? 1 : 0;
         this.name = children.get(offset + 1).getValue();
+        this.atom = children.get(offset + 1).getAtom();
         if (valueIndex != 0)
             this.valueNodes = children.get(valueIndex);
     }
@@ -60,15 +69,17 @@ public class Symbol {
         List<AbstractSyntaxTree> children = node.getChildren();
         this.isConstant = children.get(0).getName() == TokenType.KW_CONST;
         int offset = isConstant ? 1 : 0;
-        if (node.getLabel().equals("VAR-DECL")) {
-            this.type = new EntityType(children.get(offset));
+        if (node.matchesKind(NodeKind.VAR_DECL)) {
+            this.type = EntityType.of(children.get(offset));
             this.name = children.get(offset + 1).getValue();
+            this.atom = children.get(offset + 1).getAtom();
             if (children.size() == offset + 3)
                 this.valueNodes = children.get(offset + 2);
         }
-        else if (node.getLabel().equals("FUNC-PARAM")) {
-            this.type = new EntityType(children.get(0));
+        else if (node.matchesKind(NodeKind.FUNC_PARAM)) {
+            this.type = EntityType.of(children.get(0));
             this.name = children.get(1).getValue();
+            this.atom = children.get(1).getAtom();
         }
     }
 
@@ -1,86 +1,127 @@
 package com.piedpiper.swerve.symboltable;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
-import java.util.Stack;
 
 import com.piedpiper.swerve.error.IllegalStatementError;
 import com.piedpiper.swerve.error.NameError;
 import com.piedpiper.swerve.error.TypeError;
+import com.piedpiper.swerve.lexer.AtomTable;
+import com.piedpiper.swerve.parser.AbstractSyntaxTree;
 import com.piedpiper.swerve.semantic.EntityType;
 
-
+/**
+ * Scopes form a chain from the current one out to the built-in scope: entering one links a new scope in front
+ * and leaving it only closes it and unlinks it. Every name points at its innermost definition, which points at the one it shadows,
+ * so shadowing is one more link and a lookup skips the definitions of closed scopes, dropping them on the way.
+ * Functions and prototypes aren't scoped and are indexed by the atom of their name
+ */
 public class SymbolTable {
-    private final Map<String, List<Symbol>> table = new HashMap<>(BuiltIns.Variables);
-    private final Map<String, List<FunctionSymbol>> functionTable = new HashMap<>(BuiltIns.Functions);
-    private final Map<String, List<PrototypeSymbol>> prototypesTable = new HashMap<>(BuiltIns.Prototypes);
-    private final Stack<Integer> scopes = new Stack<>();
-    private int scopeLevel = 1;
+    private final AtomTable atoms;
+    // procedures indexed by the atom of their name; null for names without definitions
+    private final List<List<FunctionSymbol>> functionTable = new ArrayList<>();
+    private final List<List<PrototypeSymbol>> prototypesTable = new ArrayList<>();
+    // innermost definition of a variable by the atom of its name; null for names without definitions
+    private Binding[] bindings = new Binding[64];
+    private final Scope builtInScope = new Scope(0, null);
+    private Scope scope = new Scope(1, builtInScope); // global scope
     private int scopeSerial = 1;
 
     public SymbolTable() {
-        scopes.push(0); // built-in scope
-        scopes.push(1); // global scope
+        this(new AtomTable());
+    }
+
+    // use the lexer's table so atoms carried by AST nodes resolve without hashing their names
+    public SymbolTable(AtomTable atoms) {
+        this.atoms = atoms;
+        BuiltIns.Variables.forEach((name, symbols) -> symbols.forEach(symbol -> bind(atoms.intern(name), symbol, builtInScope)));
+        BuiltIns.Functions.forEach((name, symbols) -> put(functionTable, atoms.intern(name), symbols));
+        BuiltIns.Prototypes.forEach((name, symbols) -> put(prototypesTable, atoms.intern(name), symbols));
+    }
+
+    private static <T> List<T> get(List<List<T>> byAtom, int atom) {
+        return atom >= 0 && atom < byAtom.size() ? byAtom.get(atom) : null;
+    }
+
+    private static <T> void put(List<List<T>> byAtom, int atom, List<T> symbols) {
+        while (byAtom.size() <= atom)
+            byAtom.add(null);
+        byAtom.set(atom, symbols);
+    }
+
+    // innermost definition of atom in an open scope; definitions of closed scopes are on top of those and are dropped
+    private Binding visible(int atom) {
+        if (atom < 0 || atom >= bindings.length)
+            return null;
+        Binding binding = bindings[atom];
+        while (binding != null && !binding.scope.open)
+            binding = binding.shadowed;
+        bindings[atom] = binding;
+        return binding;
+    }
+
+    private void bind(int atom, Symbol symbol, Scope scope) {
+        if (atom >= bindings.length)
+            bindings = Arrays.copyOf(bindings, Math.max(bindings.length * 2, atom + 1));
+        bindings[atom] = new Binding(symbol, scope, visible(atom));
+    }
+
+    // atom for a name being defined, interning it if this is its first definition
+    private int defineAtom(int atom, String name) {
+        int resolved = atoms.resolve(atom, name);
+        return resolved == AtomTable.NO_ATOM ? atoms.intern(name) : resolved;
     }
 
     public Integer getScopeLevel() {
-        return scopeLevel;
+        return scope.level;
     }
 
-    public boolean isScopeOpen(int scope) {
-        return scopes.search(scope) != -1;
+    public boolean isScopeOpen(int level) {
+        for (Scope open = scope; open != null; open = open.parent) {
+            if (open.level == level)
+                return true;
+        }
+        return false;
     }
 
     public int enterScope() {
-        scopeLevel = scopeSerial + 1;
         scopeSerial++;
-        scopes.push(scopeLevel);
-        return scopeLevel;
+        scope = new Scope(scopeSerial, scope);
+        return scope.level;
     }
 
     public int leaveScope() {
-        if (scopeLevel <= 1)
-            return scopeLevel;
-        scopes.pop();
-        scopeLevel = scopes.peek(); // go back to the last scope still on the stack
-        // leave scopeSerial as is
-        return scopeLevel;
+        if (scope.level <= 1)
+            return scope.level;
+        scope.open = false; // its definitions are dropped when they're next looked at
+        scope = scope.parent; // leave scopeSerial as is
+        return scope.level;
     }
 
-    private void appendToExistingDefinition(ProcedureSymbol symbol, List matchingSymbols) {
+    private void appendToExistingDefinition(ProcedureSymbol symbol, int atom, List matchingSymbols) {
         if (symbol instanceof FunctionSymbol) {
             List<FunctionSymbol> symbols = new ArrayList<FunctionSymbol>(matchingSymbols);
             symbols.add((FunctionSymbol) symbol);
-            functionTable.put(symbol.getName(), symbols);
+            put(functionTable, atom, symbols);
         }
         else {
             List<PrototypeSymbol> symbols = new ArrayList<PrototypeSymbol>(matchingSymbols);
             symbols.add((PrototypeSymbol) symbol);
-            prototypesTable.put(symbol.getName(), symbols);
+            put(prototypesTable, atom, symbols);
         }
     }
 
     public void insert(Symbol symbol) {
         String name = symbol.getName();
-        if (!table.containsKey(name)) {
-            table.put(name, List.of(symbol));
-            return;
-        }
-        List<Symbol> symbols = table.get(name);
-
-        if (symbols.size() == 1 && symbols.get(0).getScope() == 0)
+        int atom = defineAtom(symbol.getAtom(), name);
+        Binding binding = visible(atom);
+        if (binding != null && binding.scope == builtInScope)
             throw new NameError("Symbol '" + name + "' is already defined in the built-in scope");
-
-        for (Symbol sym : symbols) {
-            if (sym.getScope() == scopeLevel)
-                throw new NameError("Symbol '" + name + "' is already defined in this scope");
-        }
-        symbols = new ArrayList<>(symbols);
-        symbols.add(symbol);
-        table.put(name, symbols);
+        if (binding != null && binding.scope == scope)
+            throw new NameError("Symbol '" + name + "' is already defined in this scope");
+        bind(atom, symbol, scope);
     }
 
     public void insert(ProcedureSymbol symbol) {
@@ -89,6 +130,7 @@ public class SymbolTable {
 
     public void insert(ProcedureSymbol symbol, boolean fromPrototypeTranslation) {
         String name = symbol.getName();
+        int atom = defineAtom(AtomTable.NO_ATOM, name);
         boolean isFunction = symbol instanceof FunctionSymbol;
         String entity;
         ProcedureSymbol existingSymbol;
@@ -98,12 +140,12 @@ public class SymbolTable {
                 throw new IllegalStatementError("Generic parameter found in function definition; generics can only be used in prototype");
             if (!fromPrototypeTranslation && symbol.returnsGeneric())
                 throw new IllegalStatementError("Generic return found in function definition; generics can only be used in prototype");
-            if (!functionTable.containsKey(name)) {
-                functionTable.put(name, List.of((FunctionSymbol) symbol));
+            matchingSymbols = get(functionTable, atom);
+            if (matchingSymbols == null) {
+                put(functionTable, atom, List.of((FunctionSymbol) symbol));
                 return;
             }
             entity = "Function";
-            matchingSymbols = functionTable.get(name);
             existingSymbol = (ProcedureSymbol) matchingSymbols.get(0);
             if (lookup(name, symbol.getParamTypes()) != null)
                 throw new NameError("Function '" + symbol.formSignature() + "' is already defined");
@@ -111,12 +153,12 @@ public class SymbolTable {
         else {
             if (!symbol.hasGenericParam())
                 throw new IllegalStatementError("Prototype definition must contain at least one generic parameter");
-            if (!prototypesTable.containsKey(name)) {
-                prototypesTable.put(name, List.of((PrototypeSymbol) symbol));
+            matchingSymbols = get(prototypesTable, atom);
+            if (matchingSymbols == null) {
+                put(prototypesTable, atom, List.of((PrototypeSymbol) symbol));
                 return;
             }
             entity = "Prototype";
-            matchingSymbols = prototypesTable.get(name);
             existingSymbol = (ProcedureSymbol) matchingSymbols.get(0);
             if (lookup(name, symbol.getParamTypes()) != null)
                 throw new NameError("Prototype '" + symbol.formSignature() + "' is already defined");
@@ -136,27 +178,28 @@ public class SymbolTable {
             );
             throw new TypeError(message);
         }
-        appendToExistingDefinition(symbol, matchingSymbols);
+        appendToExistingDefinition(symbol, atom, matchingSymbols);
 
     }
 
     public Symbol lookup(String symbolName) {
-        if (!table.containsKey(symbolName))
-            return null;
-        List<Symbol> matchingSymbols = table.get(symbolName);
-        if (matchingSymbols.size() == 1 && isScopeOpen(matchingSymbols.get(0).getScope()))
-                return matchingSymbols.get(0);
-        for (int i = matchingSymbols.size() - 1; i >= 0; i--) {
-            if (isScopeOpen(matchingSymbols.get(i).getScope()))
-                return matchingSymbols.get(i); // return the first matching valid scope
-        }
-        return null;
+        return lookup(atoms.find(symbolName));
+    }
+
+    // resolve an ID node through the atom it carries
+    public Symbol lookup(AbstractSyntaxTree idNode) {
+        return lookup(atoms.resolve(idNode.getAtom(), idNode.getValue()));
+    }
+
+    public Symbol lookup(int atom) {
+        Binding binding = visible(atom);
+        return binding == null ? null : binding.symbol;
     }
 
     public FunctionSymbol lookup(String name, EntityType[] types) {
-        if (!functionTable.containsKey(name))
+        List<FunctionSymbol> matchingFunctions = get(functionTable, atoms.find(name));
+        if (matchingFunctions == null)
             return null;
-        List<FunctionSymbol> matchingFunctions = functionTable.get(name);
         for (FunctionSymbol fnSymbol : matchingFunctions) {
             if (fnSymbol.hasCompatibleParams(types))
                 return fnSymbol;
@@ -165,9 +208,9 @@ public class SymbolTable {
     }
 
     public PrototypeSymbol lookupPrototype(String name, EntityType[] types) {
-        if (!prototypesTable.containsKey(name))
+        List<PrototypeSymbol> matchingPrototypes = get(prototypesTable, atoms.find(name));
+        if (matchingPrototypes == null)
             return null;
-        List<PrototypeSymbol> matchingPrototypes = prototypesTable.get(name);
         for (PrototypeSymbol prototype : matchingPrototypes) {
             if (prototype.hasCompatibleParams(types))
                 return prototype;
@@ -175,31 +218,64 @@ public class SymbolTable {
         return null;
     }
 
+    // swap the symbol lookup(name) finds for newSymbol, in the scope that defines it
     public void replace(String name, Symbol newSymbol) {
-        List<Symbol> matchingSymbols = new ArrayList<>(table.get(name));
-        matchingSymbols.remove(matchingSymbols.size() - 1);
-        matchingSymbols.add(newSymbol);
-        table.replace(name, matchingSymbols);
+        Binding binding = visible(atoms.find(name));
+        if (binding != null)
+            binding.symbol = newSymbol;
     }
 
     @Override
     public String toString() {
-        if (table.isEmpty() && functionTable.isEmpty())
-            return "";
-        StringBuilder output = new StringBuilder("Current scope level: " + scopeLevel + "\nOpen scopes: " + scopes + "\n");
+        List<Integer> levels = new ArrayList<>();
+        for (Scope open = scope; open != null; open = open.parent)
+            levels.add(0, open.level);
+        StringBuilder output = new StringBuilder("Current scope level: " + scope.level + "\nOpen scopes: " + levels + "\n");
         output.append("table: {\n");
-        for (Map.Entry<String, List<Symbol>> symbol : table.entrySet()) {
-            output.append("\t").append(symbol.getKey()).append(": ").append(symbol.getValue()).append("\n");
+        for (int atom = 0; atom < bindings.length; atom++) {
+            // outermost first
+            List<Symbol> symbols = new ArrayList<>();
+            for (Binding binding = visible(atom); binding != null; binding = binding.shadowed)
+                symbols.add(0, binding.symbol);
+            if (!symbols.isEmpty())
+                output.append("\t").append(atoms.name(atom)).append(": ").append(symbols).append("\n");
         }
         output.append("}\nfunction table: {\n");
-        for (Map.Entry<String, List<FunctionSymbol>> symbol : functionTable.entrySet()) {
-            output.append("\t").append(symbol.getKey()).append(": ").append(symbol.getValue()).append("\n");
-        }
+        appendDefinitions(output, functionTable);
         output.append("}\nprototypes table: {\n");
-        for (Map.Entry<String, List<PrototypeSymbol>> symbol : prototypesTable.entrySet()) {
-            output.append("\t").append(symbol.getKey()).append(": ").append(symbol.getValue()).append("\n");
-        }
+        appendDefinitions(output, prototypesTable);
         output.append("}");
         return output.toString();
     }
+
+    private void appendDefinitions(StringBuilder output, List<? extends List<?>> byAtom) {
+        for (int atom = 0; atom < byAtom.size(); atom++) {
+            if (byAtom.get(atom) != null)
+                output.append("\t").append(atoms.name(atom)).append(": ").append(byAtom.get(atom)).append("\n");
+        }
+    }
+
+    private static final class Scope {
+        private final int level;
+        private final Scope parent;
+        private boolean open = true;
+
+        private Scope(int level, Scope parent) {
+            this.level = level;
+            this.parent = parent;
+        }
+    }
+
+    // definition of a name in a scope, on top of the one it shadows
+    private static final class Binding {
+        private Symbol symbol;
+        private final Scope scope;
+        private final Binding shadowed;
+
+        private Binding(Symbol symbol, Scope scope, Binding shadowed) {
+            this.symbol = symbol;
+            this.scope = scope;
+            this.shadowed = shadowed;
+        }
+    }
 }
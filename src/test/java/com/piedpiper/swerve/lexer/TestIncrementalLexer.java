@@ -0,0 +1,141 @@
+package com.piedpiper.swerve.lexer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.piedpiper.swerve.error.SyntaxError;
+
+public class TestIncrementalLexer {
+    private IncrementalLexer lexer;
+
+    @BeforeEach
+    void setUp() {
+        lexer = new IncrementalLexer();
+    }
+
+    private List<Token> copy(TokenBuffer buffer) {
+        List<Token> tokens = new ArrayList<>();
+        for (int i = 0; i < buffer.size(); i++)
+            tokens.add(buffer.materialize(i));
+        return tokens;
+    }
+
+    private void assertMatchesFullLex() {
+        assertEquals(new Lexer().lex(lexer.getLines()), copy(lexer.getTokens()));
+    }
+
+    private List<String> program(int lines) {
+        List<String> source = new ArrayList<>();
+        for (int i = 0; i < lines; i++)
+            source.add("int value" + i + " = value" + (i / 2) + " + " + i + "; // line " + i);
+        return source;
+    }
+
+    @Test
+    void lex_shouldMatchLexer() {
+        List<String> source = List.of(
+            "fn square(int x): int {",
+            "\t/* multi-line",
+            "\tcomment */ return x ** 2;",
+            "}",
+            "string s = /\" \"quoted\"",
+            "text \"/;"
+        );
+        assertEquals(new Lexer().lex(source), copy(lexer.lex(source)));
+    }
+
+    @Test
+    void edit_shouldOnlyRelexChangedLine() {
+        lexer.lex(program(20000));
+        lexer.edit(10000, 1, List.of("int changed = 42;"));
+        assertEquals(1, lexer.getRelexedLines());
+        assertMatchesFullLex();
+    }
+
+    @Test
+    void edit_shouldShiftLineNumbersAfterInsertedAndRemovedLines() {
+        lexer.lex(program(100));
+        lexer.edit(10, 0, List.of("x = 1;", "y = 2;", "z = 3;"));
+        assertEquals(3, lexer.getRelexedLines());
+        assertMatchesFullLex();
+        lexer.edit(50, 20, List.of());
+        assertEquals(0, lexer.getRelexedLines());
+        assertMatchesFullLex();
+        assertEquals(new VariableToken(TokenType.ID, "value99", 83), lexer.getTokens().materialize(lexer.getTokens().size() - 6));
+    }
+
+    @Test
+    void edit_shouldRelexUntilCommentCloses() {
+        lexer.lex(program(100));
+        lexer.edit(41, 0, List.of("*/"));
+        assertEquals(1, lexer.getRelexedLines());
+        lexer.edit(20, 0, List.of("/*"));
+        assertEquals(23, lexer.getRelexedLines());
+        assertMatchesFullLex();
+        lexer.edit(20, 1, List.of());
+        assertEquals(22, lexer.getRelexedLines());
+        assertMatchesFullLex();
+    }
+
+    @Test
+    void edit_shouldRelexFromStartOfMultilineString() {
+        List<String> source = program(10);
+        source.addAll(List.of("string s = /\"", "first", "second", "third\"/;"));
+        source.addAll(program(10));
+        lexer.lex(source);
+        lexer.edit(13, 1, List.of("changed \"quoted\""));
+        assertEquals(4, lexer.getRelexedLines());
+        assertMatchesFullLex();
+    }
+
+    @Test
+    void edit_shouldRecoverAfterSyntaxError() {
+        lexer.lex(program(10));
+        SyntaxError error = assertThrows(SyntaxError.class, () -> lexer.edit(5, 1, List.of("string s = \"open")));
+        assertEquals("Line 5\n\tEOL while scanning string literal", error.getMessage());
+        lexer.edit(5, 1, List.of("string s = \"closed\";"));
+        assertMatchesFullLex();
+    }
+
+    @Test
+    void edit_shouldThrowOnUnterminatedComment() {
+        lexer.lex(program(10));
+        SyntaxError error = assertThrows(SyntaxError.class, () -> lexer.edit(11, 0, List.of("/* never closed")));
+        assertEquals("EOF while scanning multiline comment", error.getMessage());
+    }
+
+    @Test
+    void edit_shouldMatchFullLexAfterRandomEdits() {
+        List<String> fragments = List.of(
+            "int x = 1;", "/* open", "close */", "s = /\" open", "close \"/;", "string s = \"a // b\";", "// /* not a comment",
+            "y = x ** 2; /* c */", "text \"quoted\" /", "", "fn f(int a): int { return a; }", "z = /\" inline \"/ + /* inline */ 1;",
+            "close */ s = /\" open", "close \"/; /* open"
+        );
+        Random random = new Random(7);
+        lexer.lex(program(50));
+        for (int edit = 0; edit < 1000; edit++) {
+            int lineCount = lexer.getLines().size();
+            int first = 1 + random.nextInt(lineCount + 1);
+            int removed = random.nextInt(Math.min(3, lineCount - first + 2));
+            List<String> removedLines = new ArrayList<>(lexer.getLines().subList(first - 1, first - 1 + removed));
+            List<String> inserted = new ArrayList<>();
+            for (int i = random.nextInt(3); i > 0; i--)
+                inserted.add(fragments.get(random.nextInt(fragments.size())));
+            try {
+                lexer.edit(first, removed, inserted);
+            } catch (SyntaxError e) {
+                assertThrows(SyntaxError.class, () -> new Lexer().lex(lexer.getLines()));
+                // undo the edit so the source stays valid
+                lexer.edit(first, inserted.size(), removedLines);
+            }
+            assertMatchesFullLex();
+        }
+    }
+}
@@ -1,9 +1,20 @@
 package com.piedpiper.swerve.lexer;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Stream;
 
 import org.junit.jupiter.api.Test;
@@ -81,6 +92,63 @@ public class TestLexer {
         assertEquals(expectedExceptionMessage, error.getMessage());
     }
 
+    @Test
+    void analyzeLine_shouldParseNumberValues() {
+        List<Token> tokens = lexer.analyzeLine("42 3.25 007 9223372036854775807");
+        assertEquals(true, tokens.get(0).isIntegral());
+        assertEquals(42L, tokens.get(0).getLongValue());
+        assertEquals(false, tokens.get(1).isIntegral());
+        assertEquals(3.25, tokens.get(1).getDoubleValue());
+        assertEquals(7L, tokens.get(2).getLongValue());
+        assertEquals("007", tokens.get(2).getValue());
+        assertEquals(Long.MAX_VALUE, tokens.get(3).getLongValue());
+    }
+
+    @Test
+    void lexToBuffer_shouldKeepNumberValues() {
+        TokenBuffer buffer = Lexer.lexToBuffer(bytes("x = 12 + 0.5;"));
+        assertEquals(true, buffer.get(2).isIntegral());
+        assertEquals(12L, buffer.get(2).getLongValue());
+        assertEquals(false, buffer.get(4).isIntegral());
+        assertEquals(0.5, buffer.get(4).getDoubleValue());
+        assertEquals(0.5, buffer.materialize(4).getDoubleValue());
+    }
+
+    @Test
+    void analyzeLine_shouldRecognizeOperatorKinds() {
+        List<Token> tokens = lexer.analyzeLine("a += b ** c != d");
+        assertEquals(OperatorKind.PLUS_ASSIGN, tokens.get(1).getOperator());
+        assertEquals(OperatorKind.POWER, tokens.get(3).getOperator());
+        assertEquals(OperatorKind.NOT_EQUAL, tokens.get(5).getOperator());
+        assertEquals(null, tokens.get(0).getOperator());
+        assertEquals(new VariableToken(TokenType.OP, "+="), tokens.get(1).withLineNumber(0));
+    }
+
+    @Test
+    void lexToBuffer_shouldKeepOperatorKinds() {
+        String source = "+ - * / % ! & ^ = ? < > ++ -- ** && || += -= *= /= <= >= == !=";
+        TokenBuffer buffer = Lexer.lexToBuffer(bytes(source));
+        assertEquals(OperatorKind.values().length, buffer.size());
+        for (int i = 0; i < buffer.size(); i++) {
+            assertEquals(OperatorKind.values()[i], buffer.get(i).getOperator());
+            assertEquals(OperatorKind.values()[i], buffer.materialize(i).getOperator());
+            assertEquals(OperatorKind.values()[i].getSymbol(), buffer.get(i).getValue());
+        }
+    }
+
+    @Test
+    void analyzeLine_shouldThrowErrorOnIntegerOverflow() {
+        SyntaxError error = assertThrows(SyntaxError.class, () -> lexer.analyzeLine("x = 9223372036854775808;", 3));
+        assertEquals("Line 3\n\tInteger literal '9223372036854775808' is out of range", error.getMessage());
+    }
+
+    @Test
+    void analyzeLine_shouldThrowErrorOnDoubleOverflow() {
+        String literal = "1" + "0".repeat(400) + ".0";
+        SyntaxError error = assertThrows(SyntaxError.class, () -> lexer.analyzeLine(literal, 1));
+        assertEquals("Line 1\n\tDouble literal '" + literal + "' is out of range", error.getMessage());
+    }
+
     @Test
     void analyzeLine_shouldRecognizeNumberAddition() {
         List<Token> expectedTokens = List.of(
@@ -495,4 +563,332 @@ public class TestLexer {
         SyntaxError error = assertThrows(SyntaxError.class, () -> lexer.lex(source));
         assertEquals("EOF while scanning multi-line string literal", error.getMessage());
     }
+
+    // streams hand out cursors into a token buffer, copy them to compare against lexed tokens
+    private Token copy(Token token) {
+        return token.withLineNumber(token.getLineNumber());
+    }
+
+    private List<Token> drain(TokenStream stream) {
+        List<Token> tokens = new ArrayList<>();
+        for (Token token = stream.peek(0); token != null; token = stream.peek(0)) {
+            tokens.add(copy(token));
+            stream.advance();
+        }
+        return tokens;
+    }
+
+    @Test
+    void stream_shouldMatchLex() {
+        List<String> source = List.of(
+            "fn square(int x): int {",
+            "	/* multi-line",
+            "	comment */ return x ** 2;",
+            "}",
+            "string s = /\" \"quoted\"",
+            "text \"/;"
+        );
+        List<Token> tokens = drain(Lexer.stream(new StringReader(String.join("\r\n", source))));
+        assertEquals(new Lexer().lex(source), tokens);
+    }
+
+    @Test
+    void stream_shouldKeepStateAcrossChunks() {
+        // the comment and the string span many reads of the underlying reader
+        List<String> source = new ArrayList<>();
+        source.add("int x = 1; /*");
+        for (int i = 0; i < 2000; i++)
+            source.add("commented out line " + i + ";");
+        source.add("*/ string y = /\"");
+        for (int i = 0; i < 2000; i++)
+            source.add("string line " + i);
+        source.add("\"/;");
+        List<Token> tokens = drain(Lexer.stream(new StringReader(String.join("\n", source) + "\n")));
+        assertEquals(new Lexer().lex(source), tokens);
+        assertEquals(10, tokens.size());
+        assertEquals(4003, tokens.get(8).getLineNumber());
+    }
+
+    @Test
+    void stream_shouldLookAheadWithoutConsuming() {
+        TokenStream stream = Lexer.stream(new StringReader("x = 1;\ny = 2;"));
+        assertEquals(new VariableToken(TokenType.ID, "y", 2), copy(stream.peek(4)));
+        assertEquals(new VariableToken(TokenType.ID, "x", 1), copy(stream.peek(0)));
+        stream.advance();
+        assertEquals(new VariableToken(TokenType.OP, "=", 1), copy(stream.peek(0)));
+        assertEquals(null, stream.peek(7));
+    }
+
+    @Test
+    void stream_shouldReuseCursorsOfConsumedTokens() {
+        TokenStream stream = Lexer.stream(bytes("a = 1;\nb = 2;\nc = 3;\nd = 4;\ne = 5;\nf = 6;"));
+        Token first = stream.peek(0);
+        assertSame(first, stream.peek(0));
+        List<Token> peeked = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            peeked.add(stream.peek(0));
+            stream.advance();
+        }
+        // the token just consumed is still readable, the ones before may point at later tokens by now
+        assertEquals(new StaticToken(TokenType.SC, 5), copy(peeked.get(19)));
+        assertEquals(new VariableToken(TokenType.ID, "f", 6), copy(stream.peek(0)));
+        assertSame(first, peeked.get(16));
+    }
+
+    @Test
+    void writing_shouldWriteConsumedTokens() {
+        StringWriter out = new StringWriter();
+        TokenStream stream = TokenStream.writing(Lexer.stream(new StringReader("x = 1;\nprint(\"hi\");")), out);
+        stream.peek(3);
+        assertEquals("", out.toString());
+        drain(stream);
+        assertEquals(
+            "Token: ID ('x'), line: 1\n" +
+            "Token: OP ('='), line: 1\n" +
+            "Token: NUMBER ('1'), line: 1\n" +
+            "Token: SC, line: 1\n" +
+            "Token: ID ('print'), line: 2\n" +
+            "Token: LEFT_PAREN, line: 2\n" +
+            "Token: STRING ('\"hi\"'), line: 2\n" +
+            "Token: RIGHT_PAREN, line: 2\n" +
+            "Token: SC, line: 2\n",
+            out.toString());
+    }
+
+    @Test
+    void stream_shouldThrowExceptionOnUnterminatedMultilineComment() {
+        TokenStream stream = Lexer.stream(new StringReader("x = 1; /* never closed\n"));
+        SyntaxError error = assertThrows(SyntaxError.class, () -> drain(stream));
+        assertEquals("EOF while scanning multiline comment", error.getMessage());
+    }
+
+    private ByteBuffer bytes(String source) {
+        return ByteBuffer.wrap(source.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void lexBytes_shouldMatchLex() {
+        List<String> source = List.of(
+            "fn greet(string name): string {",
+            "\t/* gr\u00fc\u00dfe",
+            "\t\u00fcber */ return \"h\u00e9llo \\\"\u4e16\u754c\\\" \" + name; // \u2764",
+            "}",
+            "string s = /\" caf\u00e9 \"quoted\"",
+            "",
+            "text \"/;",
+            "Array<Array<double>> x;"
+        );
+        assertEquals(new Lexer().lex(source), new Lexer().lex(bytes(String.join("\r\n", source))));
+        assertEquals(new Lexer().lex(source), drain(Lexer.stream(bytes(String.join("\n", source)))));
+    }
+
+    @Test
+    void lexToBuffer_shouldBuildMultilineStringValueWhenAsked() {
+        List<String> source = List.of(
+            "string json = /\"{",
+            "\t\"caf\u00e9\": [\"a\", \"b\"],",
+            "\t\"n\": 1",
+            "}\"/; /\"\"/ x",
+            "/\"",
+            "\"/"
+        );
+        List<Token> expected = new Lexer().lex(source);
+        for (String separator : List.of("\n", "\r\n", "\r")) {
+            TokenBuffer buffer = Lexer.lexToBuffer(bytes(String.join(separator, source)));
+            assertEquals(expected.size(), buffer.size());
+            for (int i = 0; i < expected.size(); i++)
+                assertEquals(expected.get(i), buffer.materialize(i));
+        }
+    }
+
+    @Test
+    void lexBytes_shouldCountLinesWhileScanning() {
+        List<Token> tokens = new Lexer().lex(bytes("x\r\n\ry /* \n\n */ z /\"\n\"/ w"));
+        assertEquals(List.of(
+            new VariableToken(TokenType.ID, "x", 1),
+            new VariableToken(TokenType.ID, "y", 3),
+            new VariableToken(TokenType.ID, "z", 5),
+            new VariableToken(TokenType.STRING, "\"\n\"", 6),
+            new VariableToken(TokenType.ID, "w", 6)
+        ), tokens);
+    }
+
+    @Test
+    void lexBytes_shouldRejectNonAsciiOutsideStrings() {
+        SyntaxError error = assertThrows(SyntaxError.class, () -> new Lexer().lex(bytes("int x;\nint \u00e9 = 1;")));
+        assertEquals("Line 2\n\tUnrecognized character '\u00e9'", error.getMessage());
+    }
+
+    @Test
+    void lexBytes_shouldThrowExceptionOnUnterminatedString() {
+        SyntaxError error = assertThrows(SyntaxError.class, () -> new Lexer().lex(bytes("string s = \"abc\n\";")));
+        assertEquals("Line 1\n\tEOL while scanning string literal", error.getMessage());
+    }
+
+    @Test
+    void lexToBuffer_shouldMatchLex() {
+        String source = "fn main() {\n\tArray<string> s = {\"a\", /\"multi\n\"line\"/};\n\tint x = 10 ** 2; // done\n}";
+        List<Token> expected = new Lexer().lex(bytes(source));
+        TokenBuffer buffer = Lexer.lexToBuffer(bytes(source));
+        assertEquals(expected.size(), buffer.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Token token = buffer.get(i);
+            assertEquals(expected.get(i).getName(), token.getName());
+            assertEquals(expected.get(i).getValue(), token.getValue());
+            assertEquals(expected.get(i).getLineNumber(), token.getLineNumber());
+            assertEquals(expected.get(i), buffer.materialize(i));
+        }
+    }
+
+    @Test
+    void stream_shouldInternIdentifiers() {
+        AtomTable atoms = new AtomTable();
+        TokenStream stream = Lexer.stream(bytes("total = total + count; while (count) {}"), atoms);
+        int total = stream.peek(0).getAtom();
+        assertEquals("total", atoms.name(total));
+        assertEquals(total, stream.peek(2).getAtom());
+        assertEquals(atoms.find("count"), stream.peek(4).getAtom());
+        assertEquals(AtomTable.NO_ATOM, stream.peek(1).getAtom());
+        assertEquals(TokenType.KW_WHILE, stream.peek(6).getName());
+        // keywords are recognized without going through the atom table
+        assertEquals(AtomTable.NO_ATOM, atoms.find("while"));
+    }
+
+    @Test
+    void lex_shouldRecognizeEveryReservedWord() {
+        List<String> words = List.of(
+            "const", "int", "double", "string", "boolean", "prototype", "generic", "fn", "return", "for",
+            "if", "else", "while", "break", "continue", "true", "false", "Array", "null"
+        );
+        List<TokenType> types = List.of(
+            TokenType.KW_CONST, TokenType.KW_INT, TokenType.KW_DOUBLE, TokenType.KW_STR, TokenType.KW_BOOL,
+            TokenType.KW_PROTO, TokenType.KW_GEN, TokenType.KW_FN, TokenType.KW_RET, TokenType.KW_FOR,
+            TokenType.KW_IF, TokenType.KW_ELSE, TokenType.KW_WHILE, TokenType.KW_BRK, TokenType.KW_CNT,
+            TokenType.KW_TRUE, TokenType.KW_FALSE, TokenType.KW_ARR, TokenType.KW_NULL
+        );
+        for (int i = 0; i < words.size(); i++)
+            assertEquals(List.of(new StaticToken(types.get(i))), new Lexer().analyzeLine(words.get(i)));
+    }
+
+    @Test
+    void lex_shouldNotMistakeNearKeywordsForReservedWords() {
+        for (String id : List.of("fi", "ifs", "Int", "fo", "form", "nul", "elsa", "array", "constant", "doubles", "returns", "generics", "continues", "prototypes", "f", "i"))
+            assertEquals(List.of(new VariableToken(TokenType.ID, id)), new Lexer().analyzeLine(id));
+    }
+
+    static Stream<Arguments> parallelCorpus() throws IOException {
+        List<String> sources = new ArrayList<>();
+        for (String path : List.of(
+            "examples/valid.swrv",
+            "examples/invalid.swrv",
+            "src/integration/resources/valid/fn_returns.swrv",
+            "src/integration/resources/valid/generics.swrv",
+            "src/integration/resources/invalid/loop_scope.swrv",
+            "src/integration/resources/invalid/no_return.swrv"
+        ))
+            sources.add(Files.readString(Path.of(path)));
+        sources.add("fn square(int x): int {\r\n\t/* multi-line\r\n\tcomment */ return x ** 2;\r\n}\r\nstring s = /\" \"quoted\"\r\ntext \"/;");
+        sources.add("x\r\n\ry /* \n\n */ z /\"\n\"/ w");
+        sources.add("fn greet(string name): string {\n\t/* gr\u00fc\u00dfe\n\t\u00fcber */ return \"h\u00e9llo \\\"\u4e16\u754c\\\" \" + name; // \u2764 /*\n}\n");
+        sources.add("int x = 1; // \"\nint y = 2; /* \" */\nstring z = \"//\";\nstring w = \"/*\";\nint v = x */* c */ y;\n");
+        StringBuilder large = new StringBuilder("int x = 1; /*\n");
+        for (int i = 0; i < 200; i++)
+            large.append("commented out line ").append(i).append(";\n");
+        large.append("*/ string y = /\"\n");
+        for (int i = 0; i < 200; i++)
+            large.append("string line ").append(i).append("\n");
+        large.append("\"/;\n");
+        for (int i = 0; i < 200; i++)
+            large.append("value").append(i % 17).append(" = \"s\" + count; // note\n");
+        sources.add(large.toString());
+        // errors: unterminated literal, comment and multi-line string, and an invalid character late in the source
+        sources.add("int x = 1;\nstring s = \"open\nint y = 2;\n");
+        sources.add("int x = 1;\nint y = 2;\n/* never closed\n\n");
+        sources.add("int x = 1;\nint y = 2;\nstring s = /\" never closed\n\n");
+        sources.add("int x = 1;\nint y = 2;\nint z = 3;\nint # = 4;\n");
+        return sources.stream().map(Arguments::of);
+    }
+
+    @ParameterizedTest
+    @MethodSource("parallelCorpus")
+    void lexParallel_shouldMatchSequentialLexer(String source) {
+        ByteSource text = new ByteSource(bytes(source));
+        AtomTable sequentialAtoms = new AtomTable();
+        TokenBuffer sequential;
+        try {
+            sequential = Lexer.lexToBuffer(text, sequentialAtoms);
+        }
+        catch (SyntaxError expected) {
+            for (int chunks = 2; chunks <= 16; chunks++) {
+                int count = chunks;
+                SyntaxError error = assertThrows(SyntaxError.class, () -> ParallelLexer.lex(text, new AtomTable(), ForkJoinPool.commonPool(), count));
+                assertEquals(expected.getMessage(), error.getMessage());
+            }
+            return;
+        }
+        for (int chunks = 2; chunks <= 16; chunks++) {
+            AtomTable atoms = new AtomTable();
+            TokenBuffer parallel = ParallelLexer.lex(text, atoms, ForkJoinPool.commonPool(), chunks);
+            assertEquals(sequential.size(), parallel.size());
+            for (int i = 0; i < sequential.size(); i++) {
+                assertEquals(sequential.materialize(i), parallel.materialize(i));
+                assertEquals(sequential.get(i).getAtom(), parallel.get(i).getAtom());
+            }
+            assertEquals(sequentialAtoms.size(), atoms.size());
+        }
+    }
+
+    @Test
+    void lexParallel_shouldSplitOutsideMultilineStrings() {
+        String source = "int x;\nstring s = /\"\na\nb\nc\n\"/;\nint y;\n/* d\ne */\nint z;\n";
+        List<ParallelLexer.Boundary> boundaries = ParallelLexer.findBoundaries(source, 8);
+        List<Integer> lines = new ArrayList<>();
+        for (ParallelLexer.Boundary boundary : boundaries)
+            lines.add(boundary.lineNumber);
+        assertEquals(List.of(1, 2, 7, 8, 9, 10), lines);
+        assertEquals(LexerState.IN_MULTILINE_COMMENT, boundaries.get(4).state);
+        assertEquals("e */\n", source.substring(boundaries.get(4).offset, boundaries.get(5).offset));
+    }
+
+    @Test
+    void byteSource_shouldScanWordsLikeBytes() {
+        byte[] alphabet = {' ', '\t', 'a', '*', '"', '/', '\n', '\r', (byte) 0xC3, (byte) 0xA9, (byte) 0xAA, (byte) 0xA0};
+        Random random = new Random(11);
+        for (int run = 0; run < 200; run++) {
+            byte[] bytes = new byte[random.nextInt(40)];
+            for (int i = 0; i < bytes.length; i++)
+                bytes[i] = alphabet[random.nextInt(random.nextBoolean() ? 2 : alphabet.length)];
+            ByteSource source = new ByteSource(ByteBuffer.wrap(bytes));
+            for (int start = 0; start <= bytes.length; start++) {
+                int blank = start;
+                while (blank < bytes.length && (bytes[blank] == ' ' || bytes[blank] == '\t'))
+                    blank++;
+                assertEquals(blank, source.skipBlanks(start, bytes.length));
+                for (char c : List.of('*', '"')) {
+                    int found = start;
+                    while (found < bytes.length && bytes[found] != c && bytes[found] != '\n' && bytes[found] != '\r')
+                        found++;
+                    assertEquals(found, source.indexOfOrLineBreak(start, bytes.length, c));
+                }
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("parallelCorpus")
+    void lexBytes_shouldMatchScalarScan(String source) {
+        System.setProperty(ByteSource.SCALAR_SCAN_PROPERTY, "true");
+        List<Token> scalar;
+        try {
+            scalar = new Lexer().lex(bytes(source));
+        } catch (SyntaxError expected) {
+            System.clearProperty(ByteSource.SCALAR_SCAN_PROPERTY);
+            SyntaxError error = assertThrows(SyntaxError.class, () -> new Lexer().lex(bytes(source)));
+            assertEquals(expected.getMessage(), error.getMessage());
+            return;
+        } finally {
+            System.clearProperty(ByteSource.SCALAR_SCAN_PROPERTY);
+        }
+        assertEquals(scalar, new Lexer().lex(bytes(source)));
+    }
 }
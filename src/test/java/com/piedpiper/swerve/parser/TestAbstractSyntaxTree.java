@@ -2,13 +2,17 @@ package com.piedpiper.swerve.parser;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.List;
 
 import org.junit.jupiter.api.Test;
 
+import com.piedpiper.swerve.lexer.Lexer;
+import com.piedpiper.swerve.lexer.OperatorKind;
 import com.piedpiper.swerve.lexer.StaticToken;
+import com.piedpiper.swerve.lexer.Token;
 import com.piedpiper.swerve.lexer.TokenType;
 import com.piedpiper.swerve.lexer.VariableToken;
 import com.piedpiper.swerve.parser.AbstractSyntaxTree;
@@ -23,6 +27,28 @@ public class TestAbstractSyntaxTree {
         assertEquals(tree.countChildren(), 1);
     }
 
+    @Test
+    void test_numberLiteral_keepsLexedValue() {
+        List<Token> tokens = new Lexer().analyzeLine("10 2.5");
+        AbstractSyntaxTree integer = new AbstractSyntaxTree(tokens.get(0));
+        AbstractSyntaxTree real = new AbstractSyntaxTree(tokens.get(1));
+        assertTrue(integer.isIntegerLiteral());
+        assertEquals(10L, integer.getLongValue());
+        assertFalse(real.isIntegerLiteral());
+        assertTrue(real.isDoubleLiteral());
+        assertEquals(2.5, real.getDoubleValue());
+        assertEquals(new AbstractSyntaxTree(new VariableToken(TokenType.NUMBER, "10")), integer);
+    }
+
+    @Test
+    void test_matchesOperator() {
+        AbstractSyntaxTree lexed = new AbstractSyntaxTree(new Lexer().analyzeLine("<=").get(0));
+        AbstractSyntaxTree built = new AbstractSyntaxTree(new VariableToken(TokenType.OP, "<="));
+        assertTrue(lexed.matchesOperator(OperatorKind.LESS_EQUAL));
+        assertTrue(built.matchesOperator(OperatorKind.LESS_EQUAL));
+        assertFalse(new AbstractSyntaxTree(new VariableToken(TokenType.ID, "x")).matchesOperator(OperatorKind.LESS_EQUAL));
+    }
+
     @Test
     void test_matchesLabel_true() {
         AbstractSyntaxTree tree = new AbstractSyntaxTree("FUNC-CALL");
@@ -132,6 +158,62 @@ public class TestAbstractSyntaxTree {
         assertEquals(expectedString, treeString);
     }
 
+    @Test
+    void test_kind_derivedFromLabelOrToken() {
+        assertEquals(NodeKind.FUNC_CALL, new AbstractSyntaxTree("FUNC-CALL").getKind());
+        assertEquals(NodeKind.ELSE_IF, new AbstractSyntaxTree("ELSE IF", 3).getKind());
+        assertNull(new AbstractSyntaxTree("STMNT").getKind());
+        assertEquals(NodeKind.WHILE_LOOP, new AbstractSyntaxTree(new StaticToken(TokenType.KW_WHILE)).getKind());
+        assertEquals(NodeKind.TYPE, new AbstractSyntaxTree(new StaticToken(TokenType.KW_GEN)).getKind());
+        assertEquals(NodeKind.BOOLEAN, new AbstractSyntaxTree(new StaticToken(TokenType.KW_FALSE)).getKind());
+        // kinds restate the label, so trees built either way stay equal
+        assertEquals(new AbstractSyntaxTree("BLOCK-BODY", 2), new AbstractSyntaxTree(NodeKind.BLOCK_BODY, 2));
+        assertEquals("terminal", new AbstractSyntaxTree(NodeKind.IDENTIFIER).getLabel());
+    }
+
+    @Test
+    void test_setters_keepKindAndLabelInAgreement() {
+        AbstractSyntaxTree node = new AbstractSyntaxTree("STMNT");
+        node.setLabel("TERNARY");
+        assertEquals(NodeKind.TERNARY, node.getKind());
+        node.setKind(NodeKind.COND);
+        assertEquals("COND", node.getLabel());
+        node.setLabel("STMNT");
+        assertNull(node.getKind());
+
+        AbstractSyntaxTree terminal = new AbstractSyntaxTree(new StaticToken(TokenType.KW_WHILE));
+        terminal.setName(TokenType.KW_IF);
+        assertEquals(NodeKind.IF, terminal.getKind());
+        terminal.setKind(NodeKind.BLOCK_BODY);
+        assertEquals("BLOCK-BODY", terminal.getLabel());
+        terminal.setLabel(NodeKind.TERMINAL);
+        assertEquals(NodeKind.IF, terminal.getKind());
+    }
+
+    @Test
+    void test_accept_dispatchesOnKind() {
+        AstVisitor<String> visitor = new AstVisitor<>() {
+            @Override
+            public String visitNode(AbstractSyntaxTree node) {
+                return "node";
+            }
+
+            @Override
+            public String visitTernary(AbstractSyntaxTree node) {
+                return "ternary";
+            }
+
+            @Override
+            public String visitIdentifier(AbstractSyntaxTree node) {
+                return "identifier " + node.getValue();
+            }
+        };
+        assertEquals("ternary", new AbstractSyntaxTree(NodeKind.TERNARY).accept(visitor));
+        assertEquals("identifier x", new AbstractSyntaxTree(new VariableToken(TokenType.ID, "x")).accept(visitor));
+        assertEquals("node", new AbstractSyntaxTree(NodeKind.COND).accept(visitor));
+        assertEquals("node", new AbstractSyntaxTree("STMNT").accept(visitor));
+    }
+
     @Test
     void test_toString_multiLevelTreeWithLineNumbers() {
         AbstractSyntaxTree tree = new AbstractSyntaxTree("ARRAYACCESS", List.of(
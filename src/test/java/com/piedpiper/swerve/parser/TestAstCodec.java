@@ -0,0 +1,115 @@
+package com.piedpiper.swerve.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.piedpiper.swerve.lexer.AtomTable;
+import com.piedpiper.swerve.lexer.Lexer;
+import com.piedpiper.swerve.lexer.StaticToken;
+import com.piedpiper.swerve.lexer.Token;
+import com.piedpiper.swerve.lexer.TokenType;
+import com.piedpiper.swerve.lexer.VariableToken;
+
+public class TestAstCodec {
+    private AbstractSyntaxTree parse(String source, AtomTable atoms) {
+        return new Parser(Lexer.stream(ByteBuffer.wrap(source.getBytes(StandardCharsets.UTF_8)), atoms)).parse();
+    }
+
+    // equals leaves out what the lexer adds, so compare those node by node
+    private void assertSameTrees(AbstractSyntaxTree expected, AbstractSyntaxTree actual) {
+        assertEquals(expected, actual);
+        List<AbstractSyntaxTree> pending = new ArrayList<>(List.of(expected, actual));
+        while (!pending.isEmpty()) {
+            AbstractSyntaxTree right = pending.remove(pending.size() - 1);
+            AbstractSyntaxTree left = pending.remove(pending.size() - 1);
+            assertEquals(left.getKind(), right.getKind());
+            assertEquals(left.getAtom(), right.getAtom());
+            assertEquals(left.getOperator(), right.getOperator());
+            assertEquals(left.isIntegral(), right.isIntegral());
+            assertEquals(left.getLongValue(), right.getLongValue());
+            assertEquals(left.getDoubleValue(), right.getDoubleValue());
+            for (int i = 0; i < left.getChildren().size(); i++) {
+                pending.add(left.getChildren().get(i));
+                pending.add(right.getChildren().get(i));
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "examples/valid.swrv",
+        "src/integration/resources/valid/fn_returns.swrv",
+        "src/integration/resources/valid/generics.swrv",
+        "src/integration/resources/invalid/loop_scope.swrv",
+        "src/integration/resources/invalid/no_return.swrv"
+    })
+    void decode_shouldRestoreEncodedTree(String path) throws IOException {
+        AtomTable atoms = new AtomTable();
+        AbstractSyntaxTree tree = parse(Files.readString(Path.of(path)), atoms);
+        // a fresh compile interns the same names in the same order the lexer did
+        assertSameTrees(tree, AstCodec.decode(AstCodec.encode(tree), new AtomTable()));
+    }
+
+    @Test
+    void encode_shouldKeepValuesAndLines() throws IOException {
+        AbstractSyntaxTree tree = parse("x = 2.5;\n\n\ny = \"s\\\"t\" + 9223372036854775807;", new AtomTable());
+        AbstractSyntaxTree decoded = AstCodec.decode(AstCodec.encode(tree), new AtomTable());
+        assertSameTrees(tree, decoded);
+        assertEquals(4, decoded.getChildren().get(1).getLineNumber());
+        // without a table identifiers come back without atoms
+        assertEquals(AtomTable.NO_ATOM, AstCodec.decode(AstCodec.encode(tree), null).getChildren().get(0).getChildren().get(0).getAtom());
+    }
+
+    @Test
+    void encode_shouldShareRepeatedValues() {
+        byte[] once = AstCodec.encode(parse("total = total + 1;", new AtomTable()));
+        byte[] often = AstCodec.encode(parse("total = total + 1; total = total + 1;", new AtomTable()));
+        // the second statement only adds five 4 byte node records and the number's value, no strings
+        assertEquals(once.length + 21, often.length);
+    }
+
+    @Test
+    void decode_shouldRejectOtherVersionsAndCorruptData() {
+        byte[] encoded = AstCodec.encode(parse("x = 1;", new AtomTable()));
+        byte[] otherVersion = encoded.clone();
+        otherVersion[4] = (byte) (AstCodec.FORMAT_VERSION + 1);
+        assertThrows(IOException.class, () -> AstCodec.decode(otherVersion, new AtomTable()));
+        assertThrows(IOException.class, () -> AstCodec.decode(Arrays.copyOf(encoded, encoded.length - 1), new AtomTable()));
+        assertThrows(IOException.class, () -> AstCodec.decode(Arrays.copyOf(encoded, encoded.length + 1), new AtomTable()));
+        assertThrows(IOException.class, () -> AstCodec.decode("not a tree".getBytes(StandardCharsets.UTF_8), new AtomTable()));
+        assertThrows(IllegalArgumentException.class, () -> AstCodec.encode(new AbstractSyntaxTree("STMNT")));
+    }
+
+    @Test
+    void decode_shouldHandleDeepTrees() throws IOException {
+        // a0 + a1 + ... nests 100k levels deep
+        int terms = 100000;
+        List<Token> tokens = new ArrayList<>();
+        for (int i = 0; i < terms; i++) {
+            if (i > 0)
+                tokens.add(new VariableToken(TokenType.OP, "+"));
+            tokens.add(new VariableToken(TokenType.ID, "a" + i));
+        }
+        tokens.add(new StaticToken(TokenType.SC));
+
+        AbstractSyntaxTree node = AstCodec.decode(AstCodec.encode(new Parser(tokens).parse()), null).getChildren().get(0);
+        for (int i = 0; i < terms - 1; i++) {
+            assertEquals("a" + i, node.getChildren().get(0).getValue());
+            node = node.getChildren().get(1);
+        }
+        assertEquals("a" + (terms - 1), node.getValue());
+    }
+}
@@ -0,0 +1,104 @@
+package com.piedpiper.swerve.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.piedpiper.swerve.lexer.Lexer;
+import com.piedpiper.swerve.lexer.StaticToken;
+import com.piedpiper.swerve.lexer.Token;
+import com.piedpiper.swerve.lexer.TokenType;
+import com.piedpiper.swerve.lexer.VariableToken;
+
+public class TestAstWriter {
+    private AbstractSyntaxTree parse(String... source) {
+        return new Parser(new Lexer().lex(List.of(source))).parse();
+    }
+
+    @Test
+    void write_shouldMatchToString() throws IOException {
+        AbstractSyntaxTree tree = parse("fn main(): int {", "    Array<int> values[2] = {1, 2};", "    return values[0] + 1;", "}");
+        StringWriter out = new StringWriter();
+        AstWriter.write(tree, out);
+        assertEquals(
+            "AST => PROGRAM, children: [\n" +
+            "\tAST => Token: KW_FN, line: 1, children: [\n" +
+            "\t\tAST => Token: ID ('main'), line: 1\n" +
+            "\t\tAST => Token: KW_INT, line: 1\n" +
+            "\t\tAST => BLOCK-BODY, line: 2, children: [\n" +
+            "\t\t\tAST => ARRAY-DECL, line: 2, children: [\n" +
+            "\t\t\t\tAST => Token: KW_ARR, line: 2, children: [\n" +
+            "\t\t\t\t\tAST => Token: KW_INT, line: 2\n" +
+            "\t\t\t\t]\n" +
+            "\t\t\t\tAST => Token: ID ('values'), line: 2\n" +
+            "\t\t\t\tAST => ARRAY-INDEX, line: 2, children: [\n" +
+            "\t\t\t\t\tAST => Token: NUMBER ('2'), line: 2\n" +
+            "\t\t\t\t]\n" +
+            "\t\t\t\tAST => ARRAY-LIT, line: 2, children: [\n" +
+            "\t\t\t\t\tAST => Token: NUMBER ('1'), line: 2\n" +
+            "\t\t\t\t\tAST => Token: NUMBER ('2'), line: 2\n" +
+            "\t\t\t\t]\n" +
+            "\t\t\t]\n" +
+            "\t\t\tAST => CONTROL-FLOW, line: 3, children: [\n" +
+            "\t\t\t\tAST => Token: KW_RET, line: 3\n" +
+            "\t\t\t\tAST => Token: OP ('+'), line: 3, children: [\n" +
+            "\t\t\t\t\tAST => Token: ID ('values'), line: 3, children: [\n" +
+            "\t\t\t\t\t\tAST => ARRAY-INDEX, line: 3, children: [\n" +
+            "\t\t\t\t\t\t\tAST => Token: NUMBER ('0'), line: 3\n" +
+            "\t\t\t\t\t\t]\n" +
+            "\t\t\t\t\t]\n" +
+            "\t\t\t\t\tAST => Token: NUMBER ('1'), line: 3\n" +
+            "\t\t\t\t]\n" +
+            "\t\t\t]\n" +
+            "\t\t]\n" +
+            "\t]\n" +
+            "]",
+            out.toString());
+        assertEquals(out.toString(), tree.toString());
+    }
+
+    @Test
+    void writeJson_shouldNestChildren() throws IOException {
+        AbstractSyntaxTree tree = parse("string s = \"a\\\"b\";", "x = -1;");
+        StringWriter out = new StringWriter();
+        AstWriter.writeJson(tree, out);
+        assertEquals(
+            "{\"kind\":\"PROGRAM\",\"children\":[" +
+                "{\"kind\":\"VAR_DECL\",\"line\":1,\"children\":[" +
+                    "{\"kind\":\"TYPE\",\"token\":\"KW_STR\",\"line\":1}," +
+                    "{\"kind\":\"IDENTIFIER\",\"token\":\"ID\",\"value\":\"s\",\"line\":1}," +
+                    "{\"kind\":\"STRING\",\"token\":\"STRING\",\"value\":\"\\\"a\\\\\\\"b\\\"\",\"line\":1}]}," +
+                "{\"kind\":\"OPERATOR\",\"token\":\"OP\",\"value\":\"=\",\"line\":2,\"children\":[" +
+                    "{\"kind\":\"IDENTIFIER\",\"token\":\"ID\",\"value\":\"x\",\"line\":2}," +
+                    "{\"kind\":\"UNARY_OP\",\"line\":2,\"children\":[" +
+                        "{\"kind\":\"OPERATOR\",\"token\":\"OP\",\"value\":\"-\",\"line\":2}," +
+                        "{\"kind\":\"NUMBER\",\"token\":\"NUMBER\",\"value\":\"1\",\"line\":2}]}]}]}",
+            out.toString());
+    }
+
+    @Test
+    void write_shouldHandleDeepTrees() throws IOException {
+        // a0 + a1 + ... nests 100k levels deep
+        int terms = 100000;
+        List<Token> tokens = new ArrayList<>();
+        for (int i = 0; i < terms; i++) {
+            if (i > 0)
+                tokens.add(new VariableToken(TokenType.OP, "+"));
+            tokens.add(new VariableToken(TokenType.ID, "a" + i));
+        }
+        tokens.add(new StaticToken(TokenType.SC));
+        AbstractSyntaxTree tree = new Parser(tokens).parse();
+
+        StringWriter out = new StringWriter();
+        AstWriter.writeJson(tree, out);
+        String json = out.toString();
+        assertTrue(json.startsWith("{\"kind\":\"PROGRAM\",\"children\":[{\"kind\":\"OPERATOR\""));
+        assertTrue(json.endsWith("\"value\":\"a" + (terms - 1) + "\"}" + "]}".repeat(terms)));
+    }
+}
@@ -0,0 +1,61 @@
+package com.piedpiper.swerve.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.piedpiper.swerve.lexer.AtomTable;
+import com.piedpiper.swerve.lexer.Lexer;
+
+public class TestParseCache {
+    @TempDir
+    Path directory;
+
+    private String key(String source) throws IOException {
+        Path file = Files.writeString(directory.resolve("source.swrv"), source);
+        try (FileChannel channel = FileChannel.open(file)) {
+            return ParseCache.key(channel);
+        }
+    }
+
+    @Test
+    void key_shouldHashContent() throws IOException {
+        assertEquals("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855", key(""));
+        assertEquals(key("x = 1;"), key("x = 1;"));
+        assertNotEquals(key("x = 1;"), key("x = 2;"));
+        // longer than one read
+        assertNotEquals(key("x = 1;".repeat(20000)), key("x = 1;".repeat(20000) + " "));
+    }
+
+    @Test
+    void get_shouldReturnStoredTree() throws IOException {
+        ParseCache cache = new ParseCache(directory.resolve("cache"));
+        String key = key("x = 1;");
+        assertNull(cache.get(key, new AtomTable()));
+
+        AbstractSyntaxTree tree = new Parser(new Lexer().lex(List.of("x = 1;"))).parse();
+        cache.put(key, tree);
+        AtomTable atoms = new AtomTable();
+        AbstractSyntaxTree cached = cache.get(key, atoms);
+        assertEquals(tree, cached);
+        assertEquals(atoms.find("x"), cached.getChildren().get(0).getChildren().get(0).getAtom());
+        assertEquals(List.of(directory.resolve("cache").resolve(key + ".ast")), Files.list(directory.resolve("cache")).toList());
+    }
+
+    @Test
+    void get_shouldMissOnUnreadableEntries() throws IOException {
+        ParseCache cache = new ParseCache(directory);
+        String key = key("x = 1;");
+        Files.write(directory.resolve(key + ".ast"), new byte[] {1, 2, 3});
+        assertNull(cache.get(key, null));
+    }
+}
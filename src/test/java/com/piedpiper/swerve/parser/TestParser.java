@@ -1,9 +1,18 @@
 package com.piedpiper.swerve.parser;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Stream;
 
 import org.junit.jupiter.api.Test;
@@ -14,6 +23,7 @@ import org.junit.jupiter.params.provider.MethodSource;
 import org.junit.jupiter.params.provider.ValueSource;
 
 import com.piedpiper.swerve.error.SyntaxError;
+import com.piedpiper.swerve.lexer.Lexer;
 import com.piedpiper.swerve.lexer.StaticToken;
 import com.piedpiper.swerve.lexer.Token;
 import com.piedpiper.swerve.lexer.TokenType;
@@ -32,17 +42,27 @@ public class TestParser {
     private final Token rightSQBToken = new StaticToken(TokenType.RIGHT_SQB);
     private final Token SCToken = new StaticToken(TokenType.SC);
 
+    // every test also parses in parallel, split before every top-level definition, which has to agree with the sequential parse
+    private AbstractSyntaxTree parse(List<Token> tokens) {
+        AbstractSyntaxTree tree = new Parser(tokens).parse();
+        assertEquals(tree, ParallelParser.parse(tokens, ForkJoinPool.commonPool(), 1));
+        return tree;
+    }
+
     private void assertSyntaxError(String expectedErrorMessage, List<Token> tokens) {
         Parser parser = new Parser(tokens);
         SyntaxError error = assertThrows(SyntaxError.class, parser::parse);
         assertEquals(expectedErrorMessage, error.getMessage());
+        // slices that can't be parsed are left to the sequential parser, so the same error is thrown
+        assertNull(ParallelParser.parse(tokens, ForkJoinPool.commonPool(), 1));
+        error = assertThrows(SyntaxError.class, () -> Parser.parseParallel(tokens));
+        assertEquals(expectedErrorMessage, error.getMessage());
     }
 
     private void assertAST(AbstractSyntaxTree expectedAST, List<Token> tokens) {
-        Parser parser = new Parser(tokens);
         AbstractSyntaxTree rootAST = new AbstractSyntaxTree("PROGRAM");
         rootAST.appendChildren(expectedAST);
-        assertEquals(rootAST, parser.parse());
+        assertEquals(rootAST, parse(tokens));
     }
 
     // top-level parse
@@ -326,6 +346,87 @@ public class TestParser {
         assertAST(expectedAST, tokens);
     }
 
+    @Test
+    void test_parseComparisonExpression_chained() {
+        List<Token> tokens = List.of(
+            new VariableToken(TokenType.ID, "a"),
+            new VariableToken(TokenType.OP, "<"),
+            new VariableToken(TokenType.ID, "b"),
+            new VariableToken(TokenType.OP, "<"),
+            new VariableToken(TokenType.ID, "c"),
+            SCToken
+        );
+        assertSyntaxError("Missing semicolon", tokens);
+    }
+
+    // parseBinaryExpression
+    @Test
+    void test_parseBinaryExpression_precedence() {
+        // a || b && c == d + e * f ** g - h
+        List<Token> tokens = List.of(
+            new VariableToken(TokenType.ID, "a"),
+            new VariableToken(TokenType.OP, "||"),
+            new VariableToken(TokenType.ID, "b"),
+            new VariableToken(TokenType.OP, "&&"),
+            new VariableToken(TokenType.ID, "c"),
+            new VariableToken(TokenType.OP, "=="),
+            new VariableToken(TokenType.ID, "d"),
+            new VariableToken(TokenType.OP, "+"),
+            new VariableToken(TokenType.ID, "e"),
+            new VariableToken(TokenType.OP, "*"),
+            new VariableToken(TokenType.ID, "f"),
+            new VariableToken(TokenType.OP, "**"),
+            new VariableToken(TokenType.ID, "g"),
+            new VariableToken(TokenType.OP, "-"),
+            new VariableToken(TokenType.ID, "h"),
+            SCToken
+        );
+
+        AbstractSyntaxTree expectedAST = new AbstractSyntaxTree(tokens.get(1), List.of(
+            new AbstractSyntaxTree(tokens.get(0)),
+            new AbstractSyntaxTree(tokens.get(3), List.of(
+                new AbstractSyntaxTree(tokens.get(2)),
+                new AbstractSyntaxTree(tokens.get(5), List.of(
+                    new AbstractSyntaxTree(tokens.get(4)),
+                    new AbstractSyntaxTree(tokens.get(7), List.of(
+                        new AbstractSyntaxTree(tokens.get(6)),
+                        new AbstractSyntaxTree(tokens.get(13), List.of(
+                            new AbstractSyntaxTree(tokens.get(9), List.of(
+                                new AbstractSyntaxTree(tokens.get(8)),
+                                new AbstractSyntaxTree(tokens.get(11), tokens.get(10), tokens.get(12))
+                            )),
+                            new AbstractSyntaxTree(tokens.get(14))
+                        ))
+                    ))
+                ))
+            ))
+        ));
+
+        assertAST(expectedAST, tokens);
+    }
+
+    @Test
+    void test_parseBinaryExpression_longChain() {
+        // a0 + a1 + ... deep enough to overflow the stack if every operator recursed
+        int terms = 100000;
+        List<Token> tokens = new ArrayList<>();
+        for (int i = 0; i < terms; i++) {
+            if (i > 0)
+                tokens.add(new VariableToken(TokenType.OP, "+"));
+            tokens.add(new VariableToken(TokenType.ID, "a" + i));
+        }
+        tokens.add(SCToken);
+
+        // walk down the right spine; equals and toString would recurse over the whole tree
+        AbstractSyntaxTree node = new Parser(tokens).parse().getChildren().get(0);
+        for (int i = 0; i < terms - 1; i++) {
+            assertEquals("+", node.getValue());
+            assertEquals("a" + i, node.getChildren().get(0).getValue());
+            node = node.getChildren().get(1);
+        }
+        assertEquals("a" + (terms - 1), node.getValue());
+    }
+
     // parseUnaryOp
     @ParameterizedTest
     @ValueSource(strings = {"++", "--"})
@@ -1642,4 +1743,339 @@ public class TestParser {
 
         assertAST(expectedAST, tokens);
     }
+
+    @Test
+    void test_variableAssignmentArrayIndex_acrossLines() {
+        // arr[0]
+        //     = 1;
+        List<Token> tokens = List.of(
+            new VariableToken(TokenType.ID, "arr", 1),
+            new StaticToken(TokenType.LEFT_SQB, 1),
+            new VariableToken(TokenType.NUMBER, "0", 1),
+            new StaticToken(TokenType.RIGHT_SQB, 1),
+            new VariableToken(TokenType.OP, "=", 2),
+            new VariableToken(TokenType.NUMBER, "1", 2),
+            new StaticToken(TokenType.SC, 2)
+        );
+
+        // built node by node so the terminals keep their line numbers
+        AbstractSyntaxTree array = new AbstractSyntaxTree(tokens.get(0));
+        array.appendChildren(new AbstractSyntaxTree("ARRAY-INDEX", 1, tokens.get(2)));
+        AbstractSyntaxTree expectedAST = new AbstractSyntaxTree(tokens.get(4));
+        expectedAST.appendChildren(array, new AbstractSyntaxTree(tokens.get(5)));
+
+        assertAST(expectedAST, tokens);
+    }
+
+    @Test
+    void test_arrayAccessFollowedByAssignmentOnSameLine() {
+        // arr[0]; count = 1;
+        List<Token> tokens = List.of(
+            new VariableToken(TokenType.ID, "arr"),
+            leftSQBToken,
+            new VariableToken(TokenType.NUMBER, "0"),
+            rightSQBToken,
+            SCToken,
+            new VariableToken(TokenType.ID, "count"),
+            new VariableToken(TokenType.OP, "="),
+            new VariableToken(TokenType.NUMBER, "1"),
+            SCToken
+        );
+
+        AbstractSyntaxTree expectedAST = new AbstractSyntaxTree("PROGRAM", List.of(
+            new AbstractSyntaxTree(tokens.get(0), List.of(
+                new AbstractSyntaxTree("ARRAY-INDEX", tokens.get(2))
+            )),
+            new AbstractSyntaxTree(tokens.get(6), tokens.get(5), tokens.get(7))
+        ));
+
+        assertEquals(expectedAST, parse(tokens));
+    }
+
+    @Test
+    void test_arrayStatementsOnOneLongLine() {
+        // arr[0] = 0; arr[1] = 1; ... arr[7143]; arr[7144]; ... with about 100k tokens on one line
+        int assignments = 7143;
+        int accesses = 10000;
+        List<Token> tokens = new ArrayList<>();
+        for (int i = 0; i < assignments + accesses; i++) {
+            tokens.add(new VariableToken(TokenType.ID, "arr", 1));
+            tokens.add(new StaticToken(TokenType.LEFT_SQB, 1));
+            tokens.add(new VariableToken(TokenType.NUMBER, String.valueOf(i), 1));
+            tokens.add(new StaticToken(TokenType.RIGHT_SQB, 1));
+            if (i < assignments) {
+                tokens.add(new VariableToken(TokenType.OP, "=", 1));
+                tokens.add(new VariableToken(TokenType.NUMBER, String.valueOf(i), 1));
+            }
+            tokens.add(new StaticToken(TokenType.SC, 1));
+        }
+
+        List<AbstractSyntaxTree> statements = parse(tokens).getChildren();
+        assertEquals(assignments + accesses, statements.size());
+        for (int i = 0; i < statements.size(); i++) {
+            AbstractSyntaxTree statement = statements.get(i);
+            if (i < assignments) {
+                assertEquals("=", statement.getValue());
+                assertEquals(String.valueOf(i), statement.getChildren().get(1).getValue());
+                statement = statement.getChildren().get(0);
+            }
+            assertEquals("arr", statement.getValue());
+            assertEquals(String.valueOf(i), statement.getChildren().get(0).getChildren().get(0).getValue());
+        }
+    }
+
+    private AbstractSyntaxTree parseRecovering(List<SyntaxError> errors, String... source) {
+        return new Parser(new Lexer().lex(List.of(source))).parse(errors);
+    }
+
+    private List<String> messages(List<SyntaxError> errors) {
+        List<String> messages = new ArrayList<>();
+        errors.forEach(error -> messages.add(error.getMessage()));
+        return messages;
+    }
+
+    @Test
+    void test_recovery_reportsEveryError() {
+        List<SyntaxError> errors = new ArrayList<>();
+        AbstractSyntaxTree tree = parseRecovering(errors,
+            "fn a() {",
+            "    int x = ;",
+            "    x = 1;",
+            "}",
+            "fn b() {",
+            "    y = (1 + ;",
+            "}",
+            "int z = 3;"
+        );
+        assertEquals(List.of("Line 2\n\tExpected EXPR but got SC", "Line 6\n\tExpected RIGHT_PAREN but got SC"), messages(errors));
+        // collected errors never fill in a stack trace, one rethrown from them does
+        assertEquals(0, errors.get(0).getStackTrace().length);
+        SyntaxError rethrown = new SyntaxError(errors.get(0));
+        assertEquals(errors.get(0).getMessage(), rethrown.getMessage());
+        assertEquals(2, rethrown.getLineNumber());
+        assertTrue(rethrown.getStackTrace().length > 0);
+
+        List<AbstractSyntaxTree> functions = tree.getChildren();
+        assertEquals(3, functions.size());
+        List<AbstractSyntaxTree> body = functions.get(0).getChildren().get(1).getChildren();
+        assertEquals(new AbstractSyntaxTree(NodeKind.ERROR, 2), body.get(0));
+        assertEquals("=", body.get(1).getValue());
+        assertEquals(NodeKind.ERROR, functions.get(1).getChildren().get(1).getChildren().get(0).getKind());
+        assertEquals(NodeKind.VAR_DECL, functions.get(2).getKind());
+    }
+
+    @Test
+    void test_recovery_skipsBlocksOfBrokenStatements() {
+        List<SyntaxError> errors = new ArrayList<>();
+        AbstractSyntaxTree tree = parseRecovering(errors,
+            "}",
+            "fn a() {",
+            "    while ((x) {",
+            "        x = 1;",
+            "    }",
+            "    y = 2;",
+            "}"
+        );
+        assertEquals(List.of("Line 1\n\tInvalid STMT", "Line 3\n\tExpected RIGHT_PAREN but got LEFT_CB"), messages(errors));
+        List<AbstractSyntaxTree> body = tree.getChildren().get(1).getChildren().get(1).getChildren();
+        assertEquals(2, body.size());
+        assertEquals(NodeKind.ERROR, body.get(0).getKind());
+        assertEquals("y", body.get(1).getChildren().get(0).getValue());
+    }
+
+    @Test
+    void test_recovery_stopsBlockAtNextFunction() {
+        List<SyntaxError> errors = new ArrayList<>();
+        AbstractSyntaxTree tree = parseRecovering(errors, "fn a() {", "    x = 1;", "fn b() {}");
+        assertEquals(List.of("Line 3\n\tExpected RIGHT_CB but got KW_FN"), messages(errors));
+        assertEquals(NodeKind.ERROR, tree.getChildren().get(0).getKind());
+        assertEquals("b", tree.getChildren().get(1).getChildren().get(0).getValue());
+    }
+
+    @Test
+    void test_recovery_reportsEndOfInputOnce() {
+        List<SyntaxError> errors = new ArrayList<>();
+        parseRecovering(errors, "fn a() {", "    if (x) {", "        x = 1");
+        assertEquals(List.of("Line 3\n\tMissing semicolon"), messages(errors));
+    }
+
+    @Test
+    void test_recovery_matchesParseWithoutErrors() {
+        String[] source = {"fn main() {", "    int x = 1;", "    while (x < 10) { x += 1; }", "}"};
+        List<SyntaxError> errors = new ArrayList<>();
+        assertEquals(parse(new Lexer().lex(List.of(source))), parseRecovering(errors, source));
+        assertTrue(errors.isEmpty());
+    }
+
+    // parallel parsing
+    @Test
+    void test_parseParallel_splitsAtTopLevelDefinitions() {
+        String[] source = {
+            "int total = 0;",
+            "fn add(int a, int b): int { if (a > b) { return a; } return a + b; }",
+            "prototype first(Array<generic> array): generic { return array[0]; }",
+            "fn main() { total = add(1, 2); }"
+        };
+        List<Token> tokens = new Lexer().lex(List.of(source));
+        List<Integer> boundaries = ParallelParser.findBoundaries(tokens, 1);
+        assertEquals(4, boundaries.size());
+        for (int boundary : boundaries.subList(1, boundaries.size()))
+            assertTrue(tokens.get(boundary).getName() == TokenType.KW_FN || tokens.get(boundary).getName() == TokenType.KW_PROTO);
+        assertEquals(List.of(0), ParallelParser.findBoundaries(tokens, ParallelParser.MIN_SLICE_TOKENS));
+        assertEquals(new Parser(tokens).parse(), Parser.parseParallel(tokens));
+
+        // a stray brace leaves the slices to the sequential parser
+        assertNull(ParallelParser.findBoundaries(new Lexer().lex(List.of("fn f() { }", "}")), 1));
+    }
+
+    // lazy function bodies
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "examples/valid.swrv",
+        "src/integration/resources/valid/fn_returns.swrv",
+        "src/integration/resources/valid/generics.swrv",
+        "src/integration/resources/invalid/no_return.swrv"
+    })
+    void test_parseLazily_matchesParse(String path) throws IOException {
+        List<Token> tokens = new Lexer().lex(Files.readAllLines(Path.of(path)));
+        assertEquals(new Parser(tokens).parse(), Parser.parseLazily(tokens));
+    }
+
+    @Test
+    void test_parseLazily_parsesBodiesOnDemand() {
+        String[] source = {
+            "fn add(int a, int b): int { if (a > b) { return a; } return a + b; }",
+            "prototype first(Array<generic> array): generic {",
+            "    while ((x) { x += 1; }",
+            "}",
+            "fn empty() {}"
+        };
+        List<Token> tokens = new Lexer().lex(List.of(source));
+        AbstractSyntaxTree program = Parser.parseLazily(tokens);
+        assertEquals(3, program.countChildren());
+
+        // the signatures are parsed, the bodies only have their braces matched
+        AbstractSyntaxTree add = program.getChildren().get(0);
+        assertEquals("add", add.getChildren().get(0).getValue());
+        assertEquals(NodeKind.TYPE, add.getChildren().get(2).getKind());
+        LazyBlockBody addBody = (LazyBlockBody) add.getChildren().get(3);
+        LazyBlockBody firstBody = (LazyBlockBody) program.getChildren().get(1).getChildren().get(3);
+        assertFalse(addBody.isParsed());
+        assertFalse(firstBody.isParsed());
+        assertEquals(1, program.getChildren().get(2).countChildren());
+
+        assertEquals(2, addBody.countChildren());
+        assertTrue(addBody.isParsed());
+        assertEquals(NodeKind.COND, addBody.getChildren().get(0).getKind());
+        assertEquals(1, addBody.getLineNumber());
+
+        // a syntax error in a body surfaces when the body is parsed, every time it is asked for
+        SyntaxError error = assertThrows(SyntaxError.class, () -> new Parser(tokens).parse());
+        assertEquals(error.getMessage(), assertThrows(SyntaxError.class, firstBody::getChildren).getMessage());
+        assertEquals(error.getMessage(), assertThrows(SyntaxError.class, firstBody::getChildren).getMessage());
+        assertFalse(firstBody.isParsed());
+    }
+
+    // packed array literals
+    private AbstractSyntaxTree parseLiteral(List<String> elements) {
+        List<Token> tokens = new Lexer().lex(List.of("x = {" + String.join(", ", elements) + "};"));
+        // comparing with what the parallel parser builds unpacks the literals, so the one returned is parsed again
+        parse(tokens);
+        return new Parser(tokens).parse().getChildren().get(0).getChildren().get(1);
+    }
+
+    @Test
+    void test_parseArrayLiteral_packsLiteralElements() {
+        List<String> elements = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+            elements.add(i % 3 == 0 ? "-" + i : String.valueOf(i));
+        elements.add("2.5");
+        AbstractSyntaxTree literal = parseLiteral(elements);
+        assertTrue(literal instanceof PackedArrayLiteral);
+
+        PackedArrayLiteral packed = (PackedArrayLiteral) literal;
+        assertEquals(NodeKind.NUMBER, packed.getElementKind());
+        assertEquals(21, packed.size());
+        assertEquals(21, packed.countChildren());
+        assertFalse(packed.isIntegral());
+        assertEquals(-3, packed.getLongValue(3));
+        assertEquals(4, packed.getLongValue(4));
+        assertEquals(2.5, packed.getDoubleValue(20));
+
+        // the element nodes are what parseExpr builds for them
+        AbstractSyntaxTree expected = new AbstractSyntaxTree(NodeKind.ARRAY_LIT, 1);
+        for (String element : elements) {
+            AbstractSyntaxTree number = new AbstractSyntaxTree(new VariableToken(TokenType.NUMBER, element.replace("-", ""), 1));
+            if (element.startsWith("-"))
+                number = new AbstractSyntaxTree(NodeKind.UNARY_OP, 1, List.of(new AbstractSyntaxTree(new VariableToken(TokenType.OP, "-", 1)), number));
+            expected.appendChildren(number);
+        }
+        assertEquals(expected, literal);
+        assertEquals(expected.toString(), literal.toString());
+    }
+
+    @Test
+    void test_parseArrayLiteral_packedLiteralCanBeChanged() {
+        List<String> elements = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+            elements.add(String.valueOf(i));
+        PackedArrayLiteral literal = (PackedArrayLiteral) parseLiteral(elements);
+        assertTrue(literal.isPacked());
+
+        // asking for the children turns the elements into ordinary ones that passes can rewrite
+        AbstractSyntaxTree extra = new AbstractSyntaxTree(new VariableToken(TokenType.NUMBER, "20", 1));
+        literal.appendChildren(extra);
+        literal.getChildren().set(0, new AbstractSyntaxTree(new VariableToken(TokenType.NUMBER, "-1", 1)));
+        assertFalse(literal.isPacked());
+        assertEquals(21, literal.countChildren());
+        assertSame(extra, literal.getChildren().get(20));
+        assertEquals("-1", literal.getChildren().get(0).getValue());
+        assertEquals("19", literal.getChildren().get(19).getValue());
+        assertThrows(IllegalStateException.class, () -> literal.getLongValue(0));
+
+        // setting them doesn't build the old elements first
+        PackedArrayLiteral replaced = (PackedArrayLiteral) parseLiteral(elements);
+        replaced.setChildren(new ArrayList<>(List.of(extra)));
+        assertFalse(replaced.isPacked());
+        assertEquals(List.of(extra), replaced.getChildren());
+        assertEquals(new AbstractSyntaxTree(NodeKind.ARRAY_LIT, 1, List.of(extra)), replaced);
+    }
+
+    @Test
+    void test_parseArrayLiteral_packsStringsAndBooleans() {
+        List<String> strings = new ArrayList<>();
+        List<String> booleans = new ArrayList<>();
+        for (int i = 0; i < PackedArrayLiteral.MIN_ELEMENTS; i++) {
+            strings.add("\"s" + i + "\"");
+            booleans.add(i % 2 == 0 ? "true" : "false");
+        }
+        PackedArrayLiteral packedStrings = (PackedArrayLiteral) parseLiteral(strings);
+        assertEquals(NodeKind.STRING, packedStrings.getElementKind());
+        assertEquals("\"s7\"", packedStrings.getString(7));
+        assertEquals(new AbstractSyntaxTree(new VariableToken(TokenType.STRING, "\"s7\"", 1)), packedStrings.getChildren().get(7));
+
+        PackedArrayLiteral packedBooleans = (PackedArrayLiteral) parseLiteral(booleans);
+        assertEquals(NodeKind.BOOLEAN, packedBooleans.getElementKind());
+        assertFalse(packedBooleans.getBoolean(1));
+        assertEquals(new AbstractSyntaxTree(new StaticToken(TokenType.KW_TRUE, 1)), packedBooleans.getChildren().get(2));
+    }
+
+    @Test
+    void test_parseArrayLiteral_keepsNodesForOtherElements() {
+        List<String> elements = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+            elements.add(String.valueOf(i));
+        // an expression, a mix of kinds, a number not spelled the way it is printed and a short literal are left as nodes
+        for (String other : List.of("n + 1", "\"s\"", "1.50")) {
+            List<String> withOther = new ArrayList<>(elements);
+            withOther.add(10, other);
+            AbstractSyntaxTree literal = parseLiteral(withOther);
+            assertFalse(literal instanceof PackedArrayLiteral);
+            assertEquals(21, literal.countChildren());
+            assertEquals(String.valueOf(9), literal.getChildren().get(9).getValue());
+            assertEquals(String.valueOf(19), literal.getChildren().get(20).getValue());
+        }
+        assertFalse(parseLiteral(elements.subList(0, PackedArrayLiteral.MIN_ELEMENTS - 1)) instanceof PackedArrayLiteral);
+        assertSyntaxError("Line 1\n\tExpected COMMA but got NUMBER ('3')", new Lexer().lex(List.of("x = {1, 2 3};")));
+    }
 }
\ No newline at end of file
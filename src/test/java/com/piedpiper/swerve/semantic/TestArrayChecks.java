@@ -1,17 +1,23 @@
 package com.piedpiper.swerve.semantic;
 
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import com.piedpiper.swerve.error.TypeError;
 import com.piedpiper.swerve.lexer.TokenType;
 import com.piedpiper.swerve.lexer.VariableToken;
 import com.piedpiper.swerve.parser.AbstractSyntaxTree;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Function;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public class TestArrayChecks {
     private static final AbstractSyntaxTree[] asts = {
@@ -102,4 +108,45 @@ public class TestArrayChecks {
     private static AbstractSyntaxTree intToNumberToken(int value) {
         return new AbstractSyntaxTree(new VariableToken(TokenType.NUMBER, String.valueOf(value)));
     }
+
+    // numbers only, remembering what was evaluated
+    private static Function<AbstractSyntaxTree, EntityType> numberTypes(List<AbstractSyntaxTree> evaluated) {
+        return node -> {
+            evaluated.add(node);
+            return EntityType.of(node.isIntegerLiteral() ? NodeType.INT : NodeType.DOUBLE);
+        };
+    }
+
+    @Test
+    void test_inferShape_typesAndSizesInOnePass() {
+        // {{{2, 3}, {4}, {}}, {}, {{1}, {2, 3, 4}}}
+        List<AbstractSyntaxTree> evaluated = new ArrayList<>();
+        ArrayShape shape = ArrayChecks.inferShape(asts[3], numberTypes(evaluated));
+        assertEquals(List.of(3, 3, 3), shape.getMaxLengths());
+        assertEquals(3, shape.getDepth());
+        assertEquals(EntityType.of(NodeType.ARRAY, NodeType.ARRAY, NodeType.ARRAY, NodeType.INT), shape.getType());
+        // every element once, where estimating the type used to walk the first sub-array twice
+        assertEquals(7, evaluated.size());
+
+        shape = ArrayChecks.inferShape(asts[4], null);
+        assertEquals(List.of(4, 2, 1, 1, 0), shape.getMaxLengths());
+        assertNull(shape.getType());
+    }
+
+    @Test
+    void test_inferShape_mixedArrays() {
+        // {{1, 2}, {2.5}}
+        AbstractSyntaxTree mixed = new AbstractSyntaxTree("ARRAY-LIT", List.of(
+            new AbstractSyntaxTree("ARRAY-LIT", List.of(intToNumberToken(1), intToNumberToken(2))),
+            new AbstractSyntaxTree("ARRAY-LIT", List.of(new AbstractSyntaxTree(new VariableToken(TokenType.NUMBER, "2.5"))))
+        ));
+        assertThrows(TypeError.class, () -> ArrayChecks.inferShape(mixed, numberTypes(new ArrayList<>())));
+        // {1, {2}}
+        AbstractSyntaxTree flat = new AbstractSyntaxTree("ARRAY-LIT", List.of(
+            intToNumberToken(1),
+            new AbstractSyntaxTree("ARRAY-LIT", List.of(intToNumberToken(2)))
+        ));
+        assertThrows(TypeError.class, () -> ArrayChecks.inferShape(flat, numberTypes(new ArrayList<>())));
+        assertEquals(List.of(2), ArrayChecks.inferShape(flat, null).getMaxLengths());
+    }
 }
\ No newline at end of file
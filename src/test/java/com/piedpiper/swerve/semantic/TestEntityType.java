@@ -0,0 +1,54 @@
+package com.piedpiper.swerve.semantic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.piedpiper.swerve.error.ArrayBoundsError;
+import com.piedpiper.swerve.lexer.StaticToken;
+import com.piedpiper.swerve.lexer.TokenType;
+import com.piedpiper.swerve.parser.AbstractSyntaxTree;
+
+public class TestEntityType {
+    @Test
+    void of_shouldInternTypes() {
+        EntityType matrix = EntityType.of(NodeType.ARRAY, NodeType.ARRAY, NodeType.DOUBLE);
+        assertSame(matrix, EntityType.of(NodeType.ARRAY, EntityType.of(NodeType.ARRAY, EntityType.of(NodeType.DOUBLE))));
+        assertSame(EntityType.of(NodeType.INT), EntityType.of(NodeType.INT));
+        assertEquals(List.of(NodeType.ARRAY, NodeType.ARRAY, NodeType.DOUBLE), matrix.getType());
+        assertEquals("[ARRAY, ARRAY, DOUBLE]", matrix.toString());
+
+        // Array<Array<double>>
+        AbstractSyntaxTree typeNode = new AbstractSyntaxTree(new StaticToken(TokenType.KW_ARR), List.of(
+            new AbstractSyntaxTree(new StaticToken(TokenType.KW_ARR), List.of(
+                new AbstractSyntaxTree(new StaticToken(TokenType.KW_DOUBLE))
+            ))
+        ));
+        assertSame(matrix, EntityType.of(typeNode));
+    }
+
+    @Test
+    void index_shouldReturnInternedSuffix() {
+        EntityType matrix = EntityType.of(NodeType.ARRAY, NodeType.ARRAY, NodeType.DOUBLE);
+        assertSame(matrix, matrix.index(0, 1));
+        assertSame(EntityType.of(NodeType.ARRAY, NodeType.DOUBLE), matrix.index(1, 1));
+        assertSame(EntityType.of(NodeType.DOUBLE), matrix.index(2, 1));
+        assertThrows(ArrayBoundsError.class, () -> matrix.index(3, 1));
+    }
+
+    @Test
+    void containsSubType_shouldMatchEndOfType() {
+        EntityType matrix = EntityType.of(NodeType.ARRAY, NodeType.ARRAY, NodeType.DOUBLE);
+        assertTrue(matrix.containsSubType(NodeType.DOUBLE));
+        assertTrue(matrix.containsSubType(NodeType.ARRAY));
+        assertTrue(matrix.containsSubType(EntityType.of(NodeType.ARRAY, NodeType.DOUBLE)));
+        assertFalse(matrix.containsSubType(EntityType.of(NodeType.ARRAY, NodeType.ARRAY, NodeType.INT)));
+        assertFalse(EntityType.of(NodeType.INT).containsSubType(matrix));
+    }
+}
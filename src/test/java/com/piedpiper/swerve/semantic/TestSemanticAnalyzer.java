@@ -12,15 +12,20 @@ import com.piedpiper.swerve.error.NameError;
 import com.piedpiper.swerve.error.ReferenceError;
 import com.piedpiper.swerve.error.TypeError;
 import com.piedpiper.swerve.error.UnreachableCodeError;
+import com.piedpiper.swerve.lexer.Lexer;
 import com.piedpiper.swerve.lexer.StaticToken;
 import com.piedpiper.swerve.lexer.Token;
 import com.piedpiper.swerve.lexer.TokenType;
 import com.piedpiper.swerve.lexer.VariableToken;
 import com.piedpiper.swerve.parser.AbstractSyntaxTree;
+import com.piedpiper.swerve.parser.NodeKind;
+import com.piedpiper.swerve.parser.PackedArrayLiteral;
+import com.piedpiper.swerve.parser.Parser;
 import com.piedpiper.swerve.semantic.EntityType;
 import com.piedpiper.swerve.semantic.NodeType;
 import com.piedpiper.swerve.semantic.SemanticAnalyzer;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Stream;
 
@@ -83,6 +88,14 @@ public class TestSemanticAnalyzer {
         assertDoesNotThrow(() -> semanticAnalyzer.analyze(AST));
     }
 
+    @Test
+    void test_statement_withoutKind() {
+        // hand built nodes with labels the parser never builds are evaluated as expressions
+        AbstractSyntaxTree unlabeled = new AbstractSyntaxTree();
+        AbstractSyntaxTree AST = createASTOfMainBody(new AbstractSyntaxTree("STMNT", varToken), unlabeled);
+        assertDoesNotThrow(() -> semanticAnalyzer.analyze(AST));
+    }
+
     /**
      * Source Code:
      *  int var = 5;
@@ -457,6 +470,25 @@ public class TestSemanticAnalyzer {
         assertTrue(semanticAnalyzer.estimateArrayTypes(AST).isType(NodeType.ARRAY));
     }
 
+    @ParameterizedTest
+    @ValueSource(strings = {"7", "-7", "7.5", "\"seven\"", "true"})
+    void test_estimateArrayTypes_packedArray(String last) {
+        List<String> elements = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+            elements.add(last.startsWith("\"") || last.equals("true") ? last : String.valueOf(i));
+        elements.add(last);
+        List<Token> tokens = new Lexer().lex(List.of("x = {" + String.join(", ", elements) + "};"));
+        AbstractSyntaxTree packed = new Parser(tokens).parse().getChildren().get(0).getChildren().get(1);
+        assertTrue(packed instanceof PackedArrayLiteral);
+        EntityType packedType = semanticAnalyzer.estimateArrayTypes(packed);
+        List<AbstractSyntaxTree> packedSizes = ArrayChecks.estimateArraySizes(packed);
+        assertTrue(((PackedArrayLiteral) packed).isPacked());
+        // the same elements as ordinary nodes
+        AbstractSyntaxTree nodes = new AbstractSyntaxTree(NodeKind.ARRAY_LIT, 1, packed.getChildren());
+        assertEquals(semanticAnalyzer.estimateArrayTypes(nodes), packedType);
+        assertEquals(ArrayChecks.estimateArraySizes(nodes), packedSizes);
+    }
+
     @Test
     void test_estimateArrayTypes_simpleIntArray() {
         AbstractSyntaxTree AST = new AbstractSyntaxTree("ARRAY-LIT", List.of(
@@ -464,7 +496,7 @@ public class TestSemanticAnalyzer {
             new AbstractSyntaxTree(new VariableToken(TokenType.NUMBER, "2")),
             new AbstractSyntaxTree(new VariableToken(TokenType.NUMBER, "1"))
         ));
-        assertEquals(new EntityType(NodeType.ARRAY, NodeType.INT), semanticAnalyzer.estimateArrayTypes(AST));
+        assertEquals(EntityType.of(NodeType.ARRAY, NodeType.INT), semanticAnalyzer.estimateArrayTypes(AST));
     }
 
     @Test
@@ -475,7 +507,7 @@ public class TestSemanticAnalyzer {
             new AbstractSyntaxTree(new StaticToken(TokenType.KW_NULL)),
             new AbstractSyntaxTree(new VariableToken(TokenType.NUMBER, "1"))
         ));
-        assertEquals(new EntityType(NodeType.ARRAY, NodeType.INT), semanticAnalyzer.estimateArrayTypes(AST));
+        assertEquals(EntityType.of(NodeType.ARRAY, NodeType.INT), semanticAnalyzer.estimateArrayTypes(AST));
     }
 
     @Test
@@ -488,7 +520,7 @@ public class TestSemanticAnalyzer {
             )),
             new AbstractSyntaxTree(new VariableToken(TokenType.NUMBER, "3.14"))
         ));
-        assertEquals(new EntityType(NodeType.ARRAY, NodeType.DOUBLE), semanticAnalyzer.estimateArrayTypes(AST));
+        assertEquals(EntityType.of(NodeType.ARRAY, NodeType.DOUBLE), semanticAnalyzer.estimateArrayTypes(AST));
     }
 
     @Test
@@ -497,7 +529,7 @@ public class TestSemanticAnalyzer {
             new AbstractSyntaxTree("ARRAY-LIT"),
             new AbstractSyntaxTree("ARRAY-LIT")
         ));
-        assertEquals(new EntityType(NodeType.ARRAY, NodeType.ARRAY), semanticAnalyzer.estimateArrayTypes(AST));
+        assertEquals(EntityType.of(NodeType.ARRAY, NodeType.ARRAY), semanticAnalyzer.estimateArrayTypes(AST));
     }
 
     /**
@@ -523,7 +555,7 @@ public class TestSemanticAnalyzer {
                 ))
             ))
         ));
-        assertEquals(new EntityType(NodeType.ARRAY, NodeType.ARRAY, NodeType.ARRAY, NodeType.STRING), semanticAnalyzer.estimateArrayTypes(AST));
+        assertEquals(EntityType.of(NodeType.ARRAY, NodeType.ARRAY, NodeType.ARRAY, NodeType.STRING), semanticAnalyzer.estimateArrayTypes(AST));
     }
 
     /**
@@ -547,7 +579,7 @@ public class TestSemanticAnalyzer {
                 new AbstractSyntaxTree("ARRAY-LIT", List.of(trueNode))
             ))
         ));
-        assertEquals(new EntityType(NodeType.ARRAY, NodeType.ARRAY, NodeType.ARRAY, NodeType.BOOLEAN), semanticAnalyzer.estimateArrayTypes(AST));
+        assertEquals(EntityType.of(NodeType.ARRAY, NodeType.ARRAY, NodeType.ARRAY, NodeType.BOOLEAN), semanticAnalyzer.estimateArrayTypes(AST));
     }
 
     @Test
@@ -863,7 +895,7 @@ public class TestSemanticAnalyzer {
                 new AbstractSyntaxTree(new VariableToken(TokenType.NUMBER, "2"))
             ))
         ));
-        EntityType expectedReturnType = new EntityType(NodeType.NONE);
+        EntityType expectedReturnType = EntityType.of(NodeType.NONE);
         assertFalse(semanticAnalyzer.functionReturns(functionBody, expectedReturnType));
     }
 
@@ -883,7 +915,7 @@ public class TestSemanticAnalyzer {
             )),
             new AbstractSyntaxTree("CONTROL-FLOW", new StaticToken(TokenType.KW_RET))
         ));
-        EntityType expectedReturnType = new EntityType(NodeType.NONE);
+        EntityType expectedReturnType = EntityType.of(NodeType.NONE);
         assertTrue(semanticAnalyzer.functionReturns(functionBody, expectedReturnType));
     }
 
@@ -899,7 +931,7 @@ public class TestSemanticAnalyzer {
                 new AbstractSyntaxTree(new StaticToken(TokenType.KW_NULL))
             ))
         ));
-        EntityType expectedReturnType = new EntityType(NodeType.NONE);
+        EntityType expectedReturnType = EntityType.of(NodeType.NONE);
         TypeError error = assertThrows(TypeError.class, () -> semanticAnalyzer.functionReturns(functionBody, expectedReturnType));
         assertEquals("Cannot return value from void function", error.getMessage());
     }
@@ -920,7 +952,7 @@ public class TestSemanticAnalyzer {
             ))
         ));
 
-        EntityType expectedReturnType = new EntityType(NodeType.NONE);
+        EntityType expectedReturnType = EntityType.of(NodeType.NONE);
         TypeError error = assertThrows(TypeError.class, () -> semanticAnalyzer.functionReturns(functionBody, expectedReturnType));
         assertEquals("Cannot return value from void function", error.getMessage());
     }
@@ -944,7 +976,7 @@ public class TestSemanticAnalyzer {
             ))
         ));
 
-        EntityType expectedReturnType = new EntityType(NodeType.NONE);
+        EntityType expectedReturnType = EntityType.of(NodeType.NONE);
         UnreachableCodeError error = assertThrows(UnreachableCodeError.class, () -> semanticAnalyzer.functionReturns(functionBody, expectedReturnType));
         assertEquals("Unreachable statement following return", error.getMessage());
     }
@@ -965,7 +997,7 @@ public class TestSemanticAnalyzer {
             ))
         ));
 
-        EntityType expectedReturnType = new EntityType(NodeType.INT);
+        EntityType expectedReturnType = EntityType.of(NodeType.INT);
         assertTrue(semanticAnalyzer.functionReturns(functionBody, expectedReturnType));
     }
 
@@ -982,7 +1014,7 @@ public class TestSemanticAnalyzer {
             ))
         ));
 
-        EntityType expectedReturnType = new EntityType(NodeType.INT);
+        EntityType expectedReturnType = EntityType.of(NodeType.INT);
         TypeError error = assertThrows(TypeError.class, () -> semanticAnalyzer.functionReturns(functionBody, expectedReturnType));
         assertEquals("Expected INT to be returned but got STRING", error.getMessage());
     }
@@ -999,7 +1031,7 @@ public class TestSemanticAnalyzer {
             ))
         ));
 
-        EntityType expectedReturnType = new EntityType(NodeType.INT);
+        EntityType expectedReturnType = EntityType.of(NodeType.INT);
         TypeError error = assertThrows(TypeError.class, () -> semanticAnalyzer.functionReturns(functionBody, expectedReturnType));
         assertEquals("Expected return type INT but didn't return a value", error.getMessage());
     }
@@ -1012,7 +1044,7 @@ public class TestSemanticAnalyzer {
     void test_functionReturns_nonVoidMissingReturn() {
         AbstractSyntaxTree functionBody = new AbstractSyntaxTree("BLOCK-BODY", new StaticToken(TokenType.KW_TRUE));
 
-        EntityType expectedReturnType = new EntityType(NodeType.INT);
+        EntityType expectedReturnType = EntityType.of(NodeType.INT);
         assertFalse(semanticAnalyzer.functionReturns(functionBody, expectedReturnType));
     }
 
@@ -1046,7 +1078,7 @@ public class TestSemanticAnalyzer {
                 ))
             ))
         ));
-        EntityType expectedReturnType = new EntityType(NodeType.BOOLEAN);
+        EntityType expectedReturnType = EntityType.of(NodeType.BOOLEAN);
         assertTrue(semanticAnalyzer.conditionalBlockReturns(conditionalBlock, expectedReturnType));
     }
 
@@ -1070,7 +1102,7 @@ public class TestSemanticAnalyzer {
                 ))
             ))
         ));
-        EntityType expectedReturnType = new EntityType(NodeType.BOOLEAN);
+        EntityType expectedReturnType = EntityType.of(NodeType.BOOLEAN);
         assertFalse(semanticAnalyzer.conditionalBlockReturns(conditionalBlock, expectedReturnType));
     }
 
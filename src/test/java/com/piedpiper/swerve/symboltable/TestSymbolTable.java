@@ -1,6 +1,7 @@
 package com.piedpiper.swerve.symboltable;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -11,10 +12,13 @@ import org.junit.jupiter.api.Test;
 
 import com.piedpiper.swerve.error.IllegalStatementError;
 import com.piedpiper.swerve.error.NameError;
+import com.piedpiper.swerve.lexer.AtomTable;
+import com.piedpiper.swerve.lexer.Lexer;
 import com.piedpiper.swerve.lexer.StaticToken;
 import com.piedpiper.swerve.lexer.TokenType;
 import com.piedpiper.swerve.lexer.VariableToken;
 import com.piedpiper.swerve.parser.AbstractSyntaxTree;
+import com.piedpiper.swerve.parser.Parser;
 import com.piedpiper.swerve.semantic.EntityType;
 import com.piedpiper.swerve.semantic.NodeType;
 import com.piedpiper.swerve.symboltable.FunctionSymbol;
@@ -22,13 +26,14 @@ import com.piedpiper.swerve.symboltable.PrototypeSymbol;
 import com.piedpiper.swerve.symboltable.Symbol;
 import com.piedpiper.swerve.symboltable.SymbolTable;
 
+import java.io.StringReader;
 import java.util.List;
 
 public class TestSymbolTable {
     private SymbolTable table;
 
-    private final EntityType stringType = new EntityType(NodeType.STRING);
-    private final EntityType intType = new EntityType(NodeType.INT);
+    private final EntityType stringType = EntityType.of(NodeType.STRING);
+    private final EntityType intType = EntityType.of(NodeType.INT);
 
     @BeforeEach
     void setUp() {
@@ -103,10 +108,78 @@ public class TestSymbolTable {
         assertEquals("Symbol 'var' is already defined in this scope", error.getMessage());
     }
 
+    @Test
+    void test_insertAndLookup_variable_byAtom() {
+        AtomTable atoms = new AtomTable();
+        SymbolTable atomTable = new SymbolTable(atoms);
+        AbstractSyntaxTree program = new Parser(Lexer.stream(new StringReader("int count = 1;\ncount;"), atoms)).parse();
+        Symbol symbol = new Symbol(program.getChildren().get(0), 1);
+        assertEquals(atoms.find("count"), symbol.getAtom());
+        atomTable.insert(symbol);
+        AbstractSyntaxTree reference = program.getChildren().get(1);
+        assertEquals(symbol.getAtom(), reference.getAtom());
+        assertEquals(symbol, atomTable.lookup(reference));
+        // atoms from another table are not trusted, the name is looked up instead
+        table.insert(symbol);
+        assertEquals(symbol, table.lookup(reference));
+        assertEquals(symbol, table.lookup("count"));
+    }
+
+    @Test
+    void test_lookup_variable_afterLeavingScope() {
+        Symbol outer = new Symbol("var", stringType, 1);
+        table.insert(outer);
+        int scope = table.enterScope();
+        table.insert(new Symbol("var", intType, scope));
+        table.insert(new Symbol("inner", intType, scope));
+        assertEquals(intType, table.lookup("var").getType());
+        table.leaveScope();
+        assertFalse(table.isScopeOpen(scope));
+        assertEquals(outer, table.lookup("var"));
+        assertNull(table.lookup("inner"));
+    }
+
+    @Test
+    void test_insert_variable_builtinName() {
+        NameError error = assertThrows(NameError.class, () -> table.insert(new Symbol("INT_MAX", intType, 1)));
+        assertEquals("Symbol 'INT_MAX' is already defined in the built-in scope", error.getMessage());
+        table.enterScope();
+        assertThrows(NameError.class, () -> table.insert(new Symbol("INT_MAX", intType, 2)));
+    }
+
+    @Test
+    void test_insertAndLookup_variable_manyScopes() {
+        int scopes = 100;
+        int locals = 100;
+        for (int i = 0; i < scopes; i++) {
+            int scope = table.enterScope();
+            for (int j = 0; j < locals; j++)
+                table.insert(new Symbol("var" + j + (j % 2 == 0 ? "" : "_" + i), intType, scope));
+        }
+        assertTrue(table.isScopeOpen(2));
+        // even names are shadowed by every scope, odd ones are only defined once
+        assertEquals(scopes + 1, table.lookup("var0").getScope());
+        assertEquals(2, table.lookup("var1_0").getScope());
+        for (int i = scopes; i > 0; i--)
+            table.leaveScope();
+        assertNull(table.lookup("var0"));
+        assertEquals(1, table.getScopeLevel());
+    }
+
+    @Test
+    void test_replace_variable_inOuterScope() {
+        table.insert(new Symbol("var", EntityType.of(NodeType.GENERIC), 1));
+        int scope = table.enterScope();
+        Symbol concreteSymbol = new Symbol("var", intType, scope);
+        table.replace("var", concreteSymbol);
+        table.leaveScope();
+        assertEquals(concreteSymbol, table.lookup("var"));
+    }
+
     @Test
     void test_insertAndReplaceVariable() {
         AbstractSyntaxTree rightSide = new AbstractSyntaxTree(new VariableToken(TokenType.ID, "param"));
-        Symbol genericSymbol = new Symbol("var", new EntityType(NodeType.GENERIC), false, rightSide, table.getScopeLevel());
+        Symbol genericSymbol = new Symbol("var", EntityType.of(NodeType.GENERIC), false, rightSide, table.getScopeLevel());
         table.insert(genericSymbol);
         assertTrue(genericSymbol.getType().isType(NodeType.GENERIC));
         Symbol concreteSymbol = genericSymbol;
@@ -190,7 +263,7 @@ public class TestSymbolTable {
 
     @Test
     void test_insert_function_with_generic_param() {
-        FunctionSymbol symbol = new FunctionSymbol("test", new EntityType[]{ new EntityType(NodeType.ARRAY, NodeType.GENERIC) }, false);
+        FunctionSymbol symbol = new FunctionSymbol("test", new EntityType[]{ EntityType.of(NodeType.ARRAY, NodeType.GENERIC) }, false);
         assertTrue(symbol.hasGenericParam());
         IllegalStatementError error = assertThrows(IllegalStatementError.class, () -> table.insert(symbol));
         assertEquals("Generic parameter found in function definition; generics can only be used in prototype", error.getMessage());
@@ -198,7 +271,7 @@ public class TestSymbolTable {
 
     @Test
     void test_insert_function_with_generic_return() {
-        FunctionSymbol symbol = new FunctionSymbol("test", new EntityType(NodeType.GENERIC), false);
+        FunctionSymbol symbol = new FunctionSymbol("test", EntityType.of(NodeType.GENERIC), false);
         assertTrue(symbol.returnsGeneric());
         IllegalStatementError error = assertThrows(IllegalStatementError.class, () -> table.insert(symbol));
         assertEquals("Generic return found in function definition; generics can only be used in prototype", error.getMessage());
@@ -228,7 +301,7 @@ public class TestSymbolTable {
 
     @Test
     void test_lookup_builtin_prototype() {
-        EntityType[] paramTypes = new EntityType[] {new EntityType(NodeType.ARRAY, NodeType.STRING)};
+        EntityType[] paramTypes = new EntityType[] {EntityType.of(NodeType.ARRAY, NodeType.STRING)};
         PrototypeSymbol prototype = table.lookupPrototype("getType", paramTypes);
         assertNotNull(prototype);
         assertTrue(prototype.isBuiltIn());
@@ -238,22 +311,22 @@ public class TestSymbolTable {
 
     @Test
     void test_prototype_generic_return_withoutParams() {
-        PrototypeSymbol symbol = new PrototypeSymbol("test", new EntityType(NodeType.GENERIC), false);
+        PrototypeSymbol symbol = new PrototypeSymbol("test", EntityType.of(NodeType.GENERIC), false);
         IllegalStatementError error = assertThrows(IllegalStatementError.class, () -> table.insert(symbol));
         assertEquals("Prototype definition must contain at least one generic parameter", error.getMessage());
     }
 
     @Test
     void test_prototype_genericArray_return_withoutParams() {
-        PrototypeSymbol symbol = new PrototypeSymbol("test", new EntityType(NodeType.ARRAY, NodeType.GENERIC), false);
+        PrototypeSymbol symbol = new PrototypeSymbol("test", EntityType.of(NodeType.ARRAY, NodeType.GENERIC), false);
         IllegalStatementError error = assertThrows(IllegalStatementError.class, () -> table.insert(symbol));
         assertEquals("Prototype definition must contain at least one generic parameter", error.getMessage());
     }
 
     @Test
     void test_insertAndLookup_prototype() {
-        EntityType[] params = {new EntityType(NodeType.ARRAY, NodeType.GENERIC)};
-        PrototypeSymbol symbol = new PrototypeSymbol("first", new EntityType(NodeType.GENERIC), params, new String[]{ "array" }, false);
+        EntityType[] params = {EntityType.of(NodeType.ARRAY, NodeType.GENERIC)};
+        PrototypeSymbol symbol = new PrototypeSymbol("first", EntityType.of(NodeType.GENERIC), params, new String[]{ "array" }, false);
         table.insert(symbol);
         PrototypeSymbol storedSymbol = table.lookupPrototype("first", params);
         assertNotNull(storedSymbol);
@@ -262,9 +335,9 @@ public class TestSymbolTable {
 
     @Test
     void test_insertAndLookup_prototype_withCompatibleParams() {
-        EntityType[] params = {new EntityType(NodeType.ARRAY, NodeType.GENERIC)};
-        EntityType[] compatibleParams = {new EntityType(NodeType.ARRAY, NodeType.STRING)};
-        PrototypeSymbol symbol = new PrototypeSymbol("first", new EntityType(NodeType.GENERIC), params, new String[]{ "array" }, false);
+        EntityType[] params = {EntityType.of(NodeType.ARRAY, NodeType.GENERIC)};
+        EntityType[] compatibleParams = {EntityType.of(NodeType.ARRAY, NodeType.STRING)};
+        PrototypeSymbol symbol = new PrototypeSymbol("first", EntityType.of(NodeType.GENERIC), params, new String[]{ "array" }, false);
         table.insert(symbol);
         PrototypeSymbol storedSymbol = table.lookupPrototype("first", compatibleParams);
         assertNotNull(storedSymbol);
@@ -273,9 +346,9 @@ public class TestSymbolTable {
 
     @Test
     void test_insertAndLookup_prototype_withNonCompatibleParams() {
-        EntityType[] params = {new EntityType(NodeType.ARRAY, NodeType.GENERIC)};
-        EntityType[] nonCompatibleParams = {new EntityType(NodeType.STRING)};
-        PrototypeSymbol symbol = new PrototypeSymbol("first", new EntityType(NodeType.GENERIC), params, new String[]{ "array" }, false);
+        EntityType[] params = {EntityType.of(NodeType.ARRAY, NodeType.GENERIC)};
+        EntityType[] nonCompatibleParams = {EntityType.of(NodeType.STRING)};
+        PrototypeSymbol symbol = new PrototypeSymbol("first", EntityType.of(NodeType.GENERIC), params, new String[]{ "array" }, false);
         table.insert(symbol);
         PrototypeSymbol storedSymbol = table.lookupPrototype("first", nonCompatibleParams);
         assertNull(storedSymbol);